@@ -0,0 +1,47 @@
+// So sánh throughput giữa thread pool mặc định của Tomcat và profile "virtual".
+//
+// Chạy app hai lần với cùng dữ liệu (một lần không profile, một lần --spring.profiles.active=virtual),
+// mỗi lần chạy:
+//   k6 run -e BASE_URL=http://localhost:8080/api -e TOKEN=<jwt> loadtest/virtual-threads.js
+// rồi so sánh http_reqs (req/s), http_req_duration p95/p99 và hikaricp_connections_pending
+// trên /api/actuator/metrics giữa hai lần.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const TOKEN = __ENV.TOKEN;
+const PEAK_VUS = Number(__ENV.PEAK_VUS || 800);
+
+export const options = {
+  scenarios: {
+    // Vượt 200 request đồng thời (max thread mặc định của Tomcat) để thấy khác biệt
+    mixed: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: PEAK_VUS / 4 },
+        { duration: '1m', target: PEAK_VUS },
+        { duration: '2m', target: PEAK_VUS },
+        { duration: '30s', target: 0 },
+      ],
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const params = { headers: { Authorization: `Bearer ${TOKEN}` } };
+
+export default function () {
+  // Hỗn hợp endpoint chủ yếu chờ I/O: feed (Redis + MySQL), profile, interactions
+  const feed = http.get(`${BASE_URL}/posts/feed/cursor?size=10`, { ...params, tags: { name: 'feed' } });
+  check(feed, { 'feed 200': (r) => r.status === 200 });
+
+  const me = http.get(`${BASE_URL}/users/me`, { ...params, tags: { name: 'me' } });
+  check(me, { 'me 200': (r) => r.status === 200 });
+
+  const popular = http.get(`${BASE_URL}/posts/popular?size=10`, { ...params, tags: { name: 'popular' } });
+  check(popular, { 'popular 200': (r) => r.status === 200 });
+}
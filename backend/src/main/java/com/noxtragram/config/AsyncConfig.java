@@ -0,0 +1,117 @@
+package com.noxtragram.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+  /**
+   * Executor riêng cho fan-out feed, không chiếm thread của Tomcat. Ở chế độ virtual thread mỗi
+   * task một virtual thread, chỉ giới hạn số task chạy song song.
+   */
+  @Bean(name = "feedFanoutExecutor")
+  public Executor feedFanoutExecutor(
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      @Value("${app.virtual-threads.feed-fanout-concurrency:64}") int virtualConcurrency,
+      @Value("${app.feed.fanout.core-pool-size:2}") int corePoolSize,
+      @Value("${app.feed.fanout.max-pool-size:4}") int maxPoolSize,
+      @Value("${app.feed.fanout.queue-capacity:1000}") int queueCapacity) {
+    if (virtualThreads) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("feed-fanout-");
+      executor.setVirtualThreads(true);
+      executor.setConcurrencyLimit(virtualConcurrency);
+      return executor;
+    }
+
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(corePoolSize);
+    executor.setMaxPoolSize(maxPoolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("feed-fanout-");
+    // Hàng đợi đầy thì chạy luôn trên thread gọi thay vì bỏ mất bài post
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Executor riêng cho BCrypt: giới hạn số thread và hàng đợi, đầy thì từ chối (429) thay vì
+   * để request login/register chiếm hết thread của Tomcat. Luôn là platform thread kể cả ở chế độ
+   * virtual thread vì BCrypt thuần CPU, giới hạn pool chính là giới hạn số lõi dành cho nó.
+   */
+  @Bean(name = "passwordHashingExecutor")
+  public ThreadPoolTaskExecutor passwordHashingExecutor(
+      @Value("${app.security.password-hashing.pool-size:2}") int poolSize,
+      @Value("${app.security.password-hashing.queue-capacity:50}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("password-hashing-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Dựng lại membership index (Bloom filter liked/saved) ở nền. Request gặp filter chưa có chỉ hỏi
+   * DB rồi trả về, không chờ dựng; hàng đợi đầy thì bỏ qua, lần đọc sau sẽ xếp lại.
+   */
+  @Bean(name = "membershipRebuildExecutor")
+  public ThreadPoolTaskExecutor membershipRebuildExecutor(
+      @Value("${app.membership.rebuild.pool-size:2}") int poolSize,
+      @Value("${app.membership.rebuild.queue-capacity:500}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("membership-rebuild-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Executor cho handler async của Spring MVC (NDJSON export followers). Có nhiều bean Executor nên
+   * Boot không tạo applicationTaskExecutor; thiếu bean này MVC chạy mỗi request một thread không giới
+   * hạn. Đầy thì từ chối request export thay vì mở thêm thread.
+   */
+  @Bean(name = "mvcAsyncExecutor")
+  public ThreadPoolTaskExecutor mvcAsyncExecutor(
+      @Value("${app.web.async.pool-size:4}") int poolSize,
+      @Value("${app.web.async.queue-capacity:20}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("mvc-async-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Một thread gửi outbox tin nhắn sau commit. Lượt gửi bị dồn lại thành một lần chạy, lỡ bị
+   * từ chối thì job quét định kỳ sẽ gửi nốt.
+   */
+  @Bean(name = "messageOutboxExecutor")
+  public ThreadPoolTaskExecutor messageOutboxExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(1);
+    executor.setThreadNamePrefix("message-outbox-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+    executor.initialize();
+    return executor;
+  }
+}
@@ -0,0 +1,35 @@
+package com.noxtragram.config;
+
+import com.noxtragram.security.CurrentUserIdArgumentResolver;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+  private final CurrentUserIdArgumentResolver currentUserIdArgumentResolver;
+  private final ThreadPoolTaskExecutor mvcAsyncExecutor;
+
+  public WebMvcConfig(CurrentUserIdArgumentResolver currentUserIdArgumentResolver,
+      @Qualifier("mvcAsyncExecutor") ThreadPoolTaskExecutor mvcAsyncExecutor) {
+    this.currentUserIdArgumentResolver = currentUserIdArgumentResolver;
+    this.mvcAsyncExecutor = mvcAsyncExecutor;
+  }
+
+  // WebAsyncTask / Callable chạy trên pool có giới hạn thay vì SimpleAsyncTaskExecutor mặc định
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(mvcAsyncExecutor);
+  }
+
+  @Override
+  public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(currentUserIdArgumentResolver);
+  }
+}
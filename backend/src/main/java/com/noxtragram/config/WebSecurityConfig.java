@@ -1,6 +1,7 @@
 package com.noxtragram.config;
 
 import com.noxtragram.security.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -78,9 +79,10 @@ public class WebSecurityConfig {
     return http.build();
   }
 
+  // Tăng strength thì hash cũ được hash lại ở lần đăng nhập kế tiếp (xem PasswordHashingService)
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.strength:10}") int strength) {
+    return new BCryptPasswordEncoder(strength);
   }
 
   @Bean
@@ -1,7 +1,11 @@
 package com.noxtragram.config;
 
+import com.noxtragram.security.StompAuthChannelInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -10,10 +14,80 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+  private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+  // simple | relay | redis (xem RealtimePublisher)
+  private final String brokerMode;
+  private final boolean virtualThreads;
+  private final int virtualChannelPoolSize;
+
+  @Value("${app.websocket.relay.host:localhost}")
+  private String relayHost;
+
+  @Value("${app.websocket.relay.port:61613}")
+  private int relayPort;
+
+  @Value("${app.websocket.relay.client-login:guest}")
+  private String relayClientLogin;
+
+  @Value("${app.websocket.relay.client-passcode:guest}")
+  private String relayClientPasscode;
+
+  @Value("${app.websocket.relay.system-login:guest}")
+  private String relaySystemLogin;
+
+  @Value("${app.websocket.relay.system-passcode:guest}")
+  private String relaySystemPasscode;
+
+  @Value("${app.websocket.relay.virtual-host:/}")
+  private String relayVirtualHost;
+
+  @Value("${app.websocket.inbound.core-pool-size:8}")
+  private int inboundCorePoolSize;
+
+  @Value("${app.websocket.inbound.max-pool-size:32}")
+  private int inboundMaxPoolSize;
+
+  @Value("${app.websocket.inbound.queue-capacity:1000}")
+  private int inboundQueueCapacity;
+
+  @Value("${app.websocket.outbound.core-pool-size:8}")
+  private int outboundCorePoolSize;
+
+  @Value("${app.websocket.outbound.max-pool-size:32}")
+  private int outboundMaxPoolSize;
+
+  @Value("${app.websocket.outbound.queue-capacity:1000}")
+  private int outboundQueueCapacity;
+
+  public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+      @Value("${app.websocket.broker:simple}") String brokerMode,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      @Value("${app.virtual-threads.websocket-channel-pool-size:256}") int virtualChannelPoolSize) {
+    this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+    this.brokerMode = brokerMode;
+    this.virtualThreads = virtualThreads;
+    this.virtualChannelPoolSize = virtualChannelPoolSize;
+  }
+
   @Override
   public void configureMessageBroker(MessageBrokerRegistry config) {
-    // Enable simple broker for topics and queues
-    config.enableSimpleBroker("/topic", "/queue");
+    if ("relay".equals(brokerMode)) {
+      // Broker ngoài (RabbitMQ STOMP, ActiveMQ...): mọi instance chung một broker, registry user
+      // được broadcast giữa các node để /user/... tìm được session ở instance khác
+      config.enableStompBrokerRelay("/topic", "/queue")
+          .setRelayHost(relayHost)
+          .setRelayPort(relayPort)
+          .setClientLogin(relayClientLogin)
+          .setClientPasscode(relayClientPasscode)
+          .setSystemLogin(relaySystemLogin)
+          .setSystemPasscode(relaySystemPasscode)
+          .setVirtualHost(relayVirtualHost)
+          .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+          .setUserRegistryBroadcast("/topic/simp-user-registry");
+    } else {
+      // simple và redis: broker trong bộ nhớ, redis fan-out giữa các instance qua RedisRealtimePublisher
+      config.enableSimpleBroker("/topic", "/queue");
+    }
 
     // Set application destination prefix
     config.setApplicationDestinationPrefixes("/app");
@@ -33,4 +107,47 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     registry.addEndpoint("/messages")
         .setAllowedOriginPatterns("*");
   }
+
+  // Handler @MessageMapping gọi JPA/Redis: ở chế độ virtual thread, worker của channel là
+  // virtual thread nên chờ I/O không giữ platform thread. Ngược lại pool được giới hạn rõ ràng
+  // thay vì mặc định theo số lõi CPU.
+  // ChannelRegistration.executor(Executor) chỉ có từ Spring 6.2, nên dùng taskExecutor(...) của 6.1.
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    registration.interceptors(stompAuthChannelInterceptor);
+    if (virtualThreads) {
+      registration.taskExecutor(virtualChannelExecutor("ws-inbound-"));
+    } else {
+      registration.taskExecutor()
+          .corePoolSize(inboundCorePoolSize)
+          .maxPoolSize(inboundMaxPoolSize)
+          .queueCapacity(inboundQueueCapacity);
+    }
+  }
+
+  @Override
+  public void configureClientOutboundChannel(ChannelRegistration registration) {
+    if (virtualThreads) {
+      registration.taskExecutor(virtualChannelExecutor("ws-outbound-"));
+    } else {
+      registration.taskExecutor()
+          .corePoolSize(outboundCorePoolSize)
+          .maxPoolSize(outboundMaxPoolSize)
+          .queueCapacity(outboundQueueCapacity);
+    }
+  }
+
+  /**
+   * Pool này không giữ platform thread: mọi worker là virtual thread, rảnh thì bị thu lại
+   * (allowCoreThreadTimeOut). Kích thước pool chỉ là giới hạn số message xử lý đồng thời của
+   * channel (chặn số query JPA/Redis chạy cùng lúc), không phải số thread hệ điều hành.
+   */
+  private ThreadPoolTaskExecutor virtualChannelExecutor(String prefix) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(virtualChannelPoolSize);
+    executor.setMaxPoolSize(virtualChannelPoolSize);
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.setThreadFactory(Thread.ofVirtual().name(prefix, 0).factory());
+    return executor;
+  }
 }
@@ -2,6 +2,7 @@ package com.noxtragram.controller;
 
 import com.noxtragram.model.dto.response.*;
 import com.noxtragram.model.dto.TrendingHashtagDTO;
+import com.noxtragram.security.CurrentUserId;
 import com.noxtragram.service.HashtagService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Size;
@@ -29,7 +30,7 @@ public class HashtagController {
   @GetMapping("/{name}")
   public ResponseEntity<HashtagResponseDTO> getHashtag(
       @PathVariable String name,
-      @RequestAttribute(required = false) Long userId) {
+      @CurrentUserId(required = false) Long userId) {
 
     HashtagResponseDTO hashtag = hashtagService.getHashtagByName(name, userId);
     return ResponseEntity.ok(hashtag);
@@ -86,7 +87,7 @@ public class HashtagController {
   @GetMapping("/{name}/posts")
   public ResponseEntity<Page<PostResponseDTO>> getPostsByHashtag(
       @PathVariable String name,
-      @RequestAttribute Long userId,
+      @CurrentUserId Long userId,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size) {
 
@@ -95,10 +96,25 @@ public class HashtagController {
     return ResponseEntity.ok(posts);
   }
 
+  @GetMapping("/{name}/posts/cursor")
+  public ResponseEntity<CursorPageResponseDTO<PostResponseDTO>> getPostsByHashtagByCursor(
+      @PathVariable String name,
+      @CurrentUserId Long userId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size) {
+
+    try {
+      return ResponseEntity.ok(hashtagService.getPostsByHashtagByCursor(name, userId, cursor, size));
+    } catch (IllegalArgumentException e) {
+      // Cursor không hợp lệ
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
   @PostMapping("/{name}/follow")
   public ResponseEntity<Map<String, String>> followHashtag(
       @PathVariable String name,
-      @RequestAttribute Long userId) {
+      @CurrentUserId Long userId) {
 
     hashtagService.followHashtag(name, userId);
 
@@ -110,7 +126,7 @@ public class HashtagController {
   @DeleteMapping("/{name}/follow")
   public ResponseEntity<Map<String, String>> unfollowHashtag(
       @PathVariable String name,
-      @RequestAttribute Long userId) {
+      @CurrentUserId Long userId) {
 
     hashtagService.unfollowHashtag(name, userId);
 
@@ -122,7 +138,7 @@ public class HashtagController {
   @GetMapping("/{name}/follow-status")
   public ResponseEntity<Map<String, Boolean>> getFollowStatus(
       @PathVariable String name,
-      @RequestAttribute Long userId) {
+      @CurrentUserId Long userId) {
 
     boolean isFollowing = hashtagService.isHashtagFollowedByUser(name, userId);
 
@@ -133,7 +149,7 @@ public class HashtagController {
 
   @GetMapping("/followed")
   public ResponseEntity<Page<HashtagResponseDTO>> getFollowedHashtags(
-      @RequestAttribute Long userId,
+      @CurrentUserId Long userId,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size) {
 
@@ -147,8 +163,6 @@ public class HashtagController {
       @RequestParam String query,
       @RequestParam(defaultValue = "5") int limit) {
 
-    Pageable pageable = PageRequest.of(0, limit);
-    Page<HashtagResponseDTO> suggestions = hashtagService.searchHashtags(query, pageable);
-    return ResponseEntity.ok(suggestions.getContent());
+    return ResponseEntity.ok(hashtagService.getHashtagSuggestions(query, limit));
   }
 }
@@ -1,6 +1,7 @@
 package com.noxtragram.controller;
 
 import com.noxtragram.model.dto.response.LikeResponseDTO;
+import com.noxtragram.security.CurrentUserId;
 import com.noxtragram.service.LikeService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -24,7 +25,7 @@ public class LikeController {
   @PostMapping("/posts/{postId}")
   public ResponseEntity<Void> likePost(
       @PathVariable Long postId,
-      @RequestHeader("X-User-Id") Long userId) {
+      @CurrentUserId Long userId) {
     likeService.likePost(postId, userId);
     return ResponseEntity.ok().build();
   }
@@ -33,7 +34,7 @@ public class LikeController {
   @DeleteMapping("/posts/{postId}")
   public ResponseEntity<Void> unlikePost(
       @PathVariable Long postId,
-      @RequestHeader("X-User-Id") Long userId) {
+      @CurrentUserId Long userId) {
     likeService.unlikePost(postId, userId);
     return ResponseEntity.ok().build();
   }
@@ -42,8 +43,7 @@ public class LikeController {
   @GetMapping("/posts/{postId}")
   public ResponseEntity<Page<LikeResponseDTO>> getLikesByPost(
       @PathVariable Long postId,
-      @PageableDefault(size = 20) Pageable pageable,
-      @RequestHeader(value = "X-User-Id", required = false) Long currentUserId) {
+      @PageableDefault(size = 20) Pageable pageable) {
     Page<LikeResponseDTO> likes = likeService.getLikesByPost(postId, pageable);
     return ResponseEntity.ok(likes);
   }
@@ -52,8 +52,7 @@ public class LikeController {
   @GetMapping("/users/{userId}/posts")
   public ResponseEntity<Page<LikeResponseDTO>> getLikesByUser(
       @PathVariable Long userId,
-      @PageableDefault(size = 20) Pageable pageable,
-      @RequestHeader(value = "X-User-Id", required = false) Long currentUserId) {
+      @PageableDefault(size = 20) Pageable pageable) {
     Page<LikeResponseDTO> likes = likeService.getLikesByUser(userId, pageable);
     return ResponseEntity.ok(likes);
   }
@@ -62,7 +61,7 @@ public class LikeController {
   @GetMapping("/posts/{postId}/check")
   public ResponseEntity<Boolean> isPostLikedByUser(
       @PathVariable Long postId,
-      @RequestHeader("X-User-Id") Long userId) {
+      @CurrentUserId Long userId) {
     boolean isLiked = likeService.isPostLikedByUser(postId, userId);
     return ResponseEntity.ok(isLiked);
   }
@@ -2,20 +2,23 @@ package com.noxtragram.controller;
 
 import com.noxtragram.model.dto.request.*;
 import com.noxtragram.model.dto.response.ApiResponse;
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.dto.response.MessageResponseDTO;
 import com.noxtragram.model.entity.Message;
 import com.noxtragram.model.entity.MessageType;
+import com.noxtragram.repository.projection.ConversationView;
+import com.noxtragram.security.CurrentUserId;
 import com.noxtragram.service.MessageService;
-import com.noxtragram.service.UserService;
+import com.noxtragram.service.RealtimePublisher;
+import com.noxtragram.util.PageCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -26,15 +29,12 @@ import java.util.Map;
 public class MessageController {
 
   private final MessageService messageService;
-  private final UserService userService;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final RealtimePublisher realtimePublisher;
 
   public MessageController(MessageService messageService,
-      UserService userService,
-      SimpMessagingTemplate messagingTemplate) {
+      RealtimePublisher realtimePublisher) {
     this.messageService = messageService;
-    this.userService = userService;
-    this.messagingTemplate = messagingTemplate;
+    this.realtimePublisher = realtimePublisher;
   }
 
   // ================= REST API =================
@@ -42,19 +42,13 @@ public class MessageController {
   @PostMapping("/send/text")
   public ResponseEntity<ApiResponse<MessageResponseDTO>> sendTextMessage(
       @RequestBody TextMessageRequestDTO request,
-      Authentication authentication) {
+      @CurrentUserId Long senderId) {
     try {
-      Long senderId = getUserIdFromAuthentication(authentication);
       Message message = messageService.sendTextMessage(senderId, request.getReceiverId(), request.getContent());
 
+      // Service đã ghi sự kiện realtime vào outbox, gửi tới receiver sau khi commit
       MessageResponseDTO dto = convertToMessageDTO(message);
 
-      // Gửi realtime tới receiver
-      messagingTemplate.convertAndSendToUser(
-          request.getReceiverId().toString(),
-          "/queue/messages",
-          dto);
-
       return ResponseEntity.ok(ApiResponse.success("Tin nhắn đã được gửi", dto));
     } catch (Exception e) {
       return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -66,9 +60,8 @@ public class MessageController {
       @PathVariable Long otherUserId,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size,
-      Authentication authentication) {
+      @CurrentUserId Long currentUserId) {
     try {
-      Long currentUserId = getUserIdFromAuthentication(authentication);
       Pageable pageable = PageRequest.of(page, size);
       Page<Message> messages = messageService.getMessageHistoryWithPagination(currentUserId, otherUserId, pageable);
       Page<MessageResponseDTO> dtos = messages.map(this::convertToMessageDTO);
@@ -78,17 +71,51 @@ public class MessageController {
     }
   }
 
+  @GetMapping("/history/{otherUserId}/cursor")
+  public ResponseEntity<ApiResponse<CursorPageResponseDTO<MessageResponseDTO>>> getMessageHistoryByCursor(
+      @PathVariable Long otherUserId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size,
+      @CurrentUserId Long currentUserId) {
+    try {
+      Slice<Message> messages = messageService.getMessageHistoryByCursor(currentUserId, otherUserId, cursor, size);
+
+      String nextCursor = null;
+      if (messages.hasNext() && messages.hasContent()) {
+        Message last = messages.getContent().get(messages.getNumberOfElements() - 1);
+        nextCursor = PageCursor.of(last.getCreatedAt(), last.getId()).encode();
+      }
+      CursorPageResponseDTO<MessageResponseDTO> dtos = new CursorPageResponseDTO<>(
+          messages.map(this::convertToMessageDTO).getContent(), nextCursor, nextCursor != null);
+      return ResponseEntity.ok(ApiResponse.success("Lấy lịch sử tin nhắn thành công", dtos));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  @GetMapping("/inbox")
+  public ResponseEntity<ApiResponse<CursorPageResponseDTO<ConversationView>>> getInbox(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size,
+      @CurrentUserId Long currentUserId) {
+    try {
+      CursorPageResponseDTO<ConversationView> inbox = messageService.getInbox(currentUserId, cursor, size);
+      return ResponseEntity.ok(ApiResponse.success("Lấy danh sách cuộc trò chuyện thành công", inbox));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
   @PutMapping("/mark-read/{senderId}")
   public ResponseEntity<ApiResponse<Void>> markMessagesAsRead(
       @PathVariable Long senderId,
-      Authentication authentication) {
+      @CurrentUserId Long receiverId) {
     try {
-      Long receiverId = getUserIdFromAuthentication(authentication);
       messageService.markMessagesAsRead(receiverId, senderId);
 
       // Gửi realtime read receipt tới sender
-      messagingTemplate.convertAndSendToUser(
-          senderId.toString(),
+      realtimePublisher.sendToUser(
+          senderId,
           "/queue/read-receipt",
           Map.of("readerId", receiverId));
 
@@ -110,19 +137,13 @@ public class MessageController {
       String messageType = (String) payload.getOrDefault("messageType", "TEXT");
       String mediaUrl = (String) payload.get("mediaUrl");
 
-      Message message = messageService.sendMessage(
+      // Realtime tới receiver đi qua outbox của service, không gửi lại ở đây
+      messageService.sendMessage(
           senderId,
           receiverId,
           content,
           MessageType.valueOf(messageType),
           mediaUrl);
-
-      // Gửi realtime tới receiver
-      messagingTemplate.convertAndSendToUser(
-          receiverId.toString(),
-          "/queue/messages",
-          convertToMessageDTO(message));
-
     } catch (Exception e) {
       System.err.println("WebSocket send message error: " + e.getMessage());
     }
@@ -136,8 +157,8 @@ public class MessageController {
       Long receiverId = Long.valueOf(typingData.get("receiverId").toString());
       Boolean isTyping = (Boolean) typingData.get("isTyping");
 
-      messagingTemplate.convertAndSendToUser(
-          receiverId.toString(),
+      realtimePublisher.sendToUser(
+          receiverId,
           "/queue/typing",
           Map.of("senderId", senderId, "isTyping", isTyping));
     } catch (Exception e) {
@@ -154,8 +175,8 @@ public class MessageController {
 
       messageService.markMessagesAsRead(readerId, senderId);
 
-      messagingTemplate.convertAndSendToUser(
-          senderId.toString(),
+      realtimePublisher.sendToUser(
+          senderId,
           "/queue/read-receipt",
           Map.of("readerId", readerId));
     } catch (Exception e) {
@@ -165,11 +186,6 @@ public class MessageController {
 
   // ================= Private Helpers =================
 
-  private Long getUserIdFromAuthentication(Authentication authentication) {
-    String username = authentication.getName();
-    return userService.getUserIdByUsername(username); // Lấy đúng userId từ DB
-  }
-
   private MessageResponseDTO convertToMessageDTO(Message message) {
     MessageResponseDTO dto = new MessageResponseDTO();
     dto.setId(message.getId());
@@ -1,16 +1,14 @@
 package com.noxtragram.controller;
 
 import com.noxtragram.model.dto.request.PostRequestDTO;
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.dto.response.PostResponseDTO;
-import com.noxtragram.model.entity.User;
-import com.noxtragram.repository.UserRepository;
+import com.noxtragram.security.CurrentUserId;
 import com.noxtragram.service.PostService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.http.*;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -27,9 +25,6 @@ public class PostController {
 
   private final PostService postService;
 
-  @Autowired
-  private UserRepository userRepository;
-
   public PostController(PostService postService) {
     this.postService = postService;
   }
@@ -40,17 +35,9 @@ public class PostController {
       @RequestPart(value = "location", required = false) String location,
       @RequestPart(value = "hashtags", required = false) String hashtags,
       @RequestPart(value = "files", required = false) List<MultipartFile> files,
-      Authentication authentication) {
+      @CurrentUserId Long userId) {
 
     try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-      }
-
-      String username = authentication.getName();
-      User user = userRepository.findByUsername(username)
-          .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
       // Validate files
       if (files != null) {
         for (MultipartFile file : files) {
@@ -84,7 +71,7 @@ public class PostController {
         postRequest.setHashtags(hashtagList);
       }
 
-      PostResponseDTO createdPost = postService.createPost(postRequest, files, user.getId());
+      PostResponseDTO createdPost = postService.createPost(postRequest, files, userId);
       return ResponseEntity.ok(createdPost);
     } catch (Exception e) {
       Map<String, String> error = new HashMap<>();
@@ -94,9 +81,8 @@ public class PostController {
   }
 
   @GetMapping("/{postId}")
-  public ResponseEntity<?> getPost(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> getPost(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       PostResponseDTO post = postService.getPostById(postId, userId);
       return ResponseEntity.ok(post);
     } catch (EntityNotFoundException e) {
@@ -112,10 +98,9 @@ public class PostController {
       @PathVariable Long userId,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      Authentication authentication) {
+      @CurrentUserId Long currentUserId) {
 
     try {
-      Long currentUserId = getUserIdFromAuthentication(authentication);
       Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
       Page<PostResponseDTO> posts = postService.getPostsByUserId(userId, currentUserId, pageable);
       return ResponseEntity.ok(posts);
@@ -125,14 +110,34 @@ public class PostController {
     }
   }
 
+  @GetMapping("/user/{userId}/cursor")
+  public ResponseEntity<?> getUserPostsByCursor(
+      @PathVariable Long userId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size,
+      @CurrentUserId Long currentUserId) {
+
+    try {
+      CursorPageResponseDTO<PostResponseDTO> posts = postService.getPostsByUserIdByCursor(userId, currentUserId,
+          cursor, size);
+      return ResponseEntity.ok(posts);
+    } catch (EntityNotFoundException e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(Map.of("error", "Failed to get user posts"));
+    }
+  }
+
   @GetMapping("/feed")
   public ResponseEntity<?> getFeed(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      Authentication authentication) {
+      @CurrentUserId Long userId) {
 
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
       Page<PostResponseDTO> posts = postService.getFeedPosts(userId, pageable);
       return ResponseEntity.ok(posts);
@@ -142,15 +147,31 @@ public class PostController {
     }
   }
 
+  @GetMapping("/feed/cursor")
+  public ResponseEntity<?> getFeedByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size,
+      @CurrentUserId Long userId) {
+
+    try {
+      CursorPageResponseDTO<PostResponseDTO> posts = postService.getFeedPostsByCursor(userId, cursor, size);
+      return ResponseEntity.ok(posts);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(Map.of("error", "Failed to get feed"));
+    }
+  }
+
   @GetMapping("/hashtag/{hashtag}")
   public ResponseEntity<?> getPostsByHashtag(
       @PathVariable String hashtag,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      Authentication authentication) {
+      @CurrentUserId Long userId) {
 
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
       Page<PostResponseDTO> posts = postService.getPostsByHashtag(hashtag, userId, pageable);
       return ResponseEntity.ok(posts);
@@ -164,10 +185,9 @@ public class PostController {
   public ResponseEntity<?> getSavedPosts(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      Authentication authentication) {
+      @CurrentUserId Long userId) {
 
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
       Page<PostResponseDTO> posts = postService.getSavedPosts(userId, userId, pageable);
       return ResponseEntity.ok(posts);
@@ -181,10 +201,9 @@ public class PostController {
   public ResponseEntity<?> getPopularPosts(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
-      Authentication authentication) {
+      @CurrentUserId Long userId) {
 
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       Pageable pageable = PageRequest.of(page, size, Sort.by("likeCount").descending());
       Page<PostResponseDTO> posts = postService.getPopularPosts(userId, pageable);
       return ResponseEntity.ok(posts);
@@ -198,10 +217,9 @@ public class PostController {
   public ResponseEntity<?> updatePost(
       @PathVariable Long postId,
       @Valid @RequestBody PostRequestDTO postRequest,
-      Authentication authentication) {
+      @CurrentUserId Long userId) {
 
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       PostResponseDTO updatedPost = postService.updatePost(postId, postRequest, userId);
       return ResponseEntity.ok(updatedPost);
     } catch (SecurityException e) {
@@ -215,9 +233,8 @@ public class PostController {
   }
 
   @DeleteMapping("/{postId}")
-  public ResponseEntity<?> deletePost(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> deletePost(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       postService.deletePost(postId, userId);
       return ResponseEntity.ok(Map.of("message", "Post deleted successfully"));
     } catch (SecurityException e) {
@@ -231,9 +248,8 @@ public class PostController {
   }
 
   @PostMapping("/{postId}/like")
-  public ResponseEntity<?> likePost(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> likePost(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       postService.likePost(postId, userId);
       return ResponseEntity.ok(Map.of("message", "Post liked successfully"));
     } catch (IllegalStateException e) {
@@ -247,9 +263,8 @@ public class PostController {
   }
 
   @DeleteMapping("/{postId}/like")
-  public ResponseEntity<?> unlikePost(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> unlikePost(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       postService.unlikePost(postId, userId);
       return ResponseEntity.ok(Map.of("message", "Post unliked successfully"));
     } catch (EntityNotFoundException e) {
@@ -261,9 +276,8 @@ public class PostController {
   }
 
   @PostMapping("/{postId}/save")
-  public ResponseEntity<?> savePost(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> savePost(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       postService.savePost(postId, userId);
       return ResponseEntity.ok(Map.of("message", "Post saved successfully"));
     } catch (IllegalStateException e) {
@@ -277,9 +291,8 @@ public class PostController {
   }
 
   @DeleteMapping("/{postId}/save")
-  public ResponseEntity<?> unsavePost(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> unsavePost(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       postService.unsavePost(postId, userId);
       return ResponseEntity.ok(Map.of("message", "Post unsaved successfully"));
     } catch (EntityNotFoundException e) {
@@ -291,9 +304,8 @@ public class PostController {
   }
 
   @GetMapping("/{postId}/interactions")
-  public ResponseEntity<?> getPostInteractions(@PathVariable Long postId, Authentication authentication) {
+  public ResponseEntity<?> getPostInteractions(@PathVariable Long postId, @CurrentUserId Long userId) {
     try {
-      Long userId = getUserIdFromAuthentication(authentication);
       boolean isLiked = postService.isPostLikedByUser(postId, userId);
       boolean isSaved = postService.isPostSavedByUser(postId, userId);
 
@@ -307,15 +319,4 @@ public class PostController {
           .body(Map.of("error", "Failed to get interactions"));
     }
   }
-
-  private Long getUserIdFromAuthentication(Authentication authentication) {
-    if (authentication == null || !authentication.isAuthenticated()) {
-      throw new SecurityException("User not authenticated");
-    }
-
-    String username = authentication.getName();
-    User user = userRepository.findByUsername(username)
-        .orElseThrow(() -> new EntityNotFoundException("User not found"));
-    return user.getId();
-  }
 }
@@ -1,17 +1,25 @@
 package com.noxtragram.controller;
 
 import com.noxtragram.model.dto.request.*;
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.dto.response.UserResponseDTO;
 import com.noxtragram.model.dto.response.LoginResponseDTO;
-import org.springframework.security.core.Authentication; // ✅ THÊM IMPORT NÀY
+import com.noxtragram.repository.projection.FollowUserView;
+import com.noxtragram.security.CurrentUserId;
 import com.noxtragram.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -20,10 +28,13 @@ import java.util.Map;
 public class UserController {
 
   private final UserService userService;
+  private final long exportTimeoutMs;
 
   @Autowired
-  public UserController(UserService userService) {
+  public UserController(UserService userService,
+      @Value("${app.users.followers-export.timeout:10m}") Duration exportTimeout) {
     this.userService = userService;
+    this.exportTimeoutMs = exportTimeout.toMillis();
   }
 
   // 🔐 AUTHENTICATION ENDPOINTS
@@ -40,29 +51,20 @@ public class UserController {
     return ResponseEntity.ok(loginResponseDTO);
   }
 
-  @GetMapping("/me")
-  public ResponseEntity<UserResponseDTO> getCurrentUser(Authentication authentication) {
-    try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-      }
-
-      // Lấy user details từ authentication
-      Object principal = authentication.getPrincipal();
-
-      if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
-        String username = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
-        UserResponseDTO userResponseDTO = userService.getUserByUsername(username);
-        return ResponseEntity.ok(userResponseDTO);
-      } else {
-        // Nếu principal là String (username)
-        String username = principal.toString();
-        UserResponseDTO userResponseDTO = userService.getUserByUsername(username);
-        return ResponseEntity.ok(userResponseDTO);
-      }
-    } catch (Exception e) {
-      throw new RuntimeException("Error getting current user: " + e.getMessage());
+  // Thu hồi token hiện tại, các instance khác nhận qua Redis pub/sub
+  @PostMapping("/logout")
+  public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+    if (authorization != null && authorization.startsWith("Bearer ")) {
+      userService.logout(authorization.substring(7));
     }
+    return ResponseEntity.ok().build();
+  }
+
+  @GetMapping("/me")
+  public ResponseEntity<UserResponseDTO> getCurrentUser(@CurrentUserId Long currentUserId) {
+    // Id lấy từ token nên chỉ cần một lần query theo khóa chính
+    UserResponseDTO userResponseDTO = userService.getUserById(currentUserId);
+    return ResponseEntity.ok(userResponseDTO);
   }
 
   @GetMapping("/{id}")
@@ -118,10 +120,8 @@ public class UserController {
   @PostMapping("/me/profile-picture")
   public ResponseEntity<UserResponseDTO> uploadProfilePicture(
       @RequestParam("file") MultipartFile file,
-      Authentication authentication) {
-    // Lấy username từ token (hoặc principal)
-    String username = authentication.getName();
-    UserResponseDTO userResponseDTO = userService.uploadProfilePicture(username, file);
+      @CurrentUserId Long userId) {
+    UserResponseDTO userResponseDTO = userService.uploadProfilePicture(userId, file);
     return ResponseEntity.ok(userResponseDTO);
   }
 
@@ -136,16 +136,8 @@ public class UserController {
   @PostMapping("/follow/{targetUserId}")
   public ResponseEntity<?> followUser(
       @PathVariable Long targetUserId,
-      Authentication authentication) {
+      @CurrentUserId Long currentUserId) {
     try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-      }
-
-      // Lấy userId từ authentication (người đang đăng nhập)
-      String username = authentication.getName();
-      Long currentUserId = userService.getUserIdByUsername(username);
-
       userService.followUser(currentUserId, targetUserId);
 
       return ResponseEntity.ok().body(Map.of(
@@ -163,16 +155,8 @@ public class UserController {
   @PostMapping("/unfollow/{targetUserId}")
   public ResponseEntity<?> unfollowUser(
       @PathVariable Long targetUserId,
-      Authentication authentication) {
+      @CurrentUserId Long currentUserId) {
     try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-      }
-
-      // Lấy userId từ authentication (người đang đăng nhập)
-      String username = authentication.getName();
-      Long currentUserId = userService.getUserIdByUsername(username);
-
       userService.unfollowUser(currentUserId, targetUserId);
 
       return ResponseEntity.ok().body(Map.of(
@@ -190,15 +174,8 @@ public class UserController {
   @GetMapping("/is-following/{targetUserId}")
   public ResponseEntity<?> isFollowing(
       @PathVariable Long targetUserId,
-      Authentication authentication) {
+      @CurrentUserId Long currentUserId) {
     try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-      }
-
-      String username = authentication.getName();
-      Long currentUserId = userService.getUserIdByUsername(username);
-
       boolean isFollowing = userService.isFollowing(currentUserId, targetUserId);
       return ResponseEntity.ok(Map.of("isFollowing", isFollowing));
     } catch (Exception e) {
@@ -209,17 +186,12 @@ public class UserController {
 
   // Danh sách người theo dõi user hiện tại
   @GetMapping("/followers")
-  public ResponseEntity<?> getCurrentUserFollowers(Authentication authentication) {
+  public ResponseEntity<?> getCurrentUserFollowers(
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size,
+      @CurrentUserId Long userId) {
     try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-            .body(Map.of("error", "User not authenticated"));
-      }
-
-      String username = authentication.getName();
-      Long userId = userService.getUserIdByUsername(username);
-
-      List<UserResponseDTO> followers = userService.getFollowers(userId);
+      Page<UserResponseDTO> followers = userService.getFollowers(userId, PageRequest.of(page, size));
       return ResponseEntity.ok(followers);
 
     } catch (Exception e) {
@@ -230,25 +202,67 @@ public class UserController {
 
   // Danh sách user mà user hiện tại đang theo dõi
   @GetMapping("/following")
-  public ResponseEntity<?> getCurrentUserFollowing(Authentication authentication) {
+  public ResponseEntity<?> getCurrentUserFollowing(
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size,
+      @CurrentUserId Long userId) {
+    try {
+      Page<UserResponseDTO> following = userService.getFollowing(userId, PageRequest.of(page, size));
+      return ResponseEntity.ok(following);
+
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(Map.of("error", "Failed to get following"));
+    }
+  }
+
+  // Followers theo cursor, chỉ trả về thông tin rút gọn
+  @GetMapping("/followers/cursor")
+  public ResponseEntity<?> getCurrentUserFollowersByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size,
+      @CurrentUserId Long userId) {
     try {
-      if (authentication == null || !authentication.isAuthenticated()) {
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-            .body(Map.of("error", "User not authenticated"));
-      }
+      CursorPageResponseDTO<FollowUserView> followers = userService.getFollowersByCursor(userId, cursor, size);
+      return ResponseEntity.ok(followers);
 
-      String username = authentication.getName();
-      Long userId = userService.getUserIdByUsername(username);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(Map.of("error", "Failed to get followers"));
+    }
+  }
 
-      List<UserResponseDTO> following = userService.getFollowing(userId);
+  // Following theo cursor, chỉ trả về thông tin rút gọn
+  @GetMapping("/following/cursor")
+  public ResponseEntity<?> getCurrentUserFollowingByCursor(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size,
+      @CurrentUserId Long userId) {
+    try {
+      CursorPageResponseDTO<FollowUserView> following = userService.getFollowingByCursor(userId, cursor, size);
       return ResponseEntity.ok(following);
 
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body(Map.of("error", "Failed to get following"));
     }
   }
 
+  // Xuất toàn bộ followers dạng NDJSON, ghi dần ra response thay vì dựng cả danh sách trong bộ nhớ.
+  // Timeout riêng cho export (timeout async mặc định của container quá ngắn cho user nhiều follower)
+  @GetMapping(value = "/followers/export", produces = "application/x-ndjson")
+  public WebAsyncTask<Void> exportCurrentUserFollowers(@CurrentUserId Long userId, HttpServletResponse response) {
+    response.setContentType("application/x-ndjson");
+    return new WebAsyncTask<>(exportTimeoutMs, () -> {
+      userService.exportFollowers(userId, response.getOutputStream());
+      return null;
+    });
+  }
+
   @GetMapping("/{userId}/follower-count")
   public ResponseEntity<Integer> getFollowerCount(@PathVariable Long userId) {
     Integer count = userService.getFollowerCount(userId);
@@ -264,20 +278,26 @@ public class UserController {
   // 🔍 SEARCH
 
   @GetMapping("/search")
-  public ResponseEntity<List<UserResponseDTO>> searchUsers(@RequestParam String keyword) {
-    List<UserResponseDTO> users = userService.searchUsers(keyword);
+  public ResponseEntity<List<UserResponseDTO>> searchUsers(@RequestParam String keyword,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size) {
+    List<UserResponseDTO> users = userService.searchUsers(keyword, page, size);
     return ResponseEntity.ok(users);
   }
 
   @GetMapping("/search/username")
-  public ResponseEntity<List<UserResponseDTO>> searchByUsername(@RequestParam String username) {
-    List<UserResponseDTO> users = userService.searchByUsername(username);
+  public ResponseEntity<List<UserResponseDTO>> searchByUsername(@RequestParam String username,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size) {
+    List<UserResponseDTO> users = userService.searchByUsername(username, page, size);
     return ResponseEntity.ok(users);
   }
 
   @GetMapping("/search/fullname")
-  public ResponseEntity<List<UserResponseDTO>> searchByFullName(@RequestParam String fullName) {
-    List<UserResponseDTO> users = userService.searchByFullName(fullName);
+  public ResponseEntity<List<UserResponseDTO>> searchByFullName(@RequestParam String fullName,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size) {
+    List<UserResponseDTO> users = userService.searchByFullName(fullName, page, size);
     return ResponseEntity.ok(users);
   }
 
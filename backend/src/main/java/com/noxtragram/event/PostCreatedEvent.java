@@ -0,0 +1,48 @@
+package com.noxtragram.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Phát ra sau khi một bài post mới được lưu (xử lý sau khi transaction commit)
+ */
+public class PostCreatedEvent {
+
+  private final Long postId;
+  private final Long authorId;
+  private final LocalDateTime createdAt;
+  private final List<String> hashtags;
+
+  public PostCreatedEvent(Long postId, Long authorId, LocalDateTime createdAt, List<String> hashtags) {
+    this.postId = postId;
+    this.authorId = authorId;
+    this.createdAt = createdAt;
+    this.hashtags = hashtags != null ? List.copyOf(hashtags) : List.of();
+  }
+
+  public Long getPostId() {
+    return postId;
+  }
+
+  public Long getAuthorId() {
+    return authorId;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public List<String> getHashtags() {
+    return hashtags;
+  }
+
+  @Override
+  public String toString() {
+    return "PostCreatedEvent{" +
+        "postId=" + postId +
+        ", authorId=" + authorId +
+        ", createdAt=" + createdAt +
+        ", hashtags=" + hashtags +
+        '}';
+  }
+}
@@ -4,11 +4,18 @@ import com.noxtragram.model.dto.request.UserRequestDTO;
 import com.noxtragram.model.dto.request.UserUpdateRequestDTO;
 import com.noxtragram.model.dto.response.UserResponseDTO;
 import com.noxtragram.model.entity.User;
+import com.noxtragram.service.UserCounterService;
 import org.springframework.stereotype.Component;
 
 @Component
 public class UserMapper {
 
+  private final UserCounterService userCounterService;
+
+  public UserMapper(UserCounterService userCounterService) {
+    this.userCounterService = userCounterService;
+  }
+
   public User toEntity(UserRequestDTO userRequestDTO) {
     if (userRequestDTO == null) {
       return null;
@@ -44,9 +51,8 @@ public class UserMapper {
     userResponseDTO.setIsPrivate(user.getIsPrivate());
     userResponseDTO.setIsVerified(user.getIsVerified());
     userResponseDTO.setIsActive(user.getIsActive());
-    userResponseDTO.setPostCount(user.getPostCount());
-    userResponseDTO.setFollowerCount(user.getFollowerCount());
-    userResponseDTO.setFollowingCount(user.getFollowingCount());
+    // Số trong cột cộng phần delta chưa flush, không query thêm
+    userCounterService.fill(user, userResponseDTO);
     userResponseDTO.setCreatedAt(user.getCreatedAt());
     userResponseDTO.setUpdatedAt(user.getUpdatedAt());
 
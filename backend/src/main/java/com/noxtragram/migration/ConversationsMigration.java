@@ -0,0 +1,95 @@
+package com.noxtragram.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tạo dòng conversations cho các cặp user đã nhắn tin trước khi có bảng này.
+ *
+ * Chạy một lần khi khởi động theo từng khoảng id của user nhỏ hơn trong cặp: mỗi lô gom tin nhắn theo cặp,
+ * lấy tin cuối còn hiển thị và đếm chưa đọc của từng phía. {@code INSERT IGNORE} bỏ qua cặp đã có
+ * nhờ unique (user_low_id, user_high_id), nên không ghi đè dòng đang được cập nhật trực tiếp. Chạy xong
+ * thì ghi marker vào data_migrations để các lần khởi động sau không quét lại bảng messages.
+ */
+@Component
+public class ConversationsMigration implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConversationsMigration.class);
+
+  private static final String MIGRATION_NAME = "conversations-backfill";
+
+  private static final String MAX_USER_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM users";
+
+  // Hai nhánh UNION ALL theo phía low (sender hoặc receiver) để mỗi nhánh dùng được index của cột đó.
+  // Phía low là người nhận khi receiver_id < sender_id, giống ConversationService.onMessageSent.
+  // last_message_at lấy created_at của chính tin cuối còn hiển thị; cặp không còn tin hiển thị
+  // thì giữ thời điểm tin mới nhất như khi thu hồi tin cuối.
+  private static final String BACKFILL_SQL = "INSERT IGNORE INTO conversations (user_low_id, user_high_id, " +
+      "last_message_id, last_message_at, low_unread_count, high_unread_count, created_at) " +
+      "SELECT p.low_id, p.high_id, p.last_id, COALESCE(lm.created_at, p.latest_at), " +
+      "p.low_unread, p.high_unread, p.first_at " +
+      "FROM (SELECT t.low_id, t.high_id, MAX(CASE WHEN t.visible THEN t.id END) AS last_id, " +
+      "MAX(t.created_at) AS latest_at, MIN(t.created_at) AS first_at, " +
+      "SUM(t.low_unread) AS low_unread, SUM(t.high_unread) AS high_unread " +
+      "FROM (" +
+      "SELECT m.sender_id AS low_id, m.receiver_id AS high_id, m.id, m.created_at, " +
+      "NOT (m.is_deleted_for_sender = true AND m.is_deleted_for_receiver = true) AS visible, " +
+      "0 AS low_unread, " +
+      "CASE WHEN m.is_read = false AND m.is_deleted_for_receiver = false THEN 1 ELSE 0 END AS high_unread " +
+      "FROM messages m WHERE m.sender_id >= ? AND m.sender_id < ? AND m.sender_id <= m.receiver_id " +
+      "UNION ALL " +
+      "SELECT m.receiver_id, m.sender_id, m.id, m.created_at, " +
+      "NOT (m.is_deleted_for_sender = true AND m.is_deleted_for_receiver = true), " +
+      "CASE WHEN m.is_read = false AND m.is_deleted_for_receiver = false THEN 1 ELSE 0 END, " +
+      "0 " +
+      "FROM messages m WHERE m.receiver_id >= ? AND m.receiver_id < ? AND m.receiver_id < m.sender_id" +
+      ") t GROUP BY t.low_id, t.high_id) p " +
+      "LEFT JOIN messages lm ON lm.id = p.last_id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final MigrationMarkers migrationMarkers;
+  private final boolean enabled;
+  private final int batchSize;
+
+  public ConversationsMigration(JdbcTemplate jdbcTemplate,
+      MigrationMarkers migrationMarkers,
+      @Value("${app.migration.conversations.enabled:true}") boolean enabled,
+      @Value("${app.migration.conversations.batch-size:1000}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.migrationMarkers = migrationMarkers;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!enabled || migrationMarkers.isCompleted(MIGRATION_NAME)) {
+      return;
+    }
+
+    backfill();
+    migrationMarkers.markCompleted(MIGRATION_NAME);
+  }
+
+  private void backfill() {
+    Long maxUserId = jdbcTemplate.queryForObject(MAX_USER_ID_SQL, Long.class);
+    if (maxUserId == null || maxUserId == 0) {
+      return;
+    }
+
+    int migrated = 0;
+    for (long from = 1; from <= maxUserId; from += batchSize) {
+      long to = from + batchSize;
+      migrated += jdbcTemplate.update(BACKFILL_SQL, from, to, from, to);
+    }
+
+    if (migrated > 0) {
+      logger.info("Backfilled {} conversations from messages", migrated);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.noxtragram.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chuyển quan hệ follow từ bảng cũ user_follows (ManyToMany User.following) sang bảng follows.
+ *
+ * Chạy một lần khi khởi động theo từng khoảng follower_id. {@code INSERT IGNORE} bỏ qua cặp đã có
+ * nhờ unique (follower_id, following_id). Chạy xong thì ghi marker vào data_migrations: user_follows
+ * không còn được cập nhật, chép lại ở lần khởi động sau sẽ khôi phục các follow đã bị unfollow.
+ * Bảng user_follows được giữ nguyên, có thể drop sau khi đã kiểm tra.
+ */
+@Component
+public class FollowsMigration implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(FollowsMigration.class);
+
+  private static final String MIGRATION_NAME = "follows-from-user-follows";
+
+  private static final String TABLE_EXISTS_SQL = "SELECT COUNT(*) FROM information_schema.tables " +
+      "WHERE table_schema = DATABASE() AND table_name = 'user_follows'";
+
+  private static final String MAX_FOLLOWER_ID_SQL = "SELECT COALESCE(MAX(follower_id), 0) FROM user_follows";
+
+  private static final String COPY_SQL = "INSERT IGNORE INTO follows (follower_id, following_id, created_at, " +
+      "is_notifications_enabled) " +
+      "SELECT uf.follower_id, uf.following_id, NOW(), true FROM user_follows uf " +
+      "WHERE uf.follower_id >= ? AND uf.follower_id < ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final MigrationMarkers migrationMarkers;
+  private final boolean enabled;
+  private final int batchSize;
+
+  public FollowsMigration(JdbcTemplate jdbcTemplate,
+      MigrationMarkers migrationMarkers,
+      @Value("${app.migration.follows.enabled:true}") boolean enabled,
+      @Value("${app.migration.follows.batch-size:1000}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.migrationMarkers = migrationMarkers;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!enabled || migrationMarkers.isCompleted(MIGRATION_NAME)) {
+      return;
+    }
+
+    Integer tables = jdbcTemplate.queryForObject(TABLE_EXISTS_SQL, Integer.class);
+    if (tables != null && tables > 0) {
+      copyFollows();
+    }
+    migrationMarkers.markCompleted(MIGRATION_NAME);
+  }
+
+  private void copyFollows() {
+    Long maxFollowerId = jdbcTemplate.queryForObject(MAX_FOLLOWER_ID_SQL, Long.class);
+    if (maxFollowerId == null || maxFollowerId == 0) {
+      return;
+    }
+
+    int migrated = 0;
+    for (long from = 1; from <= maxFollowerId; from += batchSize) {
+      migrated += jdbcTemplate.update(COPY_SQL, from, from + batchSize);
+    }
+
+    if (migrated > 0) {
+      logger.info("Migrated {} follow relationships from user_follows to follows", migrated);
+    }
+  }
+}
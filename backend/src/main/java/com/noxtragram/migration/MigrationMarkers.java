@@ -0,0 +1,37 @@
+package com.noxtragram.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Đánh dấu các migration dữ liệu chỉ được chạy một lần (bảng data_migrations).
+ *
+ * Migration ghi marker sau khi chạy xong toàn bộ; các lần khởi động sau thấy marker thì bỏ qua,
+ * không chép lại dữ liệu cũ đè lên thay đổi đã xảy ra trên bảng mới.
+ */
+@Component
+public class MigrationMarkers {
+
+  private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS data_migrations (" +
+      "name VARCHAR(100) NOT NULL PRIMARY KEY, completed_at DATETIME NOT NULL)";
+
+  private static final String EXISTS_SQL = "SELECT COUNT(*) FROM data_migrations WHERE name = ?";
+
+  private static final String MARK_SQL = "INSERT IGNORE INTO data_migrations (name, completed_at) VALUES (?, NOW())";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public MigrationMarkers(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public boolean isCompleted(String name) {
+    jdbcTemplate.execute(CREATE_TABLE_SQL);
+    Integer count = jdbcTemplate.queryForObject(EXISTS_SQL, Integer.class, name);
+    return count != null && count > 0;
+  }
+
+  public void markCompleted(String name) {
+    jdbcTemplate.update(MARK_SQL, name);
+  }
+}
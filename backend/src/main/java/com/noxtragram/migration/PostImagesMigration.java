@@ -0,0 +1,102 @@
+package com.noxtragram.migration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chuyển ảnh từ bảng cũ post_images sang cột posts.image_urls (mảng JSON).
+ *
+ * Chạy khi khởi động, theo từng lô post_id, chỉ ghi vào những post chưa có image_urls nên chạy
+ * lại nhiều lần vẫn an toàn. Bảng post_images được giữ nguyên, có thể drop sau khi đã kiểm tra.
+ */
+@Component
+public class PostImagesMigration implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(PostImagesMigration.class);
+
+  private static final String TABLE_EXISTS_SQL = "SELECT COUNT(*) FROM information_schema.tables " +
+      "WHERE table_schema = DATABASE() AND table_name = 'post_images'";
+
+  // Lấy lô post_id tiếp theo còn ảnh chưa chuyển
+  private static final String NEXT_POST_IDS_SQL = "SELECT DISTINCT pi.post_id FROM post_images pi " +
+      "JOIN posts p ON p.id = pi.post_id " +
+      "WHERE pi.post_id > ? AND p.image_urls IS NULL " +
+      "ORDER BY pi.post_id LIMIT ?";
+
+  private static final String UPDATE_SQL = "UPDATE posts SET image_urls = ? WHERE id = ? AND image_urls IS NULL";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final int batchSize;
+
+  public PostImagesMigration(JdbcTemplate jdbcTemplate,
+      ObjectMapper objectMapper,
+      @Value("${app.migration.post-images.enabled:true}") boolean enabled,
+      @Value("${app.migration.post-images.batch-size:500}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws JsonProcessingException {
+    if (!enabled) {
+      return;
+    }
+
+    Integer tables = jdbcTemplate.queryForObject(TABLE_EXISTS_SQL, Integer.class);
+    if (tables == null || tables == 0) {
+      return;
+    }
+
+    long lastPostId = 0;
+    int migrated = 0;
+    while (true) {
+      List<Long> postIds = jdbcTemplate.queryForList(NEXT_POST_IDS_SQL, Long.class, lastPostId, batchSize);
+      if (postIds.isEmpty()) {
+        break;
+      }
+
+      Map<Long, List<String>> imagesByPost = loadImages(postIds);
+      List<Object[]> batchArgs = new ArrayList<>();
+      for (Map.Entry<Long, List<String>> entry : imagesByPost.entrySet()) {
+        batchArgs.add(new Object[] { objectMapper.writeValueAsString(entry.getValue()), entry.getKey() });
+      }
+      jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+
+      migrated += batchArgs.size();
+      lastPostId = postIds.get(postIds.size() - 1);
+    }
+
+    if (migrated > 0) {
+      logger.info("Migrated images of {} posts from post_images to posts.image_urls", migrated);
+    }
+  }
+
+  private Map<Long, List<String>> loadImages(List<Long> postIds) {
+    String placeholders = String.join(",", postIds.stream().map(id -> "?").toList());
+    Map<Long, List<String>> imagesByPost = new LinkedHashMap<>();
+    jdbcTemplate.query("SELECT post_id, image_url FROM post_images WHERE post_id IN (" + placeholders + ") " +
+        "ORDER BY post_id, image_order",
+        rs -> {
+          imagesByPost.computeIfAbsent(rs.getLong("post_id"), id -> new ArrayList<>())
+              .add(rs.getString("image_url"));
+        },
+        postIds.toArray());
+    return imagesByPost;
+  }
+}
@@ -0,0 +1,45 @@
+package com.noxtragram.model.converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lưu List<String> thành một mảng JSON trong một cột, đọc cùng dòng chính không cần query phụ
+ */
+@Converter
+public class StringListConverter implements AttributeConverter<List<String>, String> {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final TypeReference<List<String>> LIST_TYPE = new TypeReference<>() {
+  };
+
+  @Override
+  public String convertToDatabaseColumn(List<String> values) {
+    if (values == null || values.isEmpty()) {
+      return null;
+    }
+    try {
+      return OBJECT_MAPPER.writeValueAsString(values);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Could not serialize list", e);
+    }
+  }
+
+  @Override
+  public List<String> convertToEntityAttribute(String json) {
+    if (json == null || json.isBlank()) {
+      return new ArrayList<>();
+    }
+    try {
+      return new ArrayList<>(OBJECT_MAPPER.readValue(json, LIST_TYPE));
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Could not deserialize list", e);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.noxtragram.model.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Một trang kết quả theo cursor: không có tổng số bản ghi, chỉ có cursor của trang kế tiếp
+ */
+public class CursorPageResponseDTO<T> {
+  private List<T> content;
+  private String nextCursor;
+  private boolean hasNext;
+
+  // Constructors
+  public CursorPageResponseDTO() {
+    this.content = new ArrayList<>();
+  }
+
+  public CursorPageResponseDTO(List<T> content, String nextCursor, boolean hasNext) {
+    this.content = content != null ? content : new ArrayList<>();
+    this.nextCursor = nextCursor;
+    this.hasNext = hasNext;
+  }
+
+  // Getters and Setters
+  public List<T> getContent() {
+    return content;
+  }
+
+  public void setContent(List<T> content) {
+    this.content = content;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  public boolean isHasNext() {
+    return hasNext;
+  }
+
+  public void setHasNext(boolean hasNext) {
+    this.hasNext = hasNext;
+  }
+
+  public int getSize() {
+    return content.size();
+  }
+}
@@ -0,0 +1,103 @@
+package com.noxtragram.model.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cuộc trò chuyện giữa hai user, một dòng cho mỗi cặp theo thứ tự chuẩn (user_low_id < user_high_id).
+ *
+ * Tin nhắn cuối và số tin chưa đọc của từng phía được ghi sẵn ở đây để dựng inbox bằng một query
+ * trên index, không phải tìm tin cuối và đếm chưa đọc theo từng người. Các cột này chỉ được ghi bằng
+ * SQL trong ConversationService khi gửi / đọc / xóa / thu hồi tin nhắn.
+ */
+@Entity
+@Table(name = "conversations",
+    uniqueConstraints = @UniqueConstraint(columnNames = { "user_low_id", "user_high_id" }),
+    indexes = {
+        // Inbox "mới nhất trước" theo từng phía của cặp
+        @Index(name = "idx_conversations_low_recent", columnList = "user_low_id, last_message_at, id"),
+        @Index(name = "idx_conversations_high_recent", columnList = "user_high_id, last_message_at, id")
+    })
+public class Conversation {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  // 🔗 Cặp user, luôn user_low_id < user_high_id
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_low_id", nullable = false)
+  private User userLow;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_high_id", nullable = false)
+  private User userHigh;
+
+  // 📨 Tin nhắn cuối: chỉ ghi bằng SQL trong ConversationService
+  @Column(name = "last_message_id", updatable = false)
+  private Long lastMessageId;
+
+  @Column(name = "last_message_at", updatable = false)
+  private LocalDateTime lastMessageAt;
+
+  // 📊 Số tin chưa đọc của từng phía: chỉ ghi bằng delta SQL
+  @Column(name = "low_unread_count", updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+  private Integer lowUnreadCount = 0;
+
+  @Column(name = "high_unread_count", updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+  private Integer highUnreadCount = 0;
+
+  // ⏰ Timestamps
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  private LocalDateTime createdAt;
+
+  // 🏗️ Constructors
+  public Conversation() {
+  }
+
+  // 📊 Business Methods
+
+  /**
+   * Số tin chưa đọc của một user trong cuộc trò chuyện
+   */
+  public Integer getUnreadCountFor(Long userId) {
+    return userLow.getId().equals(userId) ? lowUnreadCount : highUnreadCount;
+  }
+
+  // 🔄 Getters
+  public Long getId() {
+    return id;
+  }
+
+  public User getUserLow() {
+    return userLow;
+  }
+
+  public User getUserHigh() {
+    return userHigh;
+  }
+
+  public Long getLastMessageId() {
+    return lastMessageId;
+  }
+
+  public LocalDateTime getLastMessageAt() {
+    return lastMessageAt;
+  }
+
+  public Integer getLowUnreadCount() {
+    return lowUnreadCount;
+  }
+
+  public Integer getHighUnreadCount() {
+    return highUnreadCount;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+}
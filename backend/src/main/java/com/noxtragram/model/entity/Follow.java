@@ -6,7 +6,14 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "follows", uniqueConstraints = @UniqueConstraint(columnNames = { "follower_id", "following_id" }))
+@Table(name = "follows",
+    uniqueConstraints = @UniqueConstraint(columnNames = { "follower_id", "following_id" }),
+    indexes = {
+        @Index(name = "idx_follows_following_follower", columnList = "following_id, follower_id"),
+        // Keyset pagination "mới follow trước" theo từng phía
+        @Index(name = "idx_follows_following_recent", columnList = "following_id, id"),
+        @Index(name = "idx_follows_follower_recent", columnList = "follower_id, id")
+    })
 public class Follow {
 
   @Id
@@ -18,7 +18,8 @@ public class Hashtag {
   @Column(name = "name", unique = true, nullable = false)
   private String name;
 
-  @Column(name = "post_count")
+  // Chỉ ghi bằng delta SQL trong HashtagCountService, không ghi đè từ entity
+  @Column(name = "post_count", updatable = false)
   private Integer postCount = 0;
 
   @CreationTimestamp
@@ -0,0 +1,70 @@
+package com.noxtragram.model.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sự kiện realtime chờ gửi, được ghi cùng transaction với tin nhắn. MessageOutboxService nhận
+ * dòng (đặt claimed_until), gửi sau khi commit rồi xóa dòng.
+ */
+@Entity
+@Table(name = "message_outbox")
+public class MessageOutbox {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "recipient_id", nullable = false)
+  private Long recipientId;
+
+  @Column(name = "destination", nullable = false, length = 100)
+  private String destination;
+
+  // Payload đã serialize sẵn thành JSON
+  @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+  private String payload;
+
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  private LocalDateTime createdAt;
+
+  // Dispatcher đã nhận dòng này tới thời điểm này (giờ của DB); hết hạn mà chưa xóa thì gửi lại
+  @Column(name = "claimed_until")
+  private LocalDateTime claimedUntil;
+
+  public MessageOutbox() {
+  }
+
+  public MessageOutbox(Long recipientId, String destination, String payload) {
+    this.recipientId = recipientId;
+    this.destination = destination;
+    this.payload = payload;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getRecipientId() {
+    return recipientId;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  public String getPayload() {
+    return payload;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public LocalDateTime getClaimedUntil() {
+    return claimedUntil;
+  }
+}
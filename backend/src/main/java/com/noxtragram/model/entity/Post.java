@@ -1,5 +1,6 @@
 package com.noxtragram.model.entity;
 
+import com.noxtragram.model.converter.StringListConverter;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
 import org.hibernate.annotations.CreationTimestamp;
@@ -24,10 +25,9 @@ public class Post {
   @Column(name = "image_url")
   private String imageUrl; // URL ảnh chính
 
-  @ElementCollection(fetch = FetchType.EAGER) // Thay đổi thành EAGER
-  @CollectionTable(name = "post_images", joinColumns = @JoinColumn(name = "post_id"))
-  @Column(name = "image_url")
-  @OrderColumn(name = "image_order") // Thêm dòng này để đảm bảo thứ tự ảnh
+  // Danh sách ảnh lưu dạng mảng JSON ngay trên dòng posts (giữ thứ tự, không cần query phụ)
+  @Convert(converter = StringListConverter.class)
+  @Column(name = "image_urls", columnDefinition = "TEXT")
   private List<String> imageUrls = new ArrayList<>(); // Cho multiple images
 
   @Column(name = "video_url")
@@ -36,7 +36,8 @@ public class Post {
   @Column(name = "location")
   private String location;
 
-  @Column(name = "like_count")
+  // Chỉ được cập nhật bằng UPDATE cộng dồn của LikeCounterService, JPA không ghi đè khi save post
+  @Column(name = "like_count", updatable = false)
   private Integer likeCount = 0;
 
   @Column(name = "comment_count")
@@ -19,6 +19,9 @@ import java.util.Set;
 @Table(name = "users", uniqueConstraints = {
     @UniqueConstraint(columnNames = "email"),
     @UniqueConstraint(columnNames = "username")
+}, indexes = {
+    // UserSearchIndex đồng bộ định kỳ các user có updated_at mới
+    @Index(name = "idx_users_updated_at", columnList = "updated_at")
 })
 public class User {
 
@@ -65,14 +68,14 @@ public class User {
   @Column(name = "is_active")
   private Boolean isActive = true;
 
-  // 📊 Thống kê (có thể tính toán, không lưu trực tiếp)
-  @Transient
+  // 📊 Thống kê: chỉ ghi bằng delta SQL trong UserCounterService, không ghi đè từ entity
+  @Column(name = "post_count", updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
   private Integer postCount = 0;
 
-  @Transient
+  @Column(name = "follower_count", updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
   private Integer followerCount = 0;
 
-  @Transient
+  @Column(name = "following_count", updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
   private Integer followingCount = 0;
 
   // ⏰ Timestamps
@@ -86,15 +89,7 @@ public class User {
 
   // 🔗 Relationships
 
-  // 👥 Followers/Following (Many-to-Many self-referencing)
-  @ManyToMany
-  @JoinTable(name = "user_follows", joinColumns = @JoinColumn(name = "follower_id"), inverseJoinColumns = @JoinColumn(name = "following_id"))
-  @JsonIgnore // 👈 không serialize following trực tiếp
-  private Set<User> following = new HashSet<>();
-
-  @ManyToMany(mappedBy = "following")
-  @JsonIgnore // 👈 không serialize followers trực tiếp
-  private Set<User> followers = new HashSet<>();
+  // 👥 Followers/Following: bảng follows, truy cập qua FollowRepository
 
   @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
   @JsonIgnore // 👈 tránh vòng lặp user → post → user
@@ -139,33 +134,6 @@ public class User {
 
   // 📊 Business Methods
 
-  /**
-   * Kiểm tra user A có follow user B không
-   */
-  public boolean isFollowing(User user) {
-    return this.following.contains(user);
-  }
-
-  /**
-   * Follow một user
-   */
-  public void follow(User userToFollow) {
-    if (!this.isFollowing(userToFollow) && !this.equals(userToFollow)) {
-      this.following.add(userToFollow);
-      userToFollow.getFollowers().add(this);
-    }
-  }
-
-  /**
-   * Unfollow một user
-   */
-  public void unfollow(User userToUnfollow) {
-    if (this.isFollowing(userToUnfollow)) {
-      this.following.remove(userToUnfollow);
-      userToUnfollow.getFollowers().remove(this);
-    }
-  }
-
   /**
    * Kiểm tra user có phải là admin không
    */
@@ -311,22 +279,6 @@ public class User {
     this.updatedAt = updatedAt;
   }
 
-  public Set<User> getFollowing() {
-    return following;
-  }
-
-  public void setFollowing(Set<User> following) {
-    this.following = following;
-  }
-
-  public Set<User> getFollowers() {
-    return followers;
-  }
-
-  public void setFollowers(Set<User> followers) {
-    this.followers = followers;
-  }
-
   public List<Post> getPosts() {
     return posts;
   }
@@ -0,0 +1,44 @@
+package com.noxtragram.repository;
+
+import com.noxtragram.model.entity.Conversation;
+import com.noxtragram.repository.projection.ConversationView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+  // Inbox trước cursor (lastMessageAt, id), mới nhất trước. Mỗi nhánh UNION chạy trên index
+  // (user_*_id, last_message_at, id) của phía mình và chỉ lấy :limit dòng, sau đó mới join users
+  // và tin nhắn cuối theo khóa chính
+  @Query(value = "SELECT c.id AS id, c.last_message_at AS lastMessageAt, c.unread_count AS unreadCount, " +
+      "u.id AS partnerId, u.username AS partnerUsername, u.profile_picture AS partnerProfilePicture, " +
+      "u.full_name AS partnerFullName, u.is_verified AS partnerIsVerified, " +
+      "c.last_message_id AS lastMessageId, m.sender_id AS lastMessageSenderId, " +
+      "m.content AS lastMessageContent, m.message_type AS lastMessageType " +
+      "FROM (" +
+      "(SELECT id, user_high_id AS partner_id, low_unread_count AS unread_count, last_message_id, last_message_at " +
+      "FROM conversations WHERE user_low_id = :userId AND last_message_at IS NOT NULL AND " +
+      "(last_message_at < :lastMessageAt OR (last_message_at = :lastMessageAt AND id < :id)) " +
+      "ORDER BY last_message_at DESC, id DESC LIMIT :limit) " +
+      "UNION ALL " +
+      "(SELECT id, user_low_id AS partner_id, high_unread_count AS unread_count, last_message_id, last_message_at " +
+      "FROM conversations WHERE user_high_id = :userId AND last_message_at IS NOT NULL AND " +
+      "(last_message_at < :lastMessageAt OR (last_message_at = :lastMessageAt AND id < :id)) " +
+      "ORDER BY last_message_at DESC, id DESC LIMIT :limit)" +
+      ") c " +
+      "JOIN users u ON u.id = c.partner_id " +
+      "LEFT JOIN messages m ON m.id = c.last_message_id AND NOT (" +
+      "(m.sender_id = :userId AND m.is_deleted_for_sender = true) OR " +
+      "(m.receiver_id = :userId AND m.is_deleted_for_receiver = true)) " +
+      "ORDER BY c.last_message_at DESC, c.id DESC LIMIT :limit", nativeQuery = true)
+  List<ConversationView> findInboxBefore(@Param("userId") Long userId,
+      @Param("lastMessageAt") LocalDateTime lastMessageAt,
+      @Param("id") Long id,
+      @Param("limit") int limit);
+}
@@ -2,13 +2,17 @@ package com.noxtragram.repository;
 
 import com.noxtragram.model.entity.Follow;
 import com.noxtragram.model.entity.User;
+import com.noxtragram.repository.projection.FollowUserView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +45,62 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
   @Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :userId")
   List<Long> findFollowerUserIds(@Param("userId") Long userId);
 
+  // Cạnh follow (follower_id, following_id) của nhiều user, tối đa perUser cạnh mới nhất mỗi user.
+  // LATERAL + LIMIT: mỗi user chỉ đọc perUser dòng đầu của index (follower_id, id), không đánh số
+  // mọi cạnh như ROW_NUMBER(). Người được follow đã khóa / ngừng hoạt động bị loại luôn ở đây.
+  @Query(value = "SELECT r.follower_id, r.following_id FROM users u, LATERAL (" +
+      "SELECT f.follower_id, f.following_id FROM follows f WHERE f.follower_id = u.id " +
+      "ORDER BY f.id DESC LIMIT :perUser) r " +
+      "JOIN users t ON t.id = r.following_id AND t.is_active = true " +
+      "WHERE u.id IN (:userIds)", nativeQuery = true)
+  List<Object[]> findRecentFollowingPairs(@Param("userIds") Collection<Long> userIds, @Param("perUser") int perUser);
+
+  // Kiểm tra follow theo ID, một lần tra unique index (follower_id, following_id)
+  boolean existsByFollowerIdAndFollowingId(Long followerId, Long followingId);
+
+  // Xóa follow theo ID, trả về số dòng bị xóa
+  @Modifying
+  @Query("DELETE FROM Follow f WHERE f.follower.id = :followerId AND f.following.id = :followingId")
+  int deleteByFollowerIdAndFollowingId(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+  // Đếm số followers mà không load collection
+  long countByFollowingId(Long followingId);
+
+  // Trang followers của user, mới follow trước
+  @Query(value = "SELECT f.follower FROM Follow f WHERE f.following.id = :userId ORDER BY f.id DESC",
+      countQuery = "SELECT COUNT(f) FROM Follow f WHERE f.following.id = :userId")
+  Page<User> findFollowersOf(@Param("userId") Long userId, Pageable pageable);
+
+  // Trang những người user đang follow, mới follow trước
+  @Query(value = "SELECT f.following FROM Follow f WHERE f.follower.id = :userId ORDER BY f.id DESC",
+      countQuery = "SELECT COUNT(f) FROM Follow f WHERE f.follower.id = :userId")
+  Page<User> findFollowingOf(@Param("userId") Long userId, Pageable pageable);
+
+  // ============ Keyset pagination theo f.id giảm dần (mới follow trước) ============
+
+  // Followers trước cursor, chỉ lấy các cột của projection
+  @Query("SELECT f.id AS followId, f.createdAt AS followedAt, u.id AS id, u.username AS username, " +
+      "u.profilePicture AS profilePicture, u.fullName AS fullName, u.isVerified AS isVerified " +
+      "FROM Follow f JOIN f.follower u WHERE f.following.id = :userId AND f.id < :beforeId ORDER BY f.id DESC")
+  Slice<FollowUserView> findFollowersBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId,
+      Pageable pageable);
+
+  // Những người user đang follow trước cursor
+  @Query("SELECT f.id AS followId, f.createdAt AS followedAt, u.id AS id, u.username AS username, " +
+      "u.profilePicture AS profilePicture, u.fullName AS fullName, u.isVerified AS isVerified " +
+      "FROM Follow f JOIN f.following u WHERE f.follower.id = :userId AND f.id < :beforeId ORDER BY f.id DESC")
+  Slice<FollowUserView> findFollowingBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId,
+      Pageable pageable);
+
+  // Lấy ID followers theo từng lô (dùng cho fan-out feed)
+  @Query("SELECT f.follower.id FROM Follow f WHERE f.following.id = :userId ORDER BY f.follower.id ASC")
+  Slice<Long> findFollowerIds(@Param("userId") Long userId, Pageable pageable);
+
+  // Lọc ra những user trong danh sách mà user đang follow
+  @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId AND f.following.id IN :candidateIds")
+  List<Long> findFollowingIdsAmong(@Param("userId") Long userId,
+      @Param("candidateIds") Collection<Long> candidateIds);
+
   // Tìm các follow relationship mà thông báo được bật
   Page<Follow> findByFollowerAndIsNotificationsEnabledTrue(User follower, Pageable pageable);
 }
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,4 +47,19 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
 
   // Kiểm tra user đã like post nào chưa
   boolean existsByUserAndPostId(User user, Long postId);
+
+  // Kiểm tra like theo ID (không cần load Post và User)
+  boolean existsByPostIdAndUserId(Long postId, Long userId);
+
+  // Lấy ID các post trong danh sách mà user đã like (dùng cho cả trang feed)
+  @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+  List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
+  // Đếm số post user đã like (chọn kích thước membership index)
+  long countByUserId(Long userId);
+
+  // ID các post user đã like theo lô, tăng dần theo post id, chạy trên unique (user_id, post_id)
+  @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id > :afterPostId ORDER BY l.post.id ASC")
+  List<Long> findPostIdsByUserIdAfter(@Param("userId") Long userId, @Param("afterPostId") Long afterPostId,
+      Pageable pageable);
 }
@@ -0,0 +1,9 @@
+package com.noxtragram.repository;
+
+import com.noxtragram.model.entity.MessageOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageOutboxRepository extends JpaRepository<MessageOutbox, Long> {
+}
@@ -5,12 +5,14 @@ import com.noxtragram.model.entity.MessageType;
 import com.noxtragram.model.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -84,6 +86,20 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
   void markAllMessagesAsRead(@Param("receiver") User receiver,
       @Param("sender") User sender);
 
+  // ✅ Đánh dấu đã đọc một tin đang tính chưa đọc; trả về 0 nếu request khác đã đọc / xóa trước
+  @Modifying
+  @Query("UPDATE Message m SET m.isRead = true WHERE m.id = :messageId AND m.receiver = :receiver AND " +
+      "m.isRead = false AND m.isDeletedForReceiver = false")
+  int markAsReadIfUnread(@Param("messageId") Long messageId,
+      @Param("receiver") User receiver);
+
+  // 🗑️ Soft delete cho receiver một tin đang tính chưa đọc; trả về 0 nếu tin đã đọc / đã xóa
+  @Modifying
+  @Query("UPDATE Message m SET m.isDeletedForReceiver = true WHERE m.id = :messageId AND m.receiver = :receiver AND " +
+      "m.isRead = false AND m.isDeletedForReceiver = false")
+  int softDeleteUnreadForReceiver(@Param("messageId") Long messageId,
+      @Param("receiver") User receiver);
+
   // 🗑️ Soft delete cho sender
   @Modifying
   @Query("UPDATE Message m SET m.isDeletedForSender = true WHERE m.id = :messageId AND m.sender = :user")
@@ -131,4 +147,19 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
   List<Message> findFileMessagesBetweenUsers(@Param("user1") User user1,
       @Param("user2") User user2,
       @Param("currentUser") User currentUser);
+
+  // 📜 Lịch sử tin nhắn theo cursor (createdAt, id) - không OFFSET, không COUNT
+  @Query("SELECT m FROM Message m WHERE " +
+      "((m.sender = :user1 AND m.receiver = :user2) OR " +
+      "(m.sender = :user2 AND m.receiver = :user1)) AND " +
+      "m.isDeletedForSender = false AND " +
+      "(m.receiver = :currentUser OR m.isDeletedForReceiver = false) AND " +
+      "(m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+      "ORDER BY m.createdAt DESC, m.id DESC")
+  Slice<Message> findMessagesBetweenUsersBefore(@Param("user1") User user1,
+      @Param("user2") User user2,
+      @Param("currentUser") User currentUser,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
 }
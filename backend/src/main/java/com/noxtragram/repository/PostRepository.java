@@ -4,11 +4,14 @@ import com.noxtragram.model.entity.Post;
 import com.noxtragram.model.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +27,8 @@ public interface PostRepository extends JpaRepository<Post, Long> {
   // Tìm post theo ID và chưa bị xóa
   Optional<Post> findByIdAndIsDeletedFalse(Long id);
 
+  boolean existsByIdAndIsDeletedFalse(Long id);
+
   @Query("SELECT p FROM Post p JOIN p.hashtags h WHERE h.name = :hashtag AND p.isDeleted = false ORDER BY p.createdAt DESC")
   Page<Post> findByHashtagName(@Param("hashtag") String hashtag, Pageable pageable);
 
@@ -64,4 +69,61 @@ public interface PostRepository extends JpaRepository<Post, Long> {
   // Tìm post đã like bởi user
   @Query("SELECT p FROM Post p JOIN p.likes l WHERE l.user.id = :userId AND p.isDeleted = false ORDER BY l.createdAt DESC")
   Page<Post> findLikedPostsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+  // Lấy nhiều post theo ID (chưa bị xóa)
+  List<Post> findByIdInAndIsDeletedFalse(Collection<Long> ids);
+
+  // Lấy (id, createdAt) các post gần đây của một nhóm tác giả (fan-out-on-read)
+  @Query("SELECT p.id, p.createdAt FROM Post p WHERE p.user.id IN :userIds AND p.isDeleted = false ORDER BY p.createdAt DESC")
+  List<Object[]> findRecentPostRefsByUserIds(@Param("userIds") Collection<Long> userIds, Pageable pageable);
+
+  // Lấy (id, createdAt) để dựng lại home timeline: post của chính user và những người đang follow
+  @Query("SELECT p.id, p.createdAt FROM Post p WHERE p.isDeleted = false AND (p.user.id = :userId OR p.user.id IN " +
+      "(SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId)) ORDER BY p.createdAt DESC")
+  List<Object[]> findTimelinePostRefs(@Param("userId") Long userId, Pageable pageable);
+
+  // Lấy (postId, tên hashtag) cho cả trang post trong một query
+  @Query("SELECT p.id, h.name FROM Post p JOIN p.hashtags h WHERE p.id IN :postIds")
+  List<Object[]> findHashtagNamesByPostIds(@Param("postIds") Collection<Long> postIds);
+
+  // ID các hashtag đang gắn với post, để tính chênh lệch post_count khi sửa / xóa
+  @Query("SELECT h.id FROM Post p JOIN p.hashtags h WHERE p.id = :postId")
+  List<Long> findHashtagIdsByPostId(@Param("postId") Long postId);
+
+  // ============ Keyset pagination (không OFFSET, không COUNT) ============
+
+  // Tất cả post trước cursor (createdAt, id)
+  @Query("SELECT p FROM Post p WHERE p.isDeleted = false AND " +
+      "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+      "ORDER BY p.createdAt DESC, p.id DESC")
+  Slice<Post> findPostsBefore(@Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  // Post của một user trước cursor (createdAt, id)
+  @Query("SELECT p FROM Post p WHERE p.user.id = :userId AND p.isDeleted = false AND " +
+      "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+      "ORDER BY p.createdAt DESC, p.id DESC")
+  Slice<Post> findUserPostsBefore(@Param("userId") Long userId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  // Post theo hashtag trước cursor (createdAt, id)
+  @Query("SELECT p FROM Post p JOIN p.hashtags h WHERE h.name = :hashtag AND p.isDeleted = false AND " +
+      "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+      "ORDER BY p.createdAt DESC, p.id DESC")
+  Slice<Post> findHashtagPostsBefore(@Param("hashtag") String hashtag,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  // (id, createdAt) các post của nhóm tác giả trước cursor (merge feed của tài khoản lớn)
+  @Query("SELECT p.id, p.createdAt FROM Post p WHERE p.user.id IN :userIds AND p.isDeleted = false AND " +
+      "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+      "ORDER BY p.createdAt DESC, p.id DESC")
+  List<Object[]> findRecentPostRefsByUserIdsBefore(@Param("userIds") Collection<Long> userIds,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Pageable pageable);
 }
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,4 +52,20 @@ public interface PostSaveRepository extends JpaRepository<PostSave, Long> {
 
   // Kiểm tra user đã lưu post chưa
   boolean existsByUserAndPostId(User user, Long postId);
+
+  // Kiểm tra đã lưu theo ID (không cần load Post và User)
+  boolean existsByPostIdAndUserId(Long postId, Long userId);
+
+  // Lấy ID các post trong danh sách mà user đã lưu (dùng cho cả trang feed)
+  @Query("SELECT ps.post.id FROM PostSave ps WHERE ps.user.id = :userId AND ps.post.id IN :postIds")
+  List<Long> findSavedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
+  // Đếm số post user đã lưu (chọn kích thước membership index)
+  long countByUserId(Long userId);
+
+  // ID các post user đã lưu theo lô, tăng dần theo post id, chạy trên unique (user_id, post_id)
+  @Query("SELECT ps.post.id FROM PostSave ps WHERE ps.user.id = :userId AND ps.post.id > :afterPostId " +
+      "ORDER BY ps.post.id ASC")
+  List<Long> findPostIdsByUserIdAfter(@Param("userId") Long userId, @Param("afterPostId") Long afterPostId,
+      Pageable pageable);
 }
@@ -1,11 +1,17 @@
 package com.noxtragram.repository;
 
+import com.noxtragram.model.dto.Summary.UserSummaryDTO;
 import com.noxtragram.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,9 +33,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
   @Query("SELECT u FROM User u WHERE u.isActive = true")
   List<User> findAllActiveUsers();
 
-  @Query("SELECT u.followers FROM User u WHERE u.id = :userId")
-  List<User> findFollowersByUserId(@Param("userId") Long userId);
+  // Lấy thông tin tóm tắt của nhiều tác giả trong một query
+  @Query("SELECT new com.noxtragram.model.dto.Summary.UserSummaryDTO(u.id, u.username, u.profilePicture, u.fullName) " +
+      "FROM User u WHERE u.id IN :userIds")
+  List<UserSummaryDTO> findSummariesByIds(@Param("userIds") Collection<Long> userIds);
 
-  @Query("SELECT u.following FROM User u WHERE u.id = :userId")
-  List<User> findFollowingByUserId(@Param("userId") Long userId);
+  // ID user active có nhiều follower nhất, theo cột follower_count (đã gồm các delta đã flush)
+  @Query("SELECT u.id FROM User u WHERE u.isActive = true ORDER BY u.followerCount DESC, u.id ASC")
+  List<Long> findMostFollowedActiveUserIds(Pageable pageable);
+
+  // Đổi hash mật khẩu nếu hash hiện tại vẫn là expectedPassword (không ghi đè lần đổi chạy song song).
+  // Transaction riêng: BCrypt đã chạy xong trước đó, ngoài transaction
+  @Transactional
+  @Modifying
+  @Query("UPDATE User u SET u.password = :password, u.updatedAt = :updatedAt " +
+      "WHERE u.id = :userId AND u.password = :expectedPassword")
+  int updatePassword(@Param("userId") Long userId,
+      @Param("expectedPassword") String expectedPassword,
+      @Param("password") String password,
+      @Param("updatedAt") LocalDateTime updatedAt);
+
+  // Đặt hash mật khẩu vô điều kiện (reset mật khẩu)
+  @Transactional
+  @Modifying
+  @Query("UPDATE User u SET u.password = :password, u.updatedAt = :updatedAt WHERE u.id = :userId")
+  int setPassword(@Param("userId") Long userId,
+      @Param("password") String password,
+      @Param("updatedAt") LocalDateTime updatedAt);
+
+  @Transactional
+  @Modifying
+  @Query("UPDATE User u SET u.updatedAt = :updatedAt WHERE u.id = :userId")
+  int touchUpdatedAt(@Param("userId") Long userId, @Param("updatedAt") LocalDateTime updatedAt);
 }
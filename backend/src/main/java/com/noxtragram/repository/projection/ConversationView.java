@@ -0,0 +1,35 @@
+package com.noxtragram.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng trong inbox: người trò chuyện, tin nhắn cuối và số tin chưa đọc của user hiện tại.
+ * Nội dung tin cuối là null nếu user hiện tại đã xóa tin đó.
+ */
+public interface ConversationView {
+
+  // ID của dòng conversations, cùng lastMessageAt làm cursor phân trang
+  Long getId();
+
+  LocalDateTime getLastMessageAt();
+
+  Integer getUnreadCount();
+
+  Long getPartnerId();
+
+  String getPartnerUsername();
+
+  String getPartnerProfilePicture();
+
+  String getPartnerFullName();
+
+  Boolean getPartnerIsVerified();
+
+  Long getLastMessageId();
+
+  Long getLastMessageSenderId();
+
+  String getLastMessageContent();
+
+  String getLastMessageType();
+}
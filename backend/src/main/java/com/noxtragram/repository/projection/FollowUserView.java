@@ -0,0 +1,28 @@
+package com.noxtragram.repository.projection;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thông tin rút gọn của một user trong danh sách followers / following.
+ * Chỉ các cột này được SELECT, không load entity User (email, phone, bio...).
+ */
+public interface FollowUserView {
+
+  // ID của dòng follows, làm cursor phân trang
+  @JsonIgnore
+  Long getFollowId();
+
+  LocalDateTime getFollowedAt();
+
+  Long getId();
+
+  String getUsername();
+
+  String getProfilePicture();
+
+  String getFullName();
+
+  Boolean getIsVerified();
+}
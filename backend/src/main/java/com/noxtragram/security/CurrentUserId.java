@@ -0,0 +1,22 @@
+package com.noxtragram.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Inject id của user đang đăng nhập (lấy từ JWT principal, không query DB)
+ * vào tham số Long của controller.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUserId {
+
+  /**
+   * true: chưa đăng nhập sẽ trả về 401; false: tham số nhận null
+   */
+  boolean required() default true;
+}
@@ -0,0 +1,46 @@
+package com.noxtragram.security;
+
+import com.noxtragram.service.implementation.UserDetailsImpl;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+@Component
+public class CurrentUserIdArgumentResolver implements HandlerMethodArgumentResolver {
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.hasParameterAnnotation(CurrentUserId.class)
+        && Long.class.equals(parameter.getParameterType());
+  }
+
+  @Override
+  public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+    Long userId = currentUserId();
+    if (userId == null && parameter.getParameterAnnotation(CurrentUserId.class).required()) {
+      throw new AuthenticationCredentialsNotFoundException("User not authenticated");
+    }
+    return userId;
+  }
+
+  /**
+   * Id lấy thẳng từ principal do JwtAuthTokenFilter dựng; anonymous trả về null
+   */
+  public static Long currentUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()) {
+      return null;
+    }
+    if (authentication.getPrincipal() instanceof UserDetailsImpl principal) {
+      return principal.getId();
+    }
+    return null;
+  }
+}
@@ -1,14 +1,22 @@
 package com.noxtragram.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.service.TokenRevocationService;
 import com.noxtragram.service.implementation.*;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -17,17 +25,45 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 @Component
 public class JwtAuthTokenFilter extends OncePerRequestFilter {
 
   private static final Logger logger = LoggerFactory.getLogger(JwtAuthTokenFilter.class);
 
-  @Autowired
-  private JwtUtils jwtUtils;
-
-  @Autowired
-  private UserDetailsServiceImpl userDetailsService;
+  private static final String CACHE_NAME = "jwt.principals";
+
+  private final JwtUtils jwtUtils;
+  private final UserDetailsServiceImpl userDetailsService;
+  private final TokenRevocationService tokenRevocationService;
+  // Cache principal theo token: bỏ qua verify chữ ký trong TTL
+  private final Cache<String, CachedPrincipal> principals;
+
+  public JwtAuthTokenFilter(JwtUtils jwtUtils,
+      UserDetailsServiceImpl userDetailsService,
+      TokenRevocationService tokenRevocationService,
+      MeterRegistry meterRegistry,
+      @Value("${app.jwt.principal-cache.enabled:true}") boolean cacheEnabled,
+      @Value("${app.jwt.principal-cache.maximum-size:10000}") long maximumSize,
+      @Value("${app.jwt.principal-cache.ttl:30s}") Duration ttl) {
+    this.jwtUtils = jwtUtils;
+    this.userDetailsService = userDetailsService;
+    this.tokenRevocationService = tokenRevocationService;
+    if (cacheEnabled) {
+      this.principals = Caffeine.newBuilder()
+          .maximumSize(maximumSize)
+          .expireAfterWrite(ttl)
+          .recordStats()
+          .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, principals, CACHE_NAME);
+    } else {
+      this.principals = null;
+    }
+  }
 
   @Override
   protected void doFilterInternal(HttpServletRequest request,
@@ -36,18 +72,18 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
     try {
       String jwt = parseJwt(request);
 
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
+      if (jwt != null) {
+        UserDetails userDetails = resolvePrincipal(jwt);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (userDetails != null) {
+          UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails,
+              null, userDetails.getAuthorities());
+          authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null,
-            userDetails.getAuthorities());
-        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+          SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-
-        logger.debug("Set authentication for user: {}", username);
+          logger.debug("Set authentication for user: {}", userDetails.getUsername());
+        }
       }
     } catch (Exception e) {
       logger.error("Cannot set user authentication: {}", e.getMessage());
@@ -56,6 +92,58 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private UserDetails resolvePrincipal(String jwt) {
+    long now = System.currentTimeMillis();
+    if (principals != null) {
+      CachedPrincipal cached = principals.getIfPresent(jwt);
+      if (cached != null) {
+        // TTL cache có thể dài hơn phần đời còn lại của token; thu hồi được kiểm tra mỗi request
+        if (cached.expiresAt() > now
+            && !tokenRevocationService.isRevoked(cached.jti(), cached.principal().getId(), cached.issuedAt())) {
+          return cached.principal();
+        }
+        principals.invalidate(jwt);
+        return null;
+      }
+    }
+
+    Claims claims = jwtUtils.parseClaims(jwt);
+    if (claims == null) {
+      return null;
+    }
+
+    UserDetailsImpl principal = buildPrincipal(claims);
+    // Ngoài logout theo jti: xóa, khóa tài khoản hay đổi mật khẩu thu hồi mọi token cũ của user
+    if (tokenRevocationService.isRevoked(claims.getId(), principal.getId(), claims.getIssuedAt())) {
+      return null;
+    }
+    if (principals != null && claims.getExpiration() != null) {
+      principals.put(jwt, new CachedPrincipal(principal, claims.getId(), claims.getIssuedAt(),
+          claims.getExpiration().getTime()));
+    }
+    return principal;
+  }
+
+  /**
+   * Dựng principal trực tiếp từ claims, không query DB
+   */
+  private UserDetailsImpl buildPrincipal(Claims claims) {
+    Number userId = claims.get(JwtUtils.CLAIM_USER_ID, Number.class);
+    if (userId == null) {
+      // Token cũ phát hành trước khi có claim uid: fallback về DB cho tới khi hết hạn
+      UserDetails loaded = userDetailsService.loadUserByUsername(claims.getSubject());
+      return (UserDetailsImpl) loaded;
+    }
+
+    Collection<?> roles = claims.get(JwtUtils.CLAIM_ROLES, Collection.class);
+    List<GrantedAuthority> authorities = roles == null ? List.of()
+        : roles.stream()
+            .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+            .toList();
+
+    return new UserDetailsImpl(userId.longValue(), claims.getSubject(), null, null, authorities);
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
@@ -65,4 +153,7 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
 
     return null;
   }
+
+  private record CachedPrincipal(UserDetailsImpl principal, String jti, Date issuedAt, long expiresAt) {
+  }
 }
@@ -1,5 +1,6 @@
 package com.noxtragram.security;
 
+import com.noxtragram.model.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
@@ -8,47 +9,62 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtUtils {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-  @Value("${app.jwt.secret}")
-  private String jwtSecret;
+  public static final String CLAIM_USER_ID = "uid";
+  public static final String CLAIM_ROLES = "roles";
 
-  @Value("${app.jwt.expirationMs}")
-  private int jwtExpirationMs;
+  private final int jwtExpirationMs;
+  // Key HMAC và parser dựng một lần, dùng chung cho mọi request (thread-safe)
+  private final SecretKey signingKey;
+  private final JwtParser parser;
 
-  private SecretKey getSigningKey() {
-    return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+  public JwtUtils(@Value("${app.jwt.secret}") String jwtSecret,
+      @Value("${app.jwt.expirationMs}") int jwtExpirationMs) {
+    this.jwtExpirationMs = jwtExpirationMs;
+    this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    this.parser = Jwts.parserBuilder()
+        .setSigningKey(signingKey)
+        .build();
   }
 
-  public String generateJwtToken(String username) {
+  /**
+   * Sinh token chứa sẵn userId và roles để filter không phải query DB
+   */
+  public String generateJwtToken(User user) {
+    List<String> roles = user.getRoles().stream()
+        .map(role -> role.getName().name())
+        .toList();
+    return generateJwtToken(user.getId(), user.getUsername(), roles);
+  }
+
+  public String generateJwtToken(Long userId, String username, Collection<String> roles) {
+    Date now = new Date();
     return Jwts.builder()
+        .setId(UUID.randomUUID().toString())
         .setSubject(username)
-        .setIssuedAt(new Date())
-        .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+        .claim(CLAIM_USER_ID, userId)
+        .claim(CLAIM_ROLES, roles)
+        .setIssuedAt(now)
+        .setExpiration(new Date(now.getTime() + jwtExpirationMs))
+        .signWith(signingKey, SignatureAlgorithm.HS256)
         .compact();
   }
 
-  public String getUserNameFromJwtToken(String token) {
-    return Jwts.parserBuilder()
-        .setSigningKey(getSigningKey())
-        .build()
-        .parseClaimsJws(token)
-        .getBody()
-        .getSubject();
-  }
-
-  public boolean validateJwtToken(String authToken) {
+  /**
+   * Parse và verify token một lần duy nhất; trả về null nếu token không hợp lệ
+   */
+  public Claims parseClaims(String token) {
     try {
-      Jwts.parserBuilder()
-          .setSigningKey(getSigningKey())
-          .build()
-          .parseClaimsJws(authToken);
-      return true;
+      return parser.parseClaimsJws(token).getBody();
     } catch (SecurityException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
     } catch (MalformedJwtException e) {
@@ -59,7 +75,18 @@ public class JwtUtils {
       logger.error("JWT token is unsupported: {}", e.getMessage());
     } catch (IllegalArgumentException e) {
       logger.error("JWT claims string is empty: {}", e.getMessage());
+    } catch (JwtException e) {
+      logger.error("Invalid JWT: {}", e.getMessage());
     }
-    return false;
+    return null;
+  }
+
+  public String getUserNameFromJwtToken(String token) {
+    Claims claims = parseClaims(token);
+    return claims != null ? claims.getSubject() : null;
+  }
+
+  public boolean validateJwtToken(String authToken) {
+    return parseClaims(authToken) != null;
   }
 }
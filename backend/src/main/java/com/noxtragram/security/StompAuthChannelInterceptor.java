@@ -0,0 +1,77 @@
+package com.noxtragram.security;
+
+import com.noxtragram.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Xác thực STOMP CONNECT bằng header Authorization: Bearer <jwt>.
+ *
+ * Principal của session có name = userId, nên convertAndSendToUser(userId, ...) tìm đúng session
+ * (kể cả trên instance khác khi dùng broker relay hoặc Redis fan-out). userId cũng được lưu vào
+ * session attributes cho các handler @MessageMapping.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+  private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+  private final JwtUtils jwtUtils;
+  private final TokenRevocationService tokenRevocationService;
+
+  public StompAuthChannelInterceptor(JwtUtils jwtUtils, TokenRevocationService tokenRevocationService) {
+    this.jwtUtils = jwtUtils;
+    this.tokenRevocationService = tokenRevocationService;
+  }
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel channel) {
+    StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+    if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+      return message;
+    }
+
+    String header = accessor.getFirstNativeHeader("Authorization");
+    if (header == null || !header.startsWith("Bearer ")) {
+      return message;
+    }
+
+    Claims claims = jwtUtils.parseClaims(header.substring(7));
+    if (claims == null) {
+      return message;
+    }
+    Number userId = claims.get(JwtUtils.CLAIM_USER_ID, Number.class);
+    if (userId == null) {
+      logger.debug("STOMP CONNECT with token missing uid claim for {}", claims.getSubject());
+      return message;
+    }
+    if (tokenRevocationService.isRevoked(claims.getId(), userId.longValue(), claims.getIssuedAt())) {
+      return message;
+    }
+
+    Collection<?> roles = claims.get(JwtUtils.CLAIM_ROLES, Collection.class);
+    List<SimpleGrantedAuthority> authorities = roles == null ? List.of()
+        : roles.stream().map(role -> new SimpleGrantedAuthority(role.toString())).toList();
+    accessor.setUser(new UsernamePasswordAuthenticationToken(String.valueOf(userId.longValue()), null, authorities));
+
+    Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+    if (sessionAttributes != null) {
+      sessionAttributes.put("userId", userId.longValue());
+    }
+    return message;
+  }
+}
@@ -0,0 +1,146 @@
+package com.noxtragram.service;
+
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
+import com.noxtragram.model.entity.Message;
+import com.noxtragram.repository.ConversationRepository;
+import com.noxtragram.repository.projection.ConversationView;
+import com.noxtragram.util.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Giữ bảng conversations đồng bộ với messages.
+ *
+ * Mọi thay đổi là một câu SQL nguyên tử trên dòng của cặp (upsert khi gửi, delta khi đọc / xóa),
+ * chạy trong transaction của tin nhắn nên không lệch với bảng messages khi rollback. Hai request
+ * cùng gửi vào một cặp chỉ xếp hàng trên khóa dòng đó, không đọc rồi ghi lại.
+ */
+@Service
+public class ConversationService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConversationService.class);
+
+  // Chỉ tiến tin cuối khi message id mới hơn; last_message_at phải gán trước last_message_id
+  private static final String MESSAGE_SENT_SQL = "INSERT INTO conversations (user_low_id, user_high_id, " +
+      "last_message_id, last_message_at, low_unread_count, high_unread_count, created_at) " +
+      "VALUES (?, ?, ?, ?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE " +
+      "last_message_at = IF(last_message_id IS NULL OR VALUES(last_message_id) > last_message_id, " +
+      "VALUES(last_message_at), last_message_at), " +
+      "last_message_id = IF(last_message_id IS NULL OR VALUES(last_message_id) > last_message_id, " +
+      "VALUES(last_message_id), last_message_id), " +
+      "low_unread_count = low_unread_count + VALUES(low_unread_count), " +
+      "high_unread_count = high_unread_count + VALUES(high_unread_count)";
+
+  private static final String RESET_UNREAD_SQL = "UPDATE conversations SET %s = 0 " +
+      "WHERE user_low_id = ? AND user_high_id = ?";
+
+  private static final String DECREMENT_UNREAD_SQL = "UPDATE conversations SET %1$s = GREATEST(%1$s - 1, 0) " +
+      "WHERE user_low_id = ? AND user_high_id = ?";
+
+  // Tin cuối còn hiển thị với ít nhất một phía, dùng khi tin cuối bị thu hồi
+  private static final String LATEST_VISIBLE_MESSAGE_SQL = "SELECT id, created_at FROM messages " +
+      "WHERE ((sender_id = ? AND receiver_id = ?) OR (sender_id = ? AND receiver_id = ?)) " +
+      "AND NOT (is_deleted_for_sender = true AND is_deleted_for_receiver = true) " +
+      "ORDER BY id DESC LIMIT 1";
+
+  private static final String REPLACE_LAST_MESSAGE_SQL = "UPDATE conversations SET last_message_id = ? " +
+      "WHERE user_low_id = ? AND user_high_id = ? AND last_message_id = ?";
+
+  private final ConversationRepository conversationRepository;
+  private final JdbcTemplate jdbcTemplate;
+
+  public ConversationService(ConversationRepository conversationRepository, JdbcTemplate jdbcTemplate) {
+    this.conversationRepository = conversationRepository;
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Tin nhắn mới: tạo cuộc trò chuyện nếu chưa có, tiến tin cuối và tăng chưa đọc của người nhận
+   */
+  public void onMessageSent(Message message) {
+    Long senderId = message.getSender().getId();
+    Long receiverId = message.getReceiver().getId();
+    LocalDateTime sentAt = message.getCreatedAt() != null ? message.getCreatedAt() : LocalDateTime.now();
+    boolean receiverIsLow = receiverId < senderId;
+
+    jdbcTemplate.update(MESSAGE_SENT_SQL,
+        lowId(senderId, receiverId), highId(senderId, receiverId),
+        message.getId(), sentAt,
+        receiverIsLow ? 1 : 0, receiverIsLow ? 0 : 1);
+  }
+
+  /**
+   * Reader đã đọc hết tin nhắn từ partner
+   */
+  public void onConversationRead(Long readerId, Long partnerId) {
+    jdbcTemplate.update(String.format(RESET_UNREAD_SQL, unreadColumn(readerId, partnerId)),
+        lowId(readerId, partnerId), highId(readerId, partnerId));
+  }
+
+  /**
+   * Một tin chưa đọc không còn tính cho người nhận (đã đọc, bị xóa hoặc thu hồi).
+   * Chỉ gọi khi câu UPDATE có điều kiện trên tin đó vừa đổi được dòng, để mỗi tin chỉ bị trừ một lần.
+   */
+  public void onUnreadMessageCleared(Message message) {
+    Long receiverId = message.getReceiver().getId();
+    Long senderId = message.getSender().getId();
+    jdbcTemplate.update(String.format(DECREMENT_UNREAD_SQL, unreadColumn(receiverId, senderId)),
+        lowId(receiverId, senderId), highId(receiverId, senderId));
+  }
+
+  /**
+   * Tin nhắn bị thu hồi: nếu là tin cuối thì lùi về tin trước đó còn hiển thị
+   */
+  public void onMessageRecalled(Message message) {
+    Long senderId = message.getSender().getId();
+    Long receiverId = message.getReceiver().getId();
+
+    List<Long> latest = jdbcTemplate.query(LATEST_VISIBLE_MESSAGE_SQL, (rs, rowNum) -> rs.getLong("id"),
+        senderId, receiverId, receiverId, senderId);
+    Long replacementId = latest.isEmpty() ? null : latest.get(0);
+
+    // last_message_at giữ nguyên để cuộc trò chuyện không nhảy vị trí trong inbox
+    int updated = jdbcTemplate.update(REPLACE_LAST_MESSAGE_SQL, replacementId,
+        lowId(senderId, receiverId), highId(senderId, receiverId), message.getId());
+    if (updated > 0) {
+      logger.debug("Last message of conversation {}-{} replaced by {}", senderId, receiverId, replacementId);
+    }
+  }
+
+  /**
+   * Inbox của user theo cursor, cuộc trò chuyện có tin mới nhất trước
+   */
+  public CursorPageResponseDTO<ConversationView> getInbox(Long userId, String cursor, int requestedSize) {
+    PageCursor pageCursor = PageCursor.decode(cursor);
+    int size = PageCursor.clampSize(requestedSize);
+    // Lấy dư một dòng để biết còn trang sau không
+    List<ConversationView> rows = conversationRepository.findInboxBefore(userId,
+        pageCursor.getCreatedAt(), pageCursor.getId(), size + 1);
+
+    boolean hasNext = rows.size() > size;
+    List<ConversationView> content = hasNext ? rows.subList(0, size) : rows;
+    String nextCursor = null;
+    if (hasNext) {
+      ConversationView last = content.get(content.size() - 1);
+      nextCursor = PageCursor.of(last.getLastMessageAt(), last.getId()).encode();
+    }
+    return new CursorPageResponseDTO<>(content, nextCursor, hasNext);
+  }
+
+  private static Long lowId(Long a, Long b) {
+    return Math.min(a, b);
+  }
+
+  private static Long highId(Long a, Long b) {
+    return Math.max(a, b);
+  }
+
+  private static String unreadColumn(Long userId, Long partnerId) {
+    return userId < partnerId ? "low_unread_count" : "high_unread_count";
+  }
+}
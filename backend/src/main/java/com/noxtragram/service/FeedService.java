@@ -0,0 +1,362 @@
+package com.noxtragram.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.event.PostCreatedEvent;
+import com.noxtragram.repository.PostRepository;
+import com.noxtragram.repository.FollowRepository;
+import com.noxtragram.util.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Home timeline được materialize sẵn cho từng user trong Redis (sorted set: postId -> createdAt).
+ *
+ * Bài post mới được đẩy (fan-out-on-write) vào inbox có giới hạn của từng follower. Tác giả có
+ * quá nhiều followers thì không fan-out mà được merge lúc đọc (fan-out-on-read). Inbox chưa có
+ * trong Redis (user mới, hết TTL) sẽ được dựng lại từ DB ở lần đọc đầu tiên.
+ */
+@Service
+public class FeedService {
+
+  private static final Logger logger = LoggerFactory.getLogger(FeedService.class);
+
+  private static final String TIMELINE_KEY_PREFIX = "feed:timeline:";
+  private static final String CELEBRITIES_KEY = "feed:celebrities";
+
+  // Phần tử giữ chỗ để timeline rỗng vẫn được coi là đã dựng (không query DB lại mỗi lần đọc)
+  private static final String PLACEHOLDER_MEMBER = "0";
+
+  // Chỉ đẩy vào timeline đã được dựng; timeline chưa có sẽ được dựng lại đầy đủ khi đọc.
+  // Placeholder (score 0) luôn ở rank 0 nên cắt từ rank 1: giữ placeholder và ARGV[3] post mới nhất
+  private static final RedisScript<Long> PUSH_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+      "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+          "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) " +
+          "redis.call('ZREMRANGEBYRANK', KEYS[1], 1, -(tonumber(ARGV[3]) + 1)) " +
+          "return 1 end " +
+          "return 0",
+      Long.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final FollowRepository followRepository;
+  private final PostRepository postRepository;
+  private final int inboxSize;
+  private final long fanoutThreshold;
+  private final int fanoutBatchSize;
+  private final Duration timelineTtl;
+  // Tài khoản lớn mà user đang follow: tránh SMEMBERS + query DB ở mỗi lần đọc feed
+  private final Cache<Long, List<Long>> followedCelebrities;
+
+  public FeedService(StringRedisTemplate redisTemplate,
+      FollowRepository followRepository,
+      PostRepository postRepository,
+      @Value("${app.feed.inbox-size:800}") int inboxSize,
+      @Value("${app.feed.fanout.threshold:10000}") long fanoutThreshold,
+      @Value("${app.feed.fanout.batch-size:500}") int fanoutBatchSize,
+      @Value("${app.feed.timeline-ttl:7d}") Duration timelineTtl,
+      @Value("${app.feed.celebrities.cache-ttl:60s}") Duration celebritiesCacheTtl,
+      @Value("${app.feed.celebrities.cache-maximum-size:100000}") long celebritiesCacheMaximumSize) {
+    this.redisTemplate = redisTemplate;
+    this.followRepository = followRepository;
+    this.postRepository = postRepository;
+    this.inboxSize = inboxSize;
+    this.fanoutThreshold = fanoutThreshold;
+    this.fanoutBatchSize = fanoutBatchSize;
+    this.timelineTtl = timelineTtl;
+    this.followedCelebrities = Caffeine.newBuilder()
+        .maximumSize(celebritiesCacheMaximumSize)
+        .expireAfterWrite(celebritiesCacheTtl)
+        .build();
+  }
+
+  /**
+   * Fan-out bài post mới vào inbox của followers (chạy sau commit, trên executor riêng)
+   */
+  @Async("feedFanoutExecutor")
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+  public void onPostCreated(PostCreatedEvent event) {
+    try {
+      String member = event.getPostId().toString();
+      double score = toScore(event.getCreatedAt());
+
+      // Tác giả luôn thấy bài của chính mình
+      pushToTimelines(List.of(event.getAuthorId()), member, score);
+
+      long followerCount = followRepository.countByFollowingId(event.getAuthorId());
+      if (followerCount > fanoutThreshold) {
+        // Tài khoản lớn: không ghi vào từng inbox, follower sẽ merge lúc đọc
+        redisTemplate.opsForSet().add(CELEBRITIES_KEY, event.getAuthorId().toString());
+        logger.debug("Skip fan-out for post {} ({} followers)", event.getPostId(), followerCount);
+        return;
+      }
+
+      Pageable batchPage = PageRequest.of(0, fanoutBatchSize);
+      Slice<Long> batch;
+      do {
+        batch = followRepository.findFollowerIds(event.getAuthorId(), batchPage);
+        pushToTimelines(batch.getContent(), member, score);
+        batchPage = batch.nextPageable();
+      } while (batch.hasNext());
+
+      logger.debug("Fanned out post {} to {} followers", event.getPostId(), followerCount);
+    } catch (DataAccessException e) {
+      // Timeline sẽ được dựng lại từ DB khi hết TTL, không làm hỏng việc tạo post
+      logger.error("Failed to fan out post {}: {}", event.getPostId(), e.getMessage());
+    }
+  }
+
+  /**
+   * Lấy ID các post trong home timeline của user theo trang.
+   * Chi phí đọc tỉ lệ với kích thước trang, không phụ thuộc số người đang follow.
+   */
+  public Page<Long> getHomeTimeline(Long userId, Pageable pageable) {
+    String key = ensureTimeline(userId);
+
+    long start = pageable.getOffset();
+    long end = start + pageable.getPageSize() - 1;
+    Long size = redisTemplate.opsForZSet().zCard(key);
+    long total = size != null ? Math.max(0, size - 1) : 0;
+
+    List<Long> celebrityIds = findFollowedCelebrities(userId);
+    if (celebrityIds.isEmpty()) {
+      Set<String> members = redisTemplate.opsForZSet().reverseRange(key, start, end);
+      return new PageImpl<>(toPostIds(members), pageable, total);
+    }
+
+    // Merge inbox với bài mới nhất của các tài khoản lớn đang follow
+    List<TypedTuple<String>> merged = new ArrayList<>();
+    Set<TypedTuple<String>> inbox = redisTemplate.opsForZSet().reverseRangeWithScores(key, 0, end);
+    if (inbox != null) {
+      merged.addAll(inbox);
+    }
+    List<Object[]> celebrityPosts = postRepository.findRecentPostRefsByUserIds(celebrityIds,
+        PageRequest.of(0, (int) end + 1));
+    for (Object[] row : celebrityPosts) {
+      merged.add(new DefaultTypedTuple<>(row[0].toString(), toScore((LocalDateTime) row[1])));
+    }
+
+    List<String> members = merged.stream()
+        .sorted(Comparator.comparing(TypedTuple<String>::getScore, Comparator.reverseOrder()))
+        .map(TypedTuple::getValue)
+        .collect(Collectors.toCollection(LinkedHashSet::new))
+        .stream()
+        .skip(start)
+        .limit(pageable.getPageSize())
+        .collect(Collectors.toList());
+
+    return new PageImpl<>(toPostIds(members), pageable, total + celebrityPosts.size());
+  }
+
+  /**
+   * Lấy ID các post trong home timeline đứng sau cursor (createdAt, id).
+   * Cursor được so sánh theo score của sorted set (mili giây), không cần OFFSET. Cursor trang sau
+   * lấy từ entry cuối của timeline, không phụ thuộc post đó còn tồn tại hay không.
+   */
+  public TimelinePage getHomeTimelineBefore(Long userId, PageCursor cursor, int size) {
+    String key = ensureTimeline(userId);
+    double maxScore = cursor.isStart() ? Double.POSITIVE_INFINITY : toScore(cursor.getCreatedAt());
+    int fetchSize = size + 1;
+
+    List<TypedTuple<String>> candidates = new ArrayList<>();
+    long offset = 0;
+    while (candidates.size() < fetchSize) {
+      Set<TypedTuple<String>> chunk = redisTemplate.opsForZSet()
+          .reverseRangeByScoreWithScores(key, Double.NEGATIVE_INFINITY, maxScore, offset, fetchSize);
+      if (chunk == null || chunk.isEmpty()) {
+        break;
+      }
+      for (TypedTuple<String> entry : chunk) {
+        if (PLACEHOLDER_MEMBER.equals(entry.getValue())) {
+          continue;
+        }
+        // Cùng score với cursor: chỉ lấy những post có id nhỏ hơn
+        if (!cursor.isStart() && entry.getScore() != null && entry.getScore() == maxScore
+            && Long.parseLong(entry.getValue()) >= cursor.getId()) {
+          continue;
+        }
+        candidates.add(entry);
+      }
+      if (chunk.size() < fetchSize) {
+        break;
+      }
+      offset += fetchSize;
+    }
+
+    List<Long> celebrityIds = findFollowedCelebrities(userId);
+    if (!celebrityIds.isEmpty()) {
+      List<Object[]> celebrityPosts = postRepository.findRecentPostRefsByUserIdsBefore(celebrityIds,
+          cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, fetchSize));
+      for (Object[] row : celebrityPosts) {
+        candidates.add(new DefaultTypedTuple<>(row[0].toString(), toScore((LocalDateTime) row[1])));
+      }
+    }
+
+    Set<Long> seen = new HashSet<>();
+    List<TypedTuple<String>> entries = candidates.stream()
+        .sorted(Comparator.comparing(TypedTuple<String>::getScore, Comparator.reverseOrder())
+            .thenComparing(entry -> Long.parseLong(entry.getValue()), Comparator.reverseOrder()))
+        .filter(entry -> seen.add(Long.valueOf(entry.getValue())))
+        .limit(fetchSize)
+        .collect(Collectors.toList());
+
+    boolean hasNext = entries.size() > size;
+    List<TypedTuple<String>> content = hasNext ? entries.subList(0, size) : entries;
+    PageCursor nextCursor = null;
+    if (hasNext) {
+      TypedTuple<String> last = content.get(content.size() - 1);
+      nextCursor = PageCursor.of(fromScore(last.getScore()), Long.valueOf(last.getValue()));
+    }
+    return new TimelinePage(content.stream().map(entry -> Long.valueOf(entry.getValue())).toList(), nextCursor);
+  }
+
+  /**
+   * Một trang home timeline: ID post theo thứ tự và cursor trang sau (null nếu hết)
+   */
+  public record TimelinePage(List<Long> postIds, PageCursor nextCursor) {
+  }
+
+  /**
+   * Bỏ timeline đã materialize của user để lần đọc sau dựng lại (ví dụ khi follow/unfollow).
+   * Chờ transaction commit: xóa sớm hơn thì request đọc feed xen giữa sẽ dựng lại timeline từ tập
+   * follow cũ, và TTL được gia hạn mỗi lần đọc nên timeline sai đó không tự hết hạn.
+   */
+  public void invalidateTimelineAfterCommit(Long userId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      invalidateTimeline(userId);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        invalidateTimeline(userId);
+      }
+    });
+  }
+
+  // ============ PRIVATE HELPER METHODS ============
+
+  private void invalidateTimeline(Long userId) {
+    followedCelebrities.invalidate(userId);
+    try {
+      redisTemplate.delete(timelineKey(userId));
+    } catch (DataAccessException e) {
+      logger.error("Failed to invalidate timeline of user {}: {}", userId, e.getMessage());
+    }
+  }
+
+  // Dựng lại timeline nếu chưa có trong Redis và gia hạn TTL
+  private String ensureTimeline(Long userId) {
+    String key = timelineKey(userId);
+    if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+      rebuildTimeline(userId);
+    }
+    redisTemplate.expire(key, timelineTtl);
+    return key;
+  }
+
+  private void rebuildTimeline(Long userId) {
+    String key = timelineKey(userId);
+    List<Object[]> refs = postRepository.findTimelinePostRefs(userId, PageRequest.of(0, inboxSize));
+
+    Set<TypedTuple<String>> tuples = new HashSet<>();
+    tuples.add(new DefaultTypedTuple<>(PLACEHOLDER_MEMBER, 0d));
+    for (Object[] row : refs) {
+      tuples.add(new DefaultTypedTuple<>(row[0].toString(), toScore((LocalDateTime) row[1])));
+    }
+
+    redisTemplate.opsForZSet().add(key, tuples);
+    redisTemplate.expire(key, timelineTtl);
+    logger.debug("Rebuilt timeline of user {} with {} posts", userId, refs.size());
+  }
+
+  private void pushToTimelines(Collection<Long> userIds, String member, double score) {
+    if (userIds.isEmpty()) {
+      return;
+    }
+    String limit = String.valueOf(inboxSize);
+    redisTemplate.executePipelined(new SessionCallback<Object>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Object execute(RedisOperations operations) {
+        for (Long userId : userIds) {
+          operations.execute(PUSH_IF_EXISTS_SCRIPT, List.of(timelineKey(userId)),
+              String.valueOf(score), member, limit);
+        }
+        return null;
+      }
+    });
+  }
+
+  // Cache theo TTL ngắn: instance khác hoặc tài khoản vừa thành "lớn" chỉ bị trễ tối đa một TTL
+  private List<Long> findFollowedCelebrities(Long userId) {
+    return followedCelebrities.get(userId, this::loadFollowedCelebrities);
+  }
+
+  private List<Long> loadFollowedCelebrities(Long userId) {
+    Set<String> celebrities = redisTemplate.opsForSet().members(CELEBRITIES_KEY);
+    if (celebrities == null || celebrities.isEmpty()) {
+      return List.of();
+    }
+    List<Long> candidateIds = celebrities.stream()
+        .map(Long::valueOf)
+        .collect(Collectors.toList());
+    return followRepository.findFollowingIdsAmong(userId, candidateIds);
+  }
+
+  private List<Long> toPostIds(Collection<String> members) {
+    if (members == null) {
+      return List.of();
+    }
+    return members.stream()
+        .filter(member -> !PLACEHOLDER_MEMBER.equals(member))
+        .map(Long::valueOf)
+        .collect(Collectors.toList());
+  }
+
+  private String timelineKey(Long userId) {
+    return TIMELINE_KEY_PREFIX + userId;
+  }
+
+  private double toScore(LocalDateTime createdAt) {
+    LocalDateTime time = createdAt != null ? createdAt : LocalDateTime.now();
+    return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  private LocalDateTime fromScore(double score) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli((long) score), ZoneId.systemDefault());
+  }
+}
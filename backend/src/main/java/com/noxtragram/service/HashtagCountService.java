@@ -0,0 +1,222 @@
+package com.noxtragram.service;
+
+import com.noxtragram.util.DeltaAccumulator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giữ hashtags.post_count đúng với số post chưa xóa đang gắn hashtag.
+ *
+ * Khi tạo / sửa / xóa post, chỉ phần chênh lệch giữa tập hashtag cũ và mới được cộng vào bộ đệm
+ * (sau khi transaction commit). Định kỳ các delta được ghi gộp: mọi hashtag có cùng delta dùng chung
+ * một câu {@code UPDATE ... WHERE id IN (...)}, thường chỉ còn vài câu cho cả nghìn hashtag.
+ * Job đối soát đếm lại từ post_hashtags theo từng khoảng id để sửa sai lệch còn sót.
+ */
+@Service
+public class HashtagCountService {
+
+  private static final Logger logger = LoggerFactory.getLogger(HashtagCountService.class);
+
+  private static final String FLUSH_SQL_PREFIX = "UPDATE hashtags SET post_count = GREATEST(post_count + ?, 0) WHERE id IN (";
+
+  private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM hashtags";
+
+  // Đếm lại post chưa xóa cho các hashtag trong khoảng id [?, ?)
+  private static final String RECONCILE_SQL = "UPDATE hashtags h LEFT JOIN (" +
+      "SELECT ph.hashtag_id, COUNT(*) AS cnt FROM post_hashtags ph " +
+      "JOIN posts p ON p.id = ph.post_id AND p.is_deleted = false " +
+      "WHERE ph.hashtag_id >= ? AND ph.hashtag_id < ? GROUP BY ph.hashtag_id) c ON c.hashtag_id = h.id " +
+      "SET h.post_count = COALESCE(c.cnt, 0) " +
+      "WHERE h.id >= ? AND h.id < ? AND h.post_count <> COALESCE(c.cnt, 0)";
+
+  private static final String RECONCILE_EXCLUDE_SQL_PREFIX = " AND h.id NOT IN (";
+
+  // Flush chờ JDBC: dùng lock thay vì synchronized để không ghim carrier của virtual thread
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final DeltaAccumulator<Long> pendingDeltas = new DeltaAccumulator<>();
+  private final JdbcTemplate jdbcTemplate;
+  private final int flushChunkSize;
+  private final int reconcileChunkSize;
+
+  public HashtagCountService(JdbcTemplate jdbcTemplate,
+      @Value("${app.hashtags.count-flush-chunk-size:500}") int flushChunkSize,
+      @Value("${app.hashtags.reconcile-chunk-size:1000}") int reconcileChunkSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.flushChunkSize = flushChunkSize;
+    this.reconcileChunkSize = reconcileChunkSize;
+  }
+
+  /**
+   * Ghi nhận thay đổi hashtag của một post: +1 cho hashtag mới gắn, -1 cho hashtag bị gỡ
+   */
+  public void recordChange(Collection<Long> oldHashtagIds, Collection<Long> newHashtagIds) {
+    Set<Long> added = new HashSet<>(newHashtagIds);
+    added.removeAll(oldHashtagIds);
+    Set<Long> removed = new HashSet<>(oldHashtagIds);
+    removed.removeAll(newHashtagIds);
+
+    if (added.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+    addAfterCommit(added, removed);
+  }
+
+  public void increment(Collection<Long> hashtagIds) {
+    recordChange(Collections.emptySet(), hashtagIds);
+  }
+
+  public void decrement(Collection<Long> hashtagIds) {
+    recordChange(hashtagIds, Collections.emptySet());
+  }
+
+  /**
+   * Delta chưa được ghi xuống DB của một hashtag
+   */
+  public long getPendingDelta(Long hashtagId) {
+    return pendingDeltas.get(hashtagId);
+  }
+
+  /**
+   * Ghi toàn bộ delta đang chờ, gộp các hashtag có cùng delta vào một câu UPDATE
+   */
+  @Scheduled(fixedDelayString = "${app.hashtags.count-flush-interval:5000}")
+  public void flush() {
+    flushLock.lock();
+    try {
+      Map<Long, Long> deltas = pendingDeltas.drain();
+      if (deltas.isEmpty()) {
+        return;
+      }
+
+      Map<Long, List<Long>> idsByDelta = new TreeMap<>();
+      deltas.forEach((hashtagId, delta) -> idsByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(hashtagId));
+
+      int statements = 0;
+      try {
+        for (Map.Entry<Long, List<Long>> entry : idsByDelta.entrySet()) {
+          List<Long> ids = entry.getValue();
+          for (int from = 0; from < ids.size(); from += flushChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + flushChunkSize, ids.size()));
+            applyDelta(entry.getKey(), chunk);
+            statements++;
+            // Đã ghi: bỏ khỏi phần cần trả lại nếu lô sau lỗi
+            chunk.forEach(deltas::remove);
+          }
+        }
+        logger.debug("Flushed post counts for {} hashtags in {} statements", idsByDelta.values().stream()
+            .mapToInt(List::size).sum(), statements);
+      } catch (DataAccessException e) {
+        // Trả phần chưa ghi lại bộ đệm, lần flush sau ghi tiếp
+        logger.error("Failed to flush hashtag post counts for {} hashtags: {}", deltas.size(), e.getMessage());
+        deltas.forEach(pendingDeltas::add);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Đếm lại post_count của mọi hashtag từ post_hashtags, theo từng khoảng id để không khóa cả bảng.
+   *
+   * Mỗi khoảng chạy dưới flushLock ngay sau một lần flush, và bỏ qua hashtag vẫn còn delta trong
+   * bộ đệm (post commit sau lần flush đó): số đếm lại đã gồm post này, cộng thêm delta sẽ thành
+   * đếm hai lần. Delta chưa flush ở instance khác vẫn có thể lệch trong một chu kỳ flush, lần
+   * đối soát sau sửa lại.
+   */
+  @Scheduled(fixedDelayString = "${app.hashtags.reconcile-interval:21600000}",
+      initialDelayString = "${app.hashtags.reconcile-interval:21600000}")
+  public void reconcile() {
+    Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+    if (maxId == null || maxId == 0) {
+      return;
+    }
+
+    int corrected = 0;
+    for (long from = 1; from <= maxId; from += reconcileChunkSize) {
+      long to = from + reconcileChunkSize;
+      try {
+        corrected += reconcileRange(from, to);
+      } catch (DataAccessException e) {
+        logger.error("Failed to reconcile hashtag post counts for ids [{}, {}): {}", from, to, e.getMessage());
+      }
+    }
+
+    if (corrected > 0) {
+      logger.info("Reconciled post counts of {} hashtags", corrected);
+    }
+  }
+
+  private int reconcileRange(long from, long to) {
+    flushLock.lock();
+    try {
+      // Ghi hết delta trước để không cộng đè lên số vừa đếm lại
+      flush();
+
+      List<Long> pending = pendingDeltas.keys().stream()
+          .filter(id -> id >= from && id < to)
+          .toList();
+      List<Object> args = new ArrayList<>(List.of(from, to, from, to));
+      String sql = RECONCILE_SQL;
+      if (!pending.isEmpty()) {
+        sql += RECONCILE_EXCLUDE_SQL_PREFIX + String.join(", ", Collections.nCopies(pending.size(), "?")) + ")";
+        args.addAll(pending);
+      }
+      return jdbcTemplate.update(sql, args.toArray());
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+
+  private void applyDelta(long delta, List<Long> hashtagIds) {
+    String sql = FLUSH_SQL_PREFIX + String.join(", ", Collections.nCopies(hashtagIds.size(), "?")) + ")";
+    Object[] args = new Object[hashtagIds.size() + 1];
+    args[0] = delta;
+    for (int i = 0; i < hashtagIds.size(); i++) {
+      args[i + 1] = hashtagIds.get(i);
+    }
+    jdbcTemplate.update(sql, args);
+  }
+
+  // Chỉ cộng delta khi transaction ghi post_hashtags đã commit
+  private void addAfterCommit(Set<Long> added, Set<Long> removed) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      add(added, removed);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        add(added, removed);
+      }
+    });
+  }
+
+  private void add(Set<Long> added, Set<Long> removed) {
+    added.forEach(hashtagId -> pendingDeltas.add(hashtagId, 1));
+    removed.forEach(hashtagId -> pendingDeltas.add(hashtagId, -1));
+  }
+}
@@ -0,0 +1,144 @@
+package com.noxtragram.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.model.dto.Summary.PostSummaryDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lưới preview các post mới nhất của hashtag (mặc định 9 post).
+ *
+ * Không load collection Hashtag.posts: mỗi hashtag chỉ đọc tối đa N dòng bằng một subquery LATERAL
+ * đi ngược index (hashtag_id, post_id) của post_hashtags, cả trang hashtag gộp trong một query.
+ * Post id tăng theo thời gian tạo nên thứ tự id giảm dần chính là thứ tự mới nhất.
+ * Kết quả được cache trong process và bị xóa khi post gắn hashtag được tạo / sửa / xóa.
+ */
+@Service
+public class HashtagPreviewService {
+
+  private static final String CACHE_NAME = "hashtags.preview";
+
+  private static final String PREVIEW_SQL_PREFIX = "SELECT h.id AS hashtag_id, x.id, x.image_url, x.caption, " +
+      "x.like_count, x.comment_count, x.created_at FROM hashtags h JOIN LATERAL (" +
+      "SELECT p.id, p.image_url, p.caption, p.like_count, p.comment_count, p.created_at " +
+      "FROM post_hashtags ph JOIN posts p ON p.id = ph.post_id " +
+      "WHERE ph.hashtag_id = h.id AND p.is_deleted = false " +
+      "ORDER BY ph.post_id DESC LIMIT ?) x WHERE h.id IN (";
+  private static final String PREVIEW_SQL_SUFFIX = ") ORDER BY h.id, x.id DESC";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final LikeCounterService likeCounterService;
+  private final int previewSize;
+  private final Cache<Long, List<PostSummaryDTO>> previews;
+
+  public HashtagPreviewService(JdbcTemplate jdbcTemplate,
+      LikeCounterService likeCounterService,
+      MeterRegistry meterRegistry,
+      @Value("${app.hashtags.preview.size:9}") int previewSize,
+      @Value("${app.hashtags.preview.maximum-size:5000}") long maximumSize,
+      @Value("${app.hashtags.preview.ttl:60s}") Duration ttl) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.likeCounterService = likeCounterService;
+    this.previewSize = previewSize;
+    // TTL giới hạn độ cũ của like/comment count và invalidate từ instance khác
+    this.previews = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, previews, CACHE_NAME);
+  }
+
+  /**
+   * Preview của nhiều hashtag, hashtag chưa có trong cache được load chung một query.
+   * Hashtag không có post nào nhận danh sách rỗng.
+   */
+  public Map<Long, List<PostSummaryDTO>> getPreviews(Collection<Long> hashtagIds) {
+    if (hashtagIds.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<Long, List<PostSummaryDTO>> cached = previews.getAll(new LinkedHashSet<>(hashtagIds), this::loadPreviews);
+
+    // Cộng like chưa flush, trên bản sao để không sửa dữ liệu trong cache
+    List<Long> postIds = new ArrayList<>();
+    cached.values().forEach(posts -> posts.forEach(post -> postIds.add(post.getId())));
+    Map<Long, Long> pendingLikes = likeCounterService.getPendingDeltas(postIds);
+
+    Map<Long, List<PostSummaryDTO>> result = new LinkedHashMap<>();
+    cached.forEach((hashtagId, posts) -> result.put(hashtagId, posts.stream()
+        .map(post -> new PostSummaryDTO(post.getId(), post.getImageUrl(), post.getCaption(),
+            post.getLikeCount() + pendingLikes.getOrDefault(post.getId(), 0L).intValue(),
+            post.getCommentCount(), post.getCreatedAt()))
+        .toList()));
+    return result;
+  }
+
+  public List<PostSummaryDTO> getPreview(Long hashtagId) {
+    return getPreviews(List.of(hashtagId)).getOrDefault(hashtagId, List.of());
+  }
+
+  /**
+   * Xóa preview của các hashtag sau khi transaction ghi post commit
+   */
+  public void evictAfterCommit(Collection<Long> hashtagIds) {
+    if (hashtagIds.isEmpty()) {
+      return;
+    }
+    Set<Long> ids = Set.copyOf(hashtagIds);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      previews.invalidateAll(ids);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        previews.invalidateAll(ids);
+      }
+    });
+  }
+
+  private Map<Long, List<PostSummaryDTO>> loadPreviews(Set<? extends Long> hashtagIds) {
+    Map<Long, List<PostSummaryDTO>> loaded = new HashMap<>();
+    hashtagIds.forEach(id -> loaded.put(id, new ArrayList<>()));
+
+    String sql = PREVIEW_SQL_PREFIX + String.join(", ", Collections.nCopies(hashtagIds.size(), "?"))
+        + PREVIEW_SQL_SUFFIX;
+    List<Object> args = new ArrayList<>();
+    args.add(previewSize);
+    args.addAll(hashtagIds);
+
+    jdbcTemplate.query(sql, rs -> {
+      Timestamp createdAt = rs.getTimestamp("created_at");
+      loaded.get(rs.getLong("hashtag_id")).add(new PostSummaryDTO(
+          rs.getLong("id"),
+          rs.getString("image_url"),
+          rs.getString("caption"),
+          rs.getInt("like_count"),
+          rs.getInt("comment_count"),
+          createdAt != null ? createdAt.toLocalDateTime() : null));
+    }, args.toArray());
+
+    loaded.replaceAll((id, posts) -> List.copyOf(posts));
+    return loaded;
+  }
+}
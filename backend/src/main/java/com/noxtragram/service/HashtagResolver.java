@@ -0,0 +1,174 @@
+package com.noxtragram.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.model.entity.Hashtag;
+import com.noxtragram.repository.HashtagRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Đổi danh sách tên hashtag của một post thành ID với số round trip cố định.
+ *
+ * Tên đã biết lấy từ cache trong process. Phần còn lại được tìm bằng một query IN, tên thật sự
+ * mới được tạo bằng một câu {@code INSERT ... ON DUPLICATE KEY UPDATE} nhiều dòng rồi đọc lại id:
+ * hai post cùng tạo một hashtag mới không còn đụng unique constraint.
+ */
+@Service
+public class HashtagResolver {
+
+  private static final String INSERT_SQL_PREFIX = "INSERT INTO hashtags (name, post_count, created_at) VALUES ";
+  private static final String INSERT_SQL_ROW = "(?, 0, NOW())";
+  private static final String INSERT_SQL_SUFFIX = " ON DUPLICATE KEY UPDATE id = id";
+  private static final String SELECT_LOCKING_SQL_PREFIX = "SELECT id, name FROM hashtags WHERE name IN (";
+  private static final String SELECT_LOCKING_SQL_SUFFIX = ") LOCK IN SHARE MODE";
+
+  private final HashtagRepository hashtagRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final HashtagSuggestionIndex suggestionIndex;
+
+  // Tên (chữ thường, vì cột name so sánh không phân biệt hoa thường) -> id
+  private final Cache<String, Long> idsByName;
+
+  public HashtagResolver(HashtagRepository hashtagRepository,
+      JdbcTemplate jdbcTemplate,
+      HashtagSuggestionIndex suggestionIndex,
+      @Value("${app.hashtags.id-cache-size:100000}") long idCacheSize) {
+    this.hashtagRepository = hashtagRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.suggestionIndex = suggestionIndex;
+    this.idsByName = Caffeine.newBuilder()
+        .maximumSize(idCacheSize)
+        .build();
+  }
+
+  /**
+   * Chuẩn hóa tên (bỏ '#', trim, bỏ trùng) và trả về tên -> id theo thứ tự xuất hiện,
+   * tạo các hashtag chưa có
+   */
+  public Map<String, Long> resolveIds(Collection<String> rawNames) {
+    Map<String, String> namesByKey = new LinkedHashMap<>();
+    for (String rawName : rawNames) {
+      String name = cleanName(rawName);
+      if (!name.isEmpty()) {
+        namesByKey.putIfAbsent(key(name), name);
+      }
+    }
+    if (namesByKey.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, Long> idsByKey = new HashMap<>();
+    namesByKey.keySet().forEach(key -> {
+      Long id = idsByName.getIfPresent(key);
+      if (id != null) {
+        idsByKey.put(key, id);
+      }
+    });
+
+    List<String> missing = missingNames(namesByKey, idsByKey);
+    if (!missing.isEmpty()) {
+      List<Hashtag> existing = hashtagRepository.findByNames(missing);
+      existing.forEach(hashtag -> idsByKey.put(key(hashtag.getName()), hashtag.getId()));
+      cacheIds(existing);
+
+      List<String> created = missingNames(namesByKey, idsByKey);
+      if (!created.isEmpty()) {
+        // Hai transaction cùng tạo vài hashtag phải khóa các dòng theo cùng một thứ tự,
+        // nếu theo thứ tự xuất hiện trong post thì có thể chờ khóa của nhau (deadlock)
+        created.sort(Comparator.comparing(HashtagResolver::key));
+        insertIgnoringDuplicates(created);
+        Map<String, Long> inserted = findIdsLocking(created);
+        idsByKey.putAll(inserted);
+        // Dòng mới chỉ chắc chắn tồn tại khi transaction commit
+        cacheIdsAfterCommit(inserted);
+        // Tên vừa tạo (kể cả tên do transaction khác tạo cùng lúc) vào index gợi ý
+        inserted.forEach((key, id) -> suggestionIndex.addAfterCommit(id, namesByKey.get(key), LocalDateTime.now()));
+      }
+    }
+
+    Map<String, Long> ids = new LinkedHashMap<>();
+    namesByKey.forEach((key, name) -> {
+      Long id = idsByKey.get(key);
+      if (id != null) {
+        ids.put(name, id);
+      }
+    });
+    return ids;
+  }
+
+  private List<String> missingNames(Map<String, String> namesByKey, Map<String, Long> idsByKey) {
+    List<String> missing = new ArrayList<>();
+    namesByKey.forEach((key, name) -> {
+      if (!idsByKey.containsKey(key)) {
+        missing.add(name);
+      }
+    });
+    return missing;
+  }
+
+  private void insertIgnoringDuplicates(List<String> names) {
+    String sql = INSERT_SQL_PREFIX + String.join(", ", Collections.nCopies(names.size(), INSERT_SQL_ROW))
+        + INSERT_SQL_SUFFIX;
+    jdbcTemplate.update(sql, names.toArray());
+  }
+
+  // Locking read: thấy cả dòng do transaction khác vừa commit, không bị snapshot của REPEATABLE READ che mất
+  private Map<String, Long> findIdsLocking(List<String> names) {
+    String sql = SELECT_LOCKING_SQL_PREFIX + String.join(", ", Collections.nCopies(names.size(), "?"))
+        + SELECT_LOCKING_SQL_SUFFIX;
+    Map<String, Long> ids = new HashMap<>();
+    jdbcTemplate.query(sql, rs -> {
+      ids.put(key(rs.getString("name")), rs.getLong("id"));
+    }, names.toArray());
+    return ids;
+  }
+
+  private void cacheIds(List<Hashtag> hashtags) {
+    for (Hashtag hashtag : hashtags) {
+      idsByName.put(key(hashtag.getName()), hashtag.getId());
+    }
+  }
+
+  private void cacheIdsAfterCommit(Map<String, Long> ids) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      idsByName.putAll(ids);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        idsByName.putAll(ids);
+      }
+    });
+  }
+
+  private String cleanName(String name) {
+    if (name == null) {
+      return "";
+    }
+    return name.startsWith("#") ? name.substring(1).trim() : name.trim();
+  }
+
+  /**
+   * Khóa so sánh của tên hashtag, khớp với collation không phân biệt hoa thường của cột name
+   */
+  public static String key(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
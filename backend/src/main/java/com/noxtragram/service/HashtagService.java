@@ -15,6 +15,8 @@ public interface HashtagService {
 
   Page<HashtagResponseDTO> searchHashtags(String query, Pageable pageable);
 
+  List<HashtagResponseDTO> getHashtagSuggestions(String query, int limit);
+
   Page<HashtagResponseDTO> getPopularHashtags(Pageable pageable);
 
   Page<HashtagResponseDTO> getRecentHashtags(Pageable pageable);
@@ -23,6 +25,9 @@ public interface HashtagService {
 
   Page<PostResponseDTO> getPostsByHashtag(String hashtagName, Long currentUserId, Pageable pageable);
 
+  CursorPageResponseDTO<PostResponseDTO> getPostsByHashtagByCursor(String hashtagName, Long currentUserId,
+      String cursor, int size);
+
   void incrementPostCount(String hashtagName);
 
   void decrementPostCount(String hashtagName);
@@ -0,0 +1,246 @@
+package com.noxtragram.service;
+
+import com.noxtragram.model.dto.response.HashtagResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Gợi ý hashtag theo tiền tố, xếp theo post_count, trả lời hoàn toàn từ bộ nhớ.
+ *
+ * Snapshot là mảng tên (chữ thường) đã sắp xếp: các tên cùng tiền tố nằm liền nhau nên tìm được
+ * bằng hai lần binary search. Tiền tố khớp quá nhiều tên (ví dụ 1-2 ký tự) có sẵn top-K tính lúc dựng,
+ * tiền tố dài hơn chỉ quét một khoảng nhỏ. Snapshot được dựng khi khởi động và định kỳ (cập nhật
+ * post_count); hashtag tạo giữa hai lần dựng nằm trong một map phụ và được gộp vào lúc đọc.
+ */
+@Service
+public class HashtagSuggestionIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(HashtagSuggestionIndex.class);
+
+  private static final String LOAD_SQL = "SELECT id, name, post_count, created_at FROM hashtags";
+
+  // Thứ tự gợi ý: nhiều post trước, cùng số post thì theo tên
+  private static final Comparator<Entry> RANKING = Comparator.comparingInt(Entry::postCount).reversed()
+      .thenComparing(Entry::key);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int topK;
+  private final int scanThreshold;
+
+  private volatile Snapshot snapshot;
+
+  // Hashtag tạo sau lần dựng gần nhất, theo tên chữ thường
+  private final ConcurrentSkipListMap<String, Entry> recentlyAdded = new ConcurrentSkipListMap<>();
+
+  public HashtagSuggestionIndex(JdbcTemplate jdbcTemplate,
+      @Value("${app.hashtags.suggestions.top-k:10}") int topK,
+      @Value("${app.hashtags.suggestions.scan-threshold:256}") int scanThreshold) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.topK = topK;
+    this.scanThreshold = Math.max(scanThreshold, topK);
+  }
+
+  public boolean isReady() {
+    return snapshot != null;
+  }
+
+  /**
+   * Tối đa {@code limit} (không quá top-K) hashtag có tên bắt đầu bằng query
+   */
+  public List<HashtagResponseDTO> suggest(String query, int limit) {
+    Snapshot current = snapshot;
+    String prefix = key(query);
+    int size = Math.min(limit, topK);
+    if (current == null || prefix.isEmpty() || size <= 0) {
+      return List.of();
+    }
+
+    List<Entry> candidates = new ArrayList<>(current.top(prefix, size));
+    String upper = prefix + Character.MAX_VALUE;
+    candidates.addAll(recentlyAdded.subMap(prefix, upper).values());
+    candidates.sort(RANKING);
+
+    Set<Long> seen = new HashSet<>();
+    List<HashtagResponseDTO> suggestions = new ArrayList<>(size);
+    for (Entry entry : candidates) {
+      if (suggestions.size() == size) {
+        break;
+      }
+      if (seen.add(entry.id())) {
+        HashtagResponseDTO dto = new HashtagResponseDTO(entry.id(), entry.name(), entry.postCount(),
+            entry.createdAt());
+        dto.setRecentPosts(List.of());
+        suggestions.add(dto);
+      }
+    }
+    return suggestions;
+  }
+
+  /**
+   * Thêm hashtag mới vào index sau khi transaction tạo nó commit
+   */
+  public void addAfterCommit(Long id, String name, LocalDateTime createdAt) {
+    Entry entry = new Entry(id, name, key(name), 0, createdAt);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      recentlyAdded.putIfAbsent(entry.key(), entry);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        recentlyAdded.putIfAbsent(entry.key(), entry);
+      }
+    });
+  }
+
+  /**
+   * Dựng lại snapshot từ bảng hashtags (lần đầu ngay khi khởi động)
+   */
+  @Scheduled(initialDelay = 0, fixedDelayString = "${app.hashtags.suggestions.rebuild-interval:600000}")
+  public void rebuild() {
+    List<Entry> entries = new ArrayList<>();
+    try {
+      jdbcTemplate.query(LOAD_SQL, rs -> {
+        String name = rs.getString("name");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        entries.add(new Entry(rs.getLong("id"), name, key(name), rs.getInt("post_count"),
+            createdAt != null ? createdAt.toLocalDateTime() : null));
+      });
+    } catch (DataAccessException e) {
+      logger.error("Failed to load hashtag suggestion index: {}", e.getMessage());
+      return;
+    }
+
+    long start = System.nanoTime();
+    Snapshot built = build(entries);
+    snapshot = built;
+    // Những tên đã có trong snapshot không cần giữ ở map phụ nữa
+    recentlyAdded.keySet().removeIf(built::contains);
+    logger.info("Built hashtag suggestion index with {} hashtags, {} precomputed prefixes in {} ms",
+        entries.size(), built.topByPrefix.size(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private Snapshot build(List<Entry> entries) {
+    entries.sort(Comparator.comparing(Entry::key));
+    Entry[] sorted = entries.toArray(new Entry[0]);
+    String[] keys = new String[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      keys[i] = sorted[i].key();
+    }
+
+    Map<String, Entry[]> topByPrefix = new HashMap<>();
+    precompute(sorted, 0, sorted.length, 1, topByPrefix);
+    return new Snapshot(keys, sorted, topByPrefix);
+  }
+
+  // Tính top-K cho mọi tiền tố độ dài depth trong khoảng [from, to) khớp nhiều hơn scanThreshold tên
+  private void precompute(Entry[] sorted, int from, int to, int depth, Map<String, Entry[]> topByPrefix) {
+    int i = from;
+    while (i < to) {
+      String key = sorted[i].key();
+      if (key.length() < depth) {
+        i++;
+        continue;
+      }
+      String prefix = key.substring(0, depth);
+      int j = i + 1;
+      while (j < to && sorted[j].key().startsWith(prefix)) {
+        j++;
+      }
+      if (j - i > scanThreshold) {
+        topByPrefix.put(prefix, topOf(sorted, i, j, topK));
+        precompute(sorted, i, j, depth + 1, topByPrefix);
+      }
+      i = j;
+    }
+  }
+
+  // Heap kích thước k trên khoảng [from, to), trả về theo thứ tự xếp hạng
+  private static Entry[] topOf(Entry[] sorted, int from, int to, int k) {
+    PriorityQueue<Entry> heap = new PriorityQueue<>(RANKING.reversed());
+    for (int i = from; i < to; i++) {
+      heap.offer(sorted[i]);
+      if (heap.size() > k) {
+        heap.poll();
+      }
+    }
+    Entry[] top = heap.toArray(new Entry[0]);
+    Arrays.sort(top, RANKING);
+    return top;
+  }
+
+  private static String key(String name) {
+    if (name == null) {
+      return "";
+    }
+    String trimmed = name.trim();
+    return (trimmed.startsWith("#") ? trimmed.substring(1) : trimmed).toLowerCase(Locale.ROOT);
+  }
+
+  private record Entry(Long id, String name, String key, int postCount, LocalDateTime createdAt) {
+  }
+
+  private static final class Snapshot {
+    private final String[] keys;
+    private final Entry[] entries;
+    private final Map<String, Entry[]> topByPrefix;
+
+    Snapshot(String[] keys, Entry[] entries, Map<String, Entry[]> topByPrefix) {
+      this.keys = keys;
+      this.entries = entries;
+      this.topByPrefix = topByPrefix;
+    }
+
+    List<Entry> top(String prefix, int size) {
+      Entry[] precomputed = topByPrefix.get(prefix);
+      if (precomputed != null) {
+        return Arrays.asList(precomputed).subList(0, Math.min(size, precomputed.length));
+      }
+      // Tiền tố không có top-K sẵn khớp ít hơn scanThreshold tên: quét thẳng
+      int from = lowerBound(prefix);
+      int to = lowerBound(prefix + Character.MAX_VALUE);
+      return Arrays.asList(topOf(entries, from, to, size));
+    }
+
+    boolean contains(String key) {
+      int i = lowerBound(key);
+      return i < keys.length && keys[i].equals(key);
+    }
+
+    private int lowerBound(String key) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (keys[mid].compareTo(key) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.noxtragram.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bitset giữ trong bộ nhớ của process, không có TTL. Dùng cho test và chạy local không có Redis.
+ */
+@Component
+@ConditionalOnProperty(name = "app.membership.store", havingValue = "memory")
+public class InMemoryMembershipBitStore implements MembershipBitStore {
+
+  private final ConcurrentHashMap<String, BitSet> bitsets = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean[] getBits(String key, long[] offsets) {
+    boolean[] bits = new boolean[offsets.length];
+    BitSet bitset = bitsets.get(key);
+    if (bitset == null) {
+      return bits;
+    }
+    synchronized (bitset) {
+      for (int i = 0; i < offsets.length; i++) {
+        bits[i] = bitset.get(Math.toIntExact(offsets[i]));
+      }
+    }
+    return bits;
+  }
+
+  @Override
+  public void setBits(String key, long[] offsets, Duration ttl) {
+    set(bitsets.computeIfAbsent(key, k -> new BitSet()), offsets);
+  }
+
+  @Override
+  public boolean create(String key, long[] offsets, Duration ttl) {
+    BitSet bitset = new BitSet();
+    set(bitset, offsets);
+    return bitsets.putIfAbsent(key, bitset) == null;
+  }
+
+  @Override
+  public void setBitsIfPresent(String key, long[] offsets) {
+    BitSet bitset = bitsets.get(key);
+    if (bitset != null) {
+      set(bitset, offsets);
+    }
+  }
+
+  @Override
+  public void delete(String key) {
+    bitsets.remove(key);
+  }
+
+  public void clear() {
+    bitsets.clear();
+  }
+
+  private void set(BitSet bitset, long[] offsets) {
+    synchronized (bitset) {
+      for (long offset : offsets) {
+        bitset.set(Math.toIntExact(offset));
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.noxtragram.service;
+
+import com.noxtragram.util.DeltaAccumulator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gom thay đổi like_count của post trong bộ nhớ rồi ghi xuống DB theo lô (write-behind).
+ *
+ * Mỗi post có một LongAdder riêng ({@link DeltaAccumulator}) nên các lượt like đồng thời không tranh nhau một khóa,
+ * và request like không còn phải khóa dòng posts. Định kỳ các delta được ghi bằng
+ * {@code UPDATE posts SET like_count = like_count + ?}. Khi đọc, cộng thêm phần delta chưa flush.
+ */
+@Service
+public class LikeCounterService {
+
+  private static final Logger logger = LoggerFactory.getLogger(LikeCounterService.class);
+
+  private static final String FLUSH_SQL = "UPDATE posts SET like_count = like_count + ? WHERE id = ?";
+
+  private final DeltaAccumulator<Long> pendingDeltas = new DeltaAccumulator<>();
+  private final JdbcTemplate jdbcTemplate;
+  private final PostCacheService postCacheService;
+
+  public LikeCounterService(JdbcTemplate jdbcTemplate, PostCacheService postCacheService) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.postCacheService = postCacheService;
+  }
+
+  public void increment(Long postId) {
+    addAfterCommit(postId, 1);
+  }
+
+  public void decrement(Long postId) {
+    addAfterCommit(postId, -1);
+  }
+
+  /**
+   * Delta chưa được ghi xuống DB của một post
+   */
+  public long getPendingDelta(Long postId) {
+    return pendingDeltas.get(postId);
+  }
+
+  /**
+   * Delta chưa được ghi xuống DB của nhiều post (chỉ chứa post có delta khác 0)
+   */
+  public Map<Long, Long> getPendingDeltas(Collection<Long> postIds) {
+    return pendingDeltas.get(postIds);
+  }
+
+  /**
+   * Ghi toàn bộ delta đang chờ xuống DB trong một batch
+   */
+  @Scheduled(fixedDelayString = "${app.likes.flush-interval:1000}")
+  public void flush() {
+    Map<Long, Long> deltas = pendingDeltas.drain();
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    List<Object[]> batchArgs = new ArrayList<>();
+    deltas.forEach((postId, delta) -> batchArgs.add(new Object[] { delta, postId }));
+
+    try {
+      jdbcTemplate.batchUpdate(FLUSH_SQL, batchArgs);
+      logger.debug("Flushed like counters for {} posts", batchArgs.size());
+    } catch (DataAccessException e) {
+      // Trả delta lại để lần flush sau ghi tiếp, không mất lượt like
+      logger.error("Failed to flush like counters for {} posts: {}", batchArgs.size(), e.getMessage());
+      deltas.forEach(pendingDeltas::add);
+      return;
+    }
+
+    // like_count trong cache post đã cũ so với DB
+    postCacheService.evict(deltas.keySet());
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+
+  // Chỉ cộng delta khi transaction ghi bảng likes đã commit
+  private void addAfterCommit(Long postId, long delta) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      pendingDeltas.add(postId, delta);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        pendingDeltas.add(postId, delta);
+      }
+    });
+  }
+}
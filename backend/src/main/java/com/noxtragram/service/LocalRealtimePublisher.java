@@ -0,0 +1,25 @@
+package com.noxtragram.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gửi thẳng vào broker của Spring. Với SimpleBroker chỉ tới được session trên instance này,
+ * với broker relay thì user ở instance khác cũng nhận được.
+ */
+@Component
+@ConditionalOnExpression("'${app.websocket.broker:simple}' != 'redis'")
+public class LocalRealtimePublisher implements RealtimePublisher {
+
+  private final SimpMessagingTemplate messagingTemplate;
+
+  public LocalRealtimePublisher(SimpMessagingTemplate messagingTemplate) {
+    this.messagingTemplate = messagingTemplate;
+  }
+
+  @Override
+  public void sendToUser(Long userId, String destination, Object payload) {
+    messagingTemplate.convertAndSendToUser(userId.toString(), destination, payload);
+  }
+}
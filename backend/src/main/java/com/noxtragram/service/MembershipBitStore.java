@@ -0,0 +1,34 @@
+package com.noxtragram.service;
+
+import java.time.Duration;
+
+/**
+ * Nơi lưu bitset của {@link PostMembershipIndex}.
+ *
+ * Bản Redis dùng khi chạy thật, bản trong bộ nhớ dùng cho test hoặc môi trường không có Redis
+ * ({@code app.membership.store=memory}).
+ */
+public interface MembershipBitStore {
+
+  /**
+   * Đọc các bit tại offsets, key chưa tồn tại thì mọi bit đều là 0
+   */
+  boolean[] getBits(String key, long[] offsets);
+
+  /**
+   * Bật các bit và đặt TTL cho key, tạo key nếu chưa có
+   */
+  void setBits(String key, long[] offsets, Duration ttl);
+
+  /**
+   * Tạo key với các bit đã bật và TTL, chỉ khi key chưa tồn tại. Trả về false nếu key đã có
+   */
+  boolean create(String key, long[] offsets, Duration ttl);
+
+  /**
+   * Bật các bit chỉ khi key đã tồn tại (không tạo ra bitset thiếu dữ liệu)
+   */
+  void setBitsIfPresent(String key, long[] offsets);
+
+  void delete(String key);
+}
@@ -0,0 +1,196 @@
+package com.noxtragram.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noxtragram.model.entity.MessageOutbox;
+import com.noxtragram.repository.MessageOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Transactional outbox cho sự kiện realtime của chat.
+ *
+ * Service tin nhắn chỉ ghi thêm một dòng outbox trong cùng transaction, không đẩy socket khi chưa
+ * commit. Sau commit, dispatcher trên thread riêng nhận các dòng theo lô trong một transaction
+ * ngắn (FOR UPDATE SKIP LOCKED rồi đặt claimed_until, để nhiều instance không lấy trùng), commit,
+ * rồi mới gửi qua RealtimePublisher và xóa dòng: không giữ khóa dòng hay kết nối DB trong lúc gửi.
+ * Instance chết giữa lúc gửi thì lô đó hết hạn claim và được gửi lại (client đã khử trùng theo id
+ * tin nhắn). Job định kỳ gửi nốt các dòng bị sót (executor bận, claim hết hạn).
+ *
+ * Trong một instance chỉ một lượt gửi chạy tại một thời điểm (lượt sau commit và job định kỳ không
+ * chạy chồng nhau), nên sự kiện của cùng người nhận được gửi theo thứ tự id.
+ */
+@Service
+public class MessageOutboxService {
+
+  private static final Logger logger = LoggerFactory.getLogger(MessageOutboxService.class);
+
+  private static final String CLAIM_SQL = "SELECT id, recipient_id, destination, payload FROM message_outbox " +
+      "WHERE claimed_until IS NULL OR claimed_until < NOW() ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+  private static final String MARK_CLAIMED_SQL_PREFIX = "UPDATE message_outbox " +
+      "SET claimed_until = DATE_ADD(NOW(), INTERVAL ? SECOND) WHERE id IN (";
+  private static final String DELETE_SQL_PREFIX = "DELETE FROM message_outbox WHERE id IN (";
+
+  private final MessageOutboxRepository outboxRepository;
+  private final RealtimePublisher realtimePublisher;
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final ThreadPoolTaskExecutor executor;
+  private final TransactionTemplate dispatchTransaction;
+  private final int batchSize;
+  private final long claimTtlSeconds;
+  // Đã có một lượt gửi đang chờ chạy: các commit tiếp theo không cần xếp thêm
+  private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+  // Lượt gửi đang chạy, lock thay cho synchronized vì giữ trong lúc chờ JDBC / Redis
+  private final ReentrantLock dispatchLock = new ReentrantLock();
+  // Có lượt gửi bị bỏ qua vì lượt khác đang chạy: lượt đang chạy quét lại trước khi dừng
+  private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+
+  public MessageOutboxService(MessageOutboxRepository outboxRepository,
+      RealtimePublisher realtimePublisher,
+      JdbcTemplate jdbcTemplate,
+      ObjectMapper objectMapper,
+      @Qualifier("messageOutboxExecutor") ThreadPoolTaskExecutor executor,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.messages.outbox.batch-size:200}") int batchSize,
+      @Value("${app.messages.outbox.claim-ttl:30s}") Duration claimTtl) {
+    this.outboxRepository = outboxRepository;
+    this.realtimePublisher = realtimePublisher;
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+    this.executor = executor;
+    this.batchSize = batchSize;
+    this.claimTtlSeconds = Math.max(1, claimTtl.toSeconds());
+
+    this.dispatchTransaction = new TransactionTemplate(transactionManager);
+    this.dispatchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Ghi sự kiện vào outbox trong transaction hiện tại, gửi sau khi commit
+   */
+  public void enqueue(Long recipientId, String destination, Object payload) {
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(payload);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot serialize realtime payload", e);
+    }
+    outboxRepository.save(new MessageOutbox(recipientId, destination, json));
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      scheduleDispatch();
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        scheduleDispatch();
+      }
+    });
+  }
+
+  /**
+   * Quét định kỳ các dòng chưa gửi. Lượt khác đang chạy thì chỉ đánh dấu để lượt đó quét lại.
+   */
+  @Scheduled(fixedDelayString = "${app.messages.outbox.poll-interval:5000}")
+  public void dispatchPending() {
+    dispatchRequested.set(true);
+    // Lượt đang chạy nhả lock rồi mới đọc lại cờ, nên yêu cầu đến giữa chừng không bị bỏ sót
+    while (dispatchRequested.get() && dispatchLock.tryLock()) {
+      try {
+        dispatchRequested.set(false);
+        drain();
+      } finally {
+        dispatchLock.unlock();
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      int dispatched;
+      do {
+        dispatched = dispatchBatch();
+      } while (dispatched == batchSize);
+    } catch (DataAccessException e) {
+      logger.error("Failed to dispatch message outbox: {}", e.getMessage());
+    }
+  }
+
+  private void scheduleDispatch() {
+    if (dispatchScheduled.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        // Reset trước khi chạy để commit đến trong lúc gửi vẫn xếp được lượt kế tiếp
+        dispatchScheduled.set(false);
+        dispatchPending();
+      });
+    }
+  }
+
+  private int dispatchBatch() {
+    List<OutboxEvent> batch = dispatchTransaction.execute(status -> claimBatch());
+    if (batch == null || batch.isEmpty()) {
+      return 0;
+    }
+
+    // Đã commit claim: gửi mà không giữ khóa dòng hay kết nối DB
+    for (OutboxEvent event : batch) {
+      try {
+        JsonNode payload = objectMapper.readTree(event.payload());
+        realtimePublisher.sendToUser(event.recipientId(), event.destination(), payload);
+      } catch (JsonProcessingException | RuntimeException e) {
+        // Realtime là best-effort: bỏ qua sự kiện lỗi thay vì chặn cả hàng đợi
+        logger.error("Failed to dispatch outbox event {}: {}", event.id(), e.getMessage());
+      }
+    }
+
+    jdbcTemplate.update(DELETE_SQL_PREFIX + placeholders(batch.size()) + ")",
+        batch.stream().map(OutboxEvent::id).toArray());
+    logger.debug("Dispatched {} message outbox events", batch.size());
+    return batch.size();
+  }
+
+  private List<OutboxEvent> claimBatch() {
+    List<OutboxEvent> batch = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new OutboxEvent(
+        rs.getLong("id"), rs.getLong("recipient_id"), rs.getString("destination"), rs.getString("payload")),
+        batchSize);
+    if (batch.isEmpty()) {
+      return batch;
+    }
+
+    List<Object> args = new ArrayList<>(batch.size() + 1);
+    args.add(claimTtlSeconds);
+    batch.forEach(event -> args.add(event.id()));
+    jdbcTemplate.update(MARK_CLAIMED_SQL_PREFIX + placeholders(batch.size()) + ")", args.toArray());
+    return batch;
+  }
+
+  private static String placeholders(int count) {
+    return String.join(",", Collections.nCopies(count, "?"));
+  }
+
+  private record OutboxEvent(Long id, Long recipientId, String destination, String payload) {
+  }
+}
@@ -1,9 +1,12 @@
 package com.noxtragram.service;
 
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.entity.Message;
 import com.noxtragram.model.entity.MessageType;
+import com.noxtragram.repository.projection.ConversationView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -33,12 +36,16 @@ public interface MessageService {
 
   Page<Message> getMessageHistoryWithPagination(Long currentUserId, Long otherUserId, Pageable pageable);
 
+  Slice<Message> getMessageHistoryByCursor(Long currentUserId, Long otherUserId, String cursor, int size);
+
   Message getMessageById(Long messageId);
 
   Message getLastMessage(Long user1Id, Long user2Id);
 
   List<Message> getUnreadMessages(Long userId);
 
+  CursorPageResponseDTO<ConversationView> getInbox(Long userId, String cursor, int size);
+
   // Status methods
   void markMessagesAsRead(Long receiverId, Long senderId);
 
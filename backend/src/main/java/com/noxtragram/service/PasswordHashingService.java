@@ -0,0 +1,110 @@
+package com.noxtragram.service;
+
+import com.noxtragram.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Chạy BCrypt trên executor riêng có giới hạn.
+ *
+ * Thread request chỉ chờ kết quả chứ không tự hash, nên số lõi CPU dành cho BCrypt bị chặn ở
+ * pool-size dù có bao nhiêu request login cùng lúc; các API khác vẫn còn CPU. Hàng đợi đầy hoặc
+ * chờ quá timeout thì trả 429 kèm Retry-After để client lùi lại.
+ */
+@Service
+public class PasswordHashingService {
+
+  private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+  private static final String METRIC_PREFIX = "password.hashing";
+
+  private final PasswordEncoder passwordEncoder;
+  private final ThreadPoolTaskExecutor executor;
+  private final Duration timeout;
+  private final long retryAfterSeconds;
+  private final boolean rehashOnLogin;
+  private final Timer encodeTimer;
+  private final Timer matchesTimer;
+  private final Counter rejected;
+
+  public PasswordHashingService(PasswordEncoder passwordEncoder,
+      @Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+      MeterRegistry meterRegistry,
+      @Value("${app.security.password-hashing.timeout:5s}") Duration timeout,
+      @Value("${app.security.password-hashing.retry-after:2s}") Duration retryAfter,
+      @Value("${app.security.password-hashing.rehash-on-login:true}") boolean rehashOnLogin) {
+    this.passwordEncoder = passwordEncoder;
+    this.executor = executor;
+    this.timeout = timeout;
+    this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+    this.rehashOnLogin = rehashOnLogin;
+    this.encodeTimer = meterRegistry.timer(METRIC_PREFIX + ".duration", "operation", "encode");
+    this.matchesTimer = meterRegistry.timer(METRIC_PREFIX + ".duration", "operation", "matches");
+    this.rejected = meterRegistry.counter(METRIC_PREFIX + ".rejected");
+    ExecutorServiceMetrics.monitor(meterRegistry, executor.getThreadPoolExecutor(), METRIC_PREFIX);
+  }
+
+  public String encode(String rawPassword) {
+    return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+  }
+
+  public boolean matches(String rawPassword, String encodedPassword) {
+    return submit(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+  }
+
+  /**
+   * Hash được tạo với cost thấp hơn cấu hình hiện tại (app.security.bcrypt.strength)
+   * thì cần hash lại sau khi đăng nhập thành công
+   */
+  public boolean needsRehash(String encodedPassword) {
+    return rehashOnLogin && passwordEncoder.upgradeEncoding(encodedPassword);
+  }
+
+  private <T> T submit(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (TaskRejectedException e) {
+      rejected.increment();
+      logger.warn("Password hashing queue is full, rejecting request");
+      throw new TooManyRequestsException("Too many authentication requests, please retry later",
+          retryAfterSeconds);
+    }
+
+    try {
+      return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      rejected.increment();
+      logger.warn("Password hashing timed out after {}", timeout);
+      throw new TooManyRequestsException("Too many authentication requests, please retry later",
+          retryAfterSeconds);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while hashing password", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Password hashing failed", e.getCause());
+    }
+  }
+}
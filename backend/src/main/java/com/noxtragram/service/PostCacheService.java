@@ -0,0 +1,218 @@
+package com.noxtragram.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.model.dto.response.PostResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cache hai tầng cho phần PostResponseDTO không phụ thuộc người xem.
+ *
+ * L1 là Caffeine trong process, L2 là Redis dùng chung giữa các instance. Trạng thái liked/saved
+ * và like chưa flush được {@link PostHydrationService} gắn vào sau, không bao giờ nằm trong cache.
+ *
+ * Mỗi lần evict tăng version của post trong Redis và publish id qua pub/sub để các instance khác
+ * bỏ bản L1. Bản load từ DB chỉ được ghi vào L2 nếu version không đổi kể từ trước khi load, nên
+ * một lần đọc chạy song song với flush like_count không ghi lại giá trị cũ cho hết TTL của L2.
+ */
+@Service
+public class PostCacheService {
+
+  private static final Logger logger = LoggerFactory.getLogger(PostCacheService.class);
+
+  private static final String KEY_PREFIX = "post:dto:";
+  private static final String VERSION_KEY_PREFIX = "post:dto:ver:";
+  private static final String CHANNEL = "post:dto:invalidations";
+  private static final String L1_CACHE_NAME = "posts.l1";
+  private static final String L2_CACHE_NAME = "posts.l2";
+
+  // Chỉ ghi DTO khi version (mặc định 0) vẫn là version đọc được trước khi load từ DB
+  private static final RedisScript<Long> PUT_IF_VERSION_SCRIPT = new DefaultRedisScript<>(
+      "local current = redis.call('GET', KEYS[2]) or '0' " +
+      "if current ~= ARGV[1] then return 0 end " +
+      "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+      "return 1",
+      Long.class);
+
+  // KEYS là các cặp (dto, version): xóa DTO và tăng version, trả về số DTO đã xóa
+  private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+      "local deleted = 0 " +
+      "for i = 1, #KEYS, 2 do " +
+      "  deleted = deleted + redis.call('DEL', KEYS[i]) " +
+      "  redis.call('INCR', KEYS[i + 1]) " +
+      "  redis.call('PEXPIRE', KEYS[i + 1], ARGV[1]) " +
+      "end " +
+      "return deleted",
+      Long.class);
+
+  private final Cache<Long, PostResponseDTO> localCache;
+  private final StringRedisTemplate redisTemplate;
+  private final ObjectMapper objectMapper;
+  private final Duration redisTtl;
+  private final Counter redisHits;
+  private final Counter redisMisses;
+  private final Counter redisEvictions;
+
+  public PostCacheService(StringRedisTemplate redisTemplate,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      RedisMessageListenerContainer listenerContainer,
+      @Value("${app.post-cache.local.maximum-size:10000}") long localMaximumSize,
+      @Value("${app.post-cache.local.ttl:30s}") Duration localTtl,
+      @Value("${app.post-cache.redis.ttl:10m}") Duration redisTtl) {
+    this.redisTemplate = redisTemplate;
+    this.objectMapper = objectMapper;
+    this.redisTtl = redisTtl;
+    this.localCache = Caffeine.newBuilder()
+        .maximumSize(localMaximumSize)
+        .expireAfterWrite(localTtl)
+        .recordStats()
+        .build();
+
+    // cache.gets{result=hit|miss}, cache.evictions... cho cả hai tầng trên /actuator/metrics
+    CaffeineCacheMetrics.monitor(meterRegistry, localCache, L1_CACHE_NAME);
+    this.redisHits = meterRegistry.counter("cache.gets", "cache", L2_CACHE_NAME, "result", "hit");
+    this.redisMisses = meterRegistry.counter("cache.gets", "cache", L2_CACHE_NAME, "result", "miss");
+    this.redisEvictions = meterRegistry.counter("cache.evictions", "cache", L2_CACHE_NAME);
+
+    listenerContainer.addMessageListener(
+        (message, pattern) -> invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(CHANNEL));
+  }
+
+  /**
+   * Đọc qua L1 rồi L2, cả hai đều miss thì gọi loader và ghi lại vào cả hai tầng.
+   * Loader trả về null (post không tồn tại) thì không cache.
+   */
+  public PostResponseDTO get(Long postId, Supplier<PostResponseDTO> loader) {
+    return localCache.get(postId, id -> loadThroughRedis(id, loader));
+  }
+
+  public void evict(Long postId) {
+    evict(List.of(postId));
+  }
+
+  public void evict(Collection<Long> postIds) {
+    if (postIds.isEmpty()) {
+      return;
+    }
+
+    localCache.invalidateAll(postIds);
+    List<String> keys = new ArrayList<>(postIds.size() * 2);
+    for (Long postId : postIds) {
+      keys.add(key(postId));
+      keys.add(versionKey(postId));
+    }
+
+    try {
+      // Version sống lâu hơn DTO để bản load bắt đầu trước lần evict này không khớp lại version cũ
+      Long deleted = redisTemplate.execute(EVICT_SCRIPT, keys, String.valueOf(redisTtl.multipliedBy(2).toMillis()));
+      if (deleted != null) {
+        redisEvictions.increment(deleted);
+      }
+      redisTemplate.convertAndSend(CHANNEL,
+          postIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+    } catch (DataAccessException e) {
+      // Instance khác vẫn giữ bản L1 tới hết TTL của L1
+      logger.warn("Failed to evict {} posts from Redis cache: {}", postIds.size(), e.getMessage());
+    }
+  }
+
+  /**
+   * Xóa khỏi cache sau khi transaction hiện tại commit (tránh đọc lại dữ liệu cũ trước commit)
+   */
+  public void evictAfterCommit(Long postId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      evict(postId);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        evict(postId);
+      }
+    });
+  }
+
+  private PostResponseDTO loadThroughRedis(Long postId, Supplier<PostResponseDTO> loader) {
+    String key = key(postId);
+    String versionKey = versionKey(postId);
+    // null: Redis lỗi, không ghi lại L2 vì không biết version
+    String version = null;
+    try {
+      List<String> values = redisTemplate.opsForValue().multiGet(List.of(key, versionKey));
+      String json = values != null ? values.get(0) : null;
+      if (json != null) {
+        redisHits.increment();
+        return objectMapper.readValue(json, PostResponseDTO.class);
+      }
+      redisMisses.increment();
+      version = values != null && values.get(1) != null ? values.get(1) : "0";
+    } catch (DataAccessException | JsonProcessingException e) {
+      logger.warn("Redis post cache read failed for post {}: {}", postId, e.getMessage());
+    }
+
+    PostResponseDTO dto = loader.get();
+    if (dto == null || version == null) {
+      return dto;
+    }
+
+    try {
+      Long written = redisTemplate.execute(PUT_IF_VERSION_SCRIPT, List.of(key, versionKey), version,
+          objectMapper.writeValueAsString(dto), String.valueOf(redisTtl.toMillis()));
+      if (written == null || written == 0) {
+        logger.debug("Post {} was evicted while loading, skipping Redis cache write", postId);
+      }
+    } catch (DataAccessException | JsonProcessingException e) {
+      logger.warn("Redis post cache write failed for post {}: {}", postId, e.getMessage());
+    }
+    return dto;
+  }
+
+  // Nhận id từ instance khác (hoặc chính instance này) qua pub/sub
+  private void invalidateLocal(String payload) {
+    List<Long> postIds = new ArrayList<>();
+    for (String id : payload.split(",")) {
+      try {
+        postIds.add(Long.parseLong(id.trim()));
+      } catch (NumberFormatException e) {
+        logger.warn("Ignoring malformed post cache invalidation: {}", payload);
+        return;
+      }
+    }
+    localCache.invalidateAll(postIds);
+  }
+
+  private String key(Long postId) {
+    return KEY_PREFIX + postId;
+  }
+
+  private String versionKey(Long postId) {
+    return VERSION_KEY_PREFIX + postId;
+  }
+}
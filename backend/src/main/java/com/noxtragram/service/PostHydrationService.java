@@ -0,0 +1,170 @@
+package com.noxtragram.service;
+
+import com.noxtragram.model.dto.Summary.UserSummaryDTO;
+import com.noxtragram.model.dto.response.PostResponseDTO;
+import com.noxtragram.model.entity.Post;
+import com.noxtragram.repository.PostRepository;
+import com.noxtragram.repository.UserRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chuyển một trang Post thành PostResponseDTO với số query cố định.
+ *
+ * Tác giả, hashtags và trạng thái liked/saved của user hiện tại được lấy cho cả trang bằng
+ * các query dạng {@code WHERE post_id IN (...)}, thay vì query riêng cho từng post. Trạng thái
+ * liked/saved đi qua {@link PostMembershipIndex}, chỉ hỏi DB cho các post có thể đã like/lưu.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PostHydrationService {
+
+  private final PostRepository postRepository;
+  private final UserRepository userRepository;
+  private final PostMembershipIndex postMembershipIndex;
+  private final LikeCounterService likeCounterService;
+  private final PostCacheService postCacheService;
+
+  public PostHydrationService(PostRepository postRepository,
+      UserRepository userRepository,
+      PostMembershipIndex postMembershipIndex,
+      LikeCounterService likeCounterService,
+      PostCacheService postCacheService) {
+    this.postRepository = postRepository;
+    this.userRepository = userRepository;
+    this.postMembershipIndex = postMembershipIndex;
+    this.likeCounterService = likeCounterService;
+    this.postCacheService = postCacheService;
+  }
+
+  public PostResponseDTO hydrate(Post post, Long currentUserId) {
+    return hydrate(List.of(post), currentUserId).get(0);
+  }
+
+  public Page<PostResponseDTO> hydrate(Page<Post> posts, Long currentUserId) {
+    return new PageImpl<>(hydrate(posts.getContent(), currentUserId), posts.getPageable(),
+        posts.getTotalElements());
+  }
+
+  public List<PostResponseDTO> hydrate(List<Post> posts, Long currentUserId) {
+    List<PostResponseDTO> dtos = buildBase(posts);
+    overlay(dtos, currentUserId);
+    return dtos;
+  }
+
+  /**
+   * Hydrate theo danh sách id (ví dụ danh sách đã lưu): một query lấy post rồi hydrate cả lô.
+   * Post đã xóa hoặc không tồn tại không có trong map kết quả.
+   */
+  public Map<Long, PostResponseDTO> hydrateByIds(Collection<Long> postIds, Long currentUserId) {
+    if (postIds.isEmpty()) {
+      return new HashMap<>();
+    }
+    return hydrate(postRepository.findByIdInAndIsDeletedFalse(postIds), currentUserId).stream()
+        .collect(Collectors.toMap(PostResponseDTO::getId, Function.identity()));
+  }
+
+  /**
+   * Chi tiết một post: phần chung đọc qua {@link PostCacheService}, phần theo người xem gắn sau
+   */
+  public PostResponseDTO getPost(Long postId, Long currentUserId) {
+    PostResponseDTO cached = postCacheService.get(postId, () -> postRepository.findByIdAndIsDeletedFalse(postId)
+        .map(post -> buildBase(List.of(post)).get(0))
+        .orElse(null));
+    if (cached == null) {
+      throw new EntityNotFoundException("Post not found");
+    }
+
+    // Bản trong cache dùng chung giữa các request, chỉ gắn trạng thái lên bản sao
+    PostResponseDTO dto = new PostResponseDTO(cached.getId(), cached.getCaption(), cached.getImageUrl(),
+        cached.getImageUrls(), cached.getVideoUrl(), cached.getLocation(), cached.getLikeCount(),
+        cached.getCommentCount(), cached.getShareCount(), cached.getCreatedAt(), cached.getUpdatedAt(),
+        cached.getUser(), cached.getHashtags());
+    overlay(List.of(dto), currentUserId);
+    return dto;
+  }
+
+  // Phần không phụ thuộc người xem: like_count là giá trị trong DB, chưa cộng phần chưa flush
+  private List<PostResponseDTO> buildBase(List<Post> posts) {
+    if (posts.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<Long> postIds = posts.stream()
+        .map(Post::getId)
+        .collect(Collectors.toList());
+    Set<Long> authorIds = posts.stream()
+        .map(post -> post.getUser().getId())
+        .collect(Collectors.toSet());
+
+    Map<Long, UserSummaryDTO> authors = userRepository.findSummariesByIds(authorIds).stream()
+        .collect(Collectors.toMap(UserSummaryDTO::getId, Function.identity()));
+
+    Map<Long, List<String>> hashtagsByPost = new HashMap<>();
+    for (Object[] row : postRepository.findHashtagNamesByPostIds(postIds)) {
+      hashtagsByPost.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+    }
+
+    return posts.stream()
+        .map(post -> toDTO(post,
+            authors.get(post.getUser().getId()),
+            hashtagsByPost.getOrDefault(post.getId(), new ArrayList<>())))
+        .collect(Collectors.toList());
+  }
+
+  // Gắn like chưa flush và trạng thái liked/saved của người xem
+  private void overlay(List<PostResponseDTO> dtos, Long currentUserId) {
+    if (dtos.isEmpty()) {
+      return;
+    }
+
+    List<Long> postIds = dtos.stream()
+        .map(PostResponseDTO::getId)
+        .collect(Collectors.toList());
+    Map<Long, Long> pendingLikes = likeCounterService.getPendingDeltas(postIds);
+
+    Set<Long> likedPostIds = new HashSet<>();
+    Set<Long> savedPostIds = new HashSet<>();
+    if (currentUserId != null) {
+      likedPostIds.addAll(postMembershipIndex.findLikedPostIds(currentUserId, postIds));
+      savedPostIds.addAll(postMembershipIndex.findSavedPostIds(currentUserId, postIds));
+    }
+
+    for (PostResponseDTO dto : dtos) {
+      dto.setLikeCount(dto.getLikeCount() + pendingLikes.getOrDefault(dto.getId(), 0L).intValue());
+      dto.setIsLikedByCurrentUser(likedPostIds.contains(dto.getId()));
+      dto.setIsSavedByCurrentUser(savedPostIds.contains(dto.getId()));
+    }
+  }
+
+  private PostResponseDTO toDTO(Post post, UserSummaryDTO author, List<String> hashtags) {
+    PostResponseDTO dto = new PostResponseDTO();
+    dto.setId(post.getId());
+    dto.setCaption(post.getCaption());
+    dto.setImageUrl(post.getImageUrl());
+    dto.setImageUrls(post.getImageUrls() != null ? new ArrayList<>(post.getImageUrls()) : new ArrayList<>());
+    dto.setVideoUrl(post.getVideoUrl());
+    dto.setLocation(post.getLocation());
+    dto.setLikeCount(post.getLikeCount());
+    dto.setCommentCount(post.getCommentCount());
+    dto.setShareCount(post.getShareCount());
+    dto.setCreatedAt(post.getCreatedAt());
+    dto.setUpdatedAt(post.getUpdatedAt());
+    dto.setUser(author);
+    dto.setHashtags(hashtags);
+    return dto;
+  }
+}
@@ -0,0 +1,393 @@
+package com.noxtragram.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.repository.LikeRepository;
+import com.noxtragram.repository.PostSaveRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Trả lời "user đã like / đã lưu post này chưa" bằng Bloom filter theo từng user.
+ *
+ * Bloom filter không có false negative: post không có trong filter thì chắc chắn chưa like/lưu,
+ * không cần hỏi DB. Chỉ những post "có thể có" mới được xác nhận lại bằng một query IN.
+ * Unlike/unsave không xóa bit được, post đó trở thành possible-positive và vẫn được DB xác nhận;
+ * filter được dựng lại sạch sau mỗi TTL.
+ *
+ * Filter chưa có thì request hỏi thẳng DB (trên connection đang dùng) và filter được dựng ở nền,
+ * đọc danh sách post theo từng lô keyset. Kích thước filter là lũy thừa của 2 chọn theo số phần tử
+ * lúc dựng, ghi trong header của bitset để mọi instance tính cùng offset.
+ *
+ * Bit 0 đánh dấu filter đã dựng xong, bit 1 được bật khi bắt đầu dựng để lượt like commit trong
+ * lúc đang dựng vẫn ghi được vào filter, các bit tiếp theo là log2 của kích thước.
+ */
+@Service
+public class PostMembershipIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(PostMembershipIndex.class);
+
+  // v2: có header kích thước, không đọc nhầm bitset cũ kích thước cố định
+  private static final String LIKES_KEY_PREFIX = "membership:v2:likes:";
+  private static final String SAVES_KEY_PREFIX = "membership:v2:saves:";
+
+  private static final long READY_BIT = 0;
+  private static final long CREATED_BIT = 1;
+  private static final long SIZE_OFFSET = 2;
+  private static final int SIZE_BITS = 5;
+  private static final long RESERVED_BITS = SIZE_OFFSET + SIZE_BITS;
+
+  // Khi đọc: bit READY rồi tới các bit kích thước, sau đó là offset của từng post
+  private static final int READ_HEADER_LENGTH = 1 + SIZE_BITS;
+
+  private final MembershipBitStore bitStore;
+  private final LikeRepository likeRepository;
+  private final PostSaveRepository postSaveRepository;
+  private final TaskExecutor rebuildExecutor;
+  private final TransactionTemplate rebuildTransaction;
+  private final int minLog2Bits;
+  private final int maxLog2Bits;
+  private final double falsePositiveRate;
+  private final int hashCount;
+  private final int rebuildBatchSize;
+  private final Duration ttl;
+  // log2 kích thước của các filter vừa đọc, để thường chỉ cần một lần gọi store; header được
+  // đọc kèm nên giá trị cũ (filter đã dựng lại với kích thước khác) sẽ bị phát hiện
+  private final Cache<String, Integer> filterSizes;
+  private final Set<String> rebuilding = ConcurrentHashMap.newKeySet();
+
+  public PostMembershipIndex(MembershipBitStore bitStore,
+      LikeRepository likeRepository,
+      PostSaveRepository postSaveRepository,
+      @Qualifier("membershipRebuildExecutor") TaskExecutor rebuildExecutor,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.membership.min-bits:16384}") long minBits,
+      @Value("${app.membership.max-bits:134217728}") long maxBits,
+      @Value("${app.membership.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${app.membership.hash-count:5}") int hashCount,
+      @Value("${app.membership.rebuild.batch-size:5000}") int rebuildBatchSize,
+      @Value("${app.membership.ttl:1d}") Duration ttl) {
+    this.bitStore = bitStore;
+    this.likeRepository = likeRepository;
+    this.postSaveRepository = postSaveRepository;
+    this.rebuildExecutor = rebuildExecutor;
+    this.minLog2Bits = log2Ceil(minBits);
+    this.maxLog2Bits = Math.max(minLog2Bits, log2Ceil(maxBits));
+    this.falsePositiveRate = falsePositiveRate;
+    this.hashCount = hashCount;
+    this.rebuildBatchSize = rebuildBatchSize;
+    this.ttl = ttl;
+    this.filterSizes = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterWrite(ttl)
+        .build();
+
+    // Mỗi lô đọc trong transaction ngắn của riêng nó trên thread dựng filter
+    this.rebuildTransaction = new TransactionTemplate(transactionManager);
+    this.rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.rebuildTransaction.setReadOnly(true);
+  }
+
+  public boolean hasLiked(Long userId, Long postId) {
+    return findLikedPostIds(userId, List.of(postId)).contains(postId);
+  }
+
+  public boolean hasSaved(Long userId, Long postId) {
+    return findSavedPostIds(userId, List.of(postId)).contains(postId);
+  }
+
+  /**
+   * Lấy ID các post trong danh sách mà user đã like
+   */
+  public Set<Long> findLikedPostIds(Long userId, Collection<Long> postIds) {
+    return findMembers(LIKES_KEY_PREFIX + userId, postIds,
+        () -> likeRepository.countByUserId(userId),
+        (afterPostId, page) -> likeRepository.findPostIdsByUserIdAfter(userId, afterPostId, page),
+        candidates -> likeRepository.findLikedPostIds(userId, candidates));
+  }
+
+  /**
+   * Lấy ID các post trong danh sách mà user đã lưu
+   */
+  public Set<Long> findSavedPostIds(Long userId, Collection<Long> postIds) {
+    return findMembers(SAVES_KEY_PREFIX + userId, postIds,
+        () -> postSaveRepository.countByUserId(userId),
+        (afterPostId, page) -> postSaveRepository.findPostIdsByUserIdAfter(userId, afterPostId, page),
+        candidates -> postSaveRepository.findSavedPostIds(userId, candidates));
+  }
+
+  public void recordLike(Long userId, Long postId) {
+    addAfterCommit(LIKES_KEY_PREFIX + userId, postId);
+  }
+
+  public void recordSave(Long userId, Long postId) {
+    addAfterCommit(SAVES_KEY_PREFIX + userId, postId);
+  }
+
+  private Set<Long> findMembers(String key, Collection<Long> postIds, Supplier<Long> counter,
+      BiFunction<Long, Pageable, List<Long>> pager, Function<Collection<Long>, List<Long>> verifier) {
+    if (postIds.isEmpty()) {
+      return new HashSet<>();
+    }
+
+    List<Long> candidates;
+    try {
+      candidates = mightContain(key, postIds);
+    } catch (DataAccessException e) {
+      logger.warn("Membership index unavailable for {}: {}", key, e.getMessage());
+      return new HashSet<>(verifier.apply(postIds));
+    }
+
+    if (candidates == null) {
+      // Filter chưa có (lần đầu hoặc hết TTL): hỏi DB cho trang này, dựng filter ở nền
+      scheduleRebuild(key, counter, pager);
+      return new HashSet<>(verifier.apply(postIds));
+    }
+    if (candidates.isEmpty()) {
+      return new HashSet<>();
+    }
+    // Possible-positive: xác nhận lại bằng DB
+    return new HashSet<>(verifier.apply(candidates));
+  }
+
+  // Trả về các post có thể thuộc tập, hoặc null nếu filter chưa dựng xong
+  private List<Long> mightContain(String key, Collection<Long> postIds) {
+    List<Long> ids = new ArrayList<>(postIds);
+    Integer cachedLog2Bits = filterSizes.getIfPresent(key);
+    int log2Bits = cachedLog2Bits != null ? cachedLog2Bits : 0;
+
+    boolean[] bits = readFilter(key, ids, log2Bits);
+    if (!bits[0]) {
+      return null;
+    }
+    int actualLog2Bits = decodeSize(bits, 1);
+    if (actualLog2Bits < minLog2Bits) {
+      // Header hỏng (key bị xóa rồi tạo lại giữa lúc dựng): coi như chưa có
+      return null;
+    }
+    if (actualLog2Bits != log2Bits) {
+      // Chưa biết kích thước hoặc filter đã được dựng lại với kích thước khác
+      filterSizes.put(key, actualLog2Bits);
+      bits = readFilter(key, ids, actualLog2Bits);
+      if (!bits[0] || decodeSize(bits, 1) != actualLog2Bits) {
+        return null;
+      }
+    }
+
+    List<Long> candidates = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i++) {
+      boolean present = true;
+      for (int j = 0; j < hashCount && present; j++) {
+        present = bits[READ_HEADER_LENGTH + i * hashCount + j];
+      }
+      if (present) {
+        candidates.add(ids.get(i));
+      }
+    }
+    return candidates;
+  }
+
+  // Một lần gọi store: header, kèm offset của các post nếu đã biết kích thước
+  private boolean[] readFilter(String key, List<Long> ids, int log2Bits) {
+    int postOffsets = log2Bits > 0 ? ids.size() * hashCount : 0;
+    long[] offsets = new long[READ_HEADER_LENGTH + postOffsets];
+    offsets[0] = READY_BIT;
+    for (int i = 0; i < SIZE_BITS; i++) {
+      offsets[1 + i] = SIZE_OFFSET + i;
+    }
+    if (log2Bits > 0) {
+      for (int i = 0; i < ids.size(); i++) {
+        System.arraycopy(offsetsOf(ids.get(i), log2Bits), 0, offsets, READ_HEADER_LENGTH + i * hashCount, hashCount);
+      }
+    }
+    return bitStore.getBits(key, offsets);
+  }
+
+  private void scheduleRebuild(String key, Supplier<Long> counter, BiFunction<Long, Pageable, List<Long>> pager) {
+    if (!rebuilding.add(key)) {
+      return;
+    }
+    try {
+      rebuildExecutor.execute(() -> {
+        try {
+          rebuild(key, counter, pager);
+        } catch (DataAccessException e) {
+          logger.error("Failed to rebuild membership index {}: {}", key, e.getMessage());
+        } finally {
+          rebuilding.remove(key);
+        }
+      });
+    } catch (TaskRejectedException e) {
+      // Hàng đợi đầy: request sau gặp filter chưa có sẽ thử lại
+      rebuilding.remove(key);
+    }
+  }
+
+  private void rebuild(String key, Supplier<Long> counter, BiFunction<Long, Pageable, List<Long>> pager) {
+    Long count = rebuildTransaction.execute(status -> counter.get());
+    int log2Bits = createFilter(key, log2BitsFor(count != null ? count : 0));
+    if (log2Bits < 0) {
+      return;
+    }
+
+    Pageable batch = PageRequest.of(0, rebuildBatchSize);
+    long afterPostId = 0;
+    long loaded = 0;
+    List<Long> chunk;
+    do {
+      long from = afterPostId;
+      chunk = rebuildTransaction.execute(status -> pager.apply(from, batch));
+      if (chunk == null || chunk.isEmpty()) {
+        break;
+      }
+      long[] offsets = new long[chunk.size() * hashCount];
+      for (int i = 0; i < chunk.size(); i++) {
+        System.arraycopy(offsetsOf(chunk.get(i), log2Bits), 0, offsets, i * hashCount, hashCount);
+      }
+      bitStore.setBits(key, offsets, ttl);
+      afterPostId = chunk.get(chunk.size() - 1);
+      loaded += chunk.size();
+    } while (chunk.size() == rebuildBatchSize);
+
+    // Đánh dấu đã dựng xong sau khi mọi bit đã được ghi
+    bitStore.setBits(key, new long[] { READY_BIT }, ttl);
+    filterSizes.put(key, log2Bits);
+    logger.debug("Rebuilt membership index {} with {} entries ({} bits)", key, loaded, 1L << log2Bits);
+  }
+
+  /**
+   * Tạo key với header trước khi đọc DB: like commit sau thời điểm này sẽ tự ghi vào filter.
+   * Key đã có (instance khác đang dựng, hoặc lần dựng trước bị dừng giữa chừng) thì dùng lại
+   * kích thước trong header để mọi bên ghi cùng offset. Trả về -1 nếu không dùng được key.
+   */
+  private int createFilter(String key, int log2Bits) {
+    if (bitStore.create(key, headerOffsets(log2Bits), ttl)) {
+      return log2Bits;
+    }
+    int existing = readSize(key);
+    if (existing >= minLog2Bits) {
+      return existing;
+    }
+    // Header hỏng: bỏ key, request sau sẽ dựng lại
+    bitStore.delete(key);
+    return -1;
+  }
+
+  // log2 kích thước ghi trong header, 0 nếu key chưa được tạo
+  private int readSize(String key) {
+    long[] header = new long[1 + SIZE_BITS];
+    header[0] = CREATED_BIT;
+    for (int i = 0; i < SIZE_BITS; i++) {
+      header[1 + i] = SIZE_OFFSET + i;
+    }
+    boolean[] bits = bitStore.getBits(key, header);
+    return bits[0] ? decodeSize(bits, 1) : 0;
+  }
+
+  // Chỉ ghi vào filter khi transaction like/save đã commit
+  private void addAfterCommit(String key, Long postId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      add(key, postId);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        add(key, postId);
+      }
+    });
+  }
+
+  private void add(String key, Long postId) {
+    try {
+      // Đọc kích thước từ header của chính filter, không tin cache cục bộ khi ghi
+      int log2Bits = readSize(key);
+      if (log2Bits < minLog2Bits) {
+        // Chưa có filter: lần dựng sau sẽ đọc được like này từ DB
+        return;
+      }
+      bitStore.setBitsIfPresent(key, offsetsOf(postId, log2Bits));
+    } catch (DataAccessException e) {
+      // Filter thiếu phần tử sẽ cho false negative: bỏ filter để lần đọc sau dựng lại
+      logger.error("Failed to update membership index {}: {}", key, e.getMessage());
+      try {
+        bitStore.delete(key);
+      } catch (DataAccessException ignored) {
+        // Redis vẫn lỗi: filter sẽ tự hết hạn theo TTL
+      }
+    }
+  }
+
+  // m = -n ln(p) / (ln 2)^2, làm tròn lên lũy thừa của 2 trong [min-bits, max-bits]
+  private int log2BitsFor(long members) {
+    long bits = (long) Math.ceil(-Math.max(members, 1) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    return Math.max(minLog2Bits, Math.min(log2Ceil(bits + RESERVED_BITS), maxLog2Bits));
+  }
+
+  private long[] headerOffsets(int log2Bits) {
+    List<Long> offsets = new ArrayList<>();
+    offsets.add(CREATED_BIT);
+    for (int i = 0; i < SIZE_BITS; i++) {
+      if (((log2Bits >>> (SIZE_BITS - 1 - i)) & 1) == 1) {
+        offsets.add(SIZE_OFFSET + i);
+      }
+    }
+    return offsets.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private static int decodeSize(boolean[] bits, int from) {
+    int log2Bits = 0;
+    for (int i = 0; i < SIZE_BITS; i++) {
+      log2Bits = (log2Bits << 1) | (bits[from + i] ? 1 : 0);
+    }
+    return log2Bits;
+  }
+
+  // Double hashing: offset_i = h1 + i * h2, bỏ qua các bit dành riêng
+  private long[] offsetsOf(Long postId, int log2Bits) {
+    long usableBits = (1L << log2Bits) - RESERVED_BITS;
+    long h1 = mix(postId);
+    long h2 = mix(h1) | 1;
+    long[] offsets = new long[hashCount];
+    for (int i = 0; i < hashCount; i++) {
+      offsets[i] = RESERVED_BITS + Math.floorMod(h1 + i * h2, usableBits);
+    }
+    return offsets;
+  }
+
+  private static int log2Ceil(long value) {
+    return 64 - Long.numberOfLeadingZeros(Math.max(value, 2) - 1);
+  }
+
+  // SplitMix64 finalizer
+  private static long mix(long x) {
+    x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+    x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+    return x ^ (x >>> 31);
+  }
+}
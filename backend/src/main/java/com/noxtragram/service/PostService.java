@@ -1,6 +1,7 @@
 package com.noxtragram.service;
 
 import com.noxtragram.model.dto.request.PostRequestDTO;
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.dto.response.PostResponseDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -20,6 +21,13 @@ public interface PostService {
 
   Page<PostResponseDTO> getPostsByHashtag(String hashtag, Long currentUserId, Pageable pageable);
 
+  // Keyset pagination: cursor null/rỗng là trang đầu tiên
+  CursorPageResponseDTO<PostResponseDTO> getPostsByUserIdByCursor(Long userId, Long currentUserId, String cursor, int size);
+
+  CursorPageResponseDTO<PostResponseDTO> getFeedPostsByCursor(Long currentUserId, String cursor, int size);
+
+  CursorPageResponseDTO<PostResponseDTO> getPostsByHashtagByCursor(String hashtag, Long currentUserId, String cursor, int size);
+
   Page<PostResponseDTO> getSavedPosts(Long userId, Long currentUserId, Pageable pageable);
 
   Page<PostResponseDTO> getPopularPosts(Long currentUserId, Pageable pageable);
@@ -0,0 +1,15 @@
+package com.noxtragram.service;
+
+/**
+ * Gửi message realtime tới user qua WebSocket, không phụ thuộc user đang kết nối vào instance nào.
+ *
+ * Chọn theo {@code app.websocket.broker}: simple / relay gửi thẳng qua SimpMessagingTemplate
+ * (relay tự định tuyến giữa các node), redis fan-out qua Redis pub/sub tới mọi instance.
+ */
+public interface RealtimePublisher {
+
+  /**
+   * Gửi tới user destination, ví dụ sendToUser(42L, "/queue/messages", dto)
+   */
+  void sendToUser(Long userId, String destination, Object payload);
+}
@@ -0,0 +1,96 @@
+package com.noxtragram.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "app.membership.store", havingValue = "redis", matchIfMissing = true)
+public class RedisMembershipBitStore implements MembershipBitStore {
+
+  // ARGV[1] là TTL (ms), các ARGV còn lại là offset cần bật
+  private static final RedisScript<Long> SET_BITS_SCRIPT = new DefaultRedisScript<>(
+      "for i = 2, #ARGV do redis.call('SETBIT', KEYS[1], ARGV[i], 1) end " +
+          "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+          "return 1",
+      Long.class);
+
+  // Như SET_BITS_SCRIPT nhưng chỉ khi key chưa tồn tại
+  private static final RedisScript<Long> CREATE_SCRIPT = new DefaultRedisScript<>(
+      "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+          "for i = 2, #ARGV do redis.call('SETBIT', KEYS[1], ARGV[i], 1) end " +
+          "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+          "return 1",
+      Long.class);
+
+  private static final RedisScript<Long> SET_BITS_IF_PRESENT_SCRIPT = new DefaultRedisScript<>(
+      "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+          "for i = 1, #ARGV do redis.call('SETBIT', KEYS[1], ARGV[i], 1) end " +
+          "return 1 end " +
+          "return 0",
+      Long.class);
+
+  private final StringRedisTemplate redisTemplate;
+
+  public RedisMembershipBitStore(StringRedisTemplate redisTemplate) {
+    this.redisTemplate = redisTemplate;
+  }
+
+  @Override
+  public boolean[] getBits(String key, long[] offsets) {
+    // Một lệnh BITFIELD cho cả trang thay vì từng GETBIT
+    BitFieldSubCommands commands = BitFieldSubCommands.create();
+    for (long offset : offsets) {
+      commands = commands.get(BitFieldSubCommands.BitFieldType.unsigned(1)).valueAt(offset);
+    }
+
+    List<Long> values = redisTemplate.opsForValue().bitField(key, commands);
+    boolean[] bits = new boolean[offsets.length];
+    if (values != null) {
+      for (int i = 0; i < bits.length && i < values.size(); i++) {
+        bits[i] = values.get(i) != null && values.get(i) == 1L;
+      }
+    }
+    return bits;
+  }
+
+  @Override
+  public void setBits(String key, long[] offsets, Duration ttl) {
+    redisTemplate.execute(SET_BITS_SCRIPT, List.of(key), ttlAndOffsets(offsets, ttl));
+  }
+
+  @Override
+  public boolean create(String key, long[] offsets, Duration ttl) {
+    return Long.valueOf(1).equals(redisTemplate.execute(CREATE_SCRIPT, List.of(key), ttlAndOffsets(offsets, ttl)));
+  }
+
+  @Override
+  public void setBitsIfPresent(String key, long[] offsets) {
+    List<String> args = new ArrayList<>(offsets.length);
+    for (long offset : offsets) {
+      args.add(String.valueOf(offset));
+    }
+    redisTemplate.execute(SET_BITS_IF_PRESENT_SCRIPT, List.of(key), args.toArray());
+  }
+
+  @Override
+  public void delete(String key) {
+    redisTemplate.delete(key);
+  }
+
+  private static Object[] ttlAndOffsets(long[] offsets, Duration ttl) {
+    List<String> args = new ArrayList<>(offsets.length + 1);
+    args.add(String.valueOf(ttl.toMillis()));
+    for (long offset : offsets) {
+      args.add(String.valueOf(offset));
+    }
+    return args.toArray();
+  }
+}
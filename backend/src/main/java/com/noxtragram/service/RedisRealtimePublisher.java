@@ -0,0 +1,86 @@
+package com.noxtragram.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fan-out message realtime qua Redis pub/sub.
+ *
+ * Mỗi instance vẫn dùng SimpleBroker cho session của mình. Message được publish lên một channel
+ * chung, mọi instance (kể cả instance gửi) nhận và chỉ chuyển vào broker cục bộ nếu user đang có
+ * session ở đó. Không lưu lại message: user offline sẽ không nhận, giống SimpleBroker.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websocket.broker", havingValue = "redis")
+public class RedisRealtimePublisher implements RealtimePublisher {
+
+  private static final Logger logger = LoggerFactory.getLogger(RedisRealtimePublisher.class);
+
+  static final String CHANNEL = "ws:user-messages";
+
+  private final StringRedisTemplate redisTemplate;
+  private final SimpMessagingTemplate messagingTemplate;
+  private final SimpUserRegistry userRegistry;
+  private final ObjectMapper objectMapper;
+
+  public RedisRealtimePublisher(StringRedisTemplate redisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      SimpMessagingTemplate messagingTemplate,
+      SimpUserRegistry userRegistry,
+      ObjectMapper objectMapper) {
+    this.redisTemplate = redisTemplate;
+    this.messagingTemplate = messagingTemplate;
+    this.userRegistry = userRegistry;
+    this.objectMapper = objectMapper;
+
+    listenerContainer.addMessageListener(
+        (message, pattern) -> deliver(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(CHANNEL));
+  }
+
+  @Override
+  public void sendToUser(Long userId, String destination, Object payload) {
+    ObjectNode envelope = objectMapper.createObjectNode();
+    envelope.put("user", userId.toString());
+    envelope.put("destination", destination);
+    envelope.set("payload", objectMapper.valueToTree(payload));
+
+    try {
+      redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(envelope));
+    } catch (JsonProcessingException | DataAccessException e) {
+      // Redis lỗi: vẫn giao được cho session trên instance này
+      logger.warn("Failed to publish realtime message to user {}: {}", userId, e.getMessage());
+      messagingTemplate.convertAndSendToUser(userId.toString(), destination, envelope.get("payload"));
+    }
+  }
+
+  /**
+   * Nhận message từ channel, chuyển vào broker cục bộ nếu user có session ở instance này
+   */
+  void deliver(String json) {
+    try {
+      JsonNode envelope = objectMapper.readTree(json);
+      String user = envelope.path("user").asText();
+      if (userRegistry.getUser(user) == null) {
+        return;
+      }
+      messagingTemplate.convertAndSendToUser(user, envelope.path("destination").asText(), envelope.get("payload"));
+    } catch (JsonProcessingException e) {
+      logger.error("Invalid realtime message on {}: {}", CHANNEL, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package com.noxtragram.service;
+
+import com.noxtragram.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách token bị thu hồi: theo jti (logout) và theo user (mọi token phát hành trước một mốc).
+ *
+ * Redis là nguồn dữ liệu chính: sorted set jti -> thời điểm hết hạn của token. Mỗi instance giữ
+ * một Bloom filter cục bộ để trả lời "chắc chắn chưa bị thu hồi" mà không ra mạng; chỉ jti
+ * possible-positive mới hỏi lại Redis. Thu hồi được publish qua pub/sub để các instance khác
+ * thêm vào filter ngay. Filter được dựng lại định kỳ từ Redis để bỏ các jti đã hết hạn.
+ *
+ * Thu hồi theo user (xóa, khóa tài khoản, đổi / đặt lại mật khẩu) lưu userId -> mốc trong một
+ * sorted set khác và giữ toàn bộ ở map cục bộ: số user bị thu hồi trong một vòng đời token nhỏ.
+ * Mốc quá một vòng đời token thì bỏ, vì mọi token phát hành trước đó đều đã hết hạn.
+ */
+@Service
+public class TokenRevocationService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  private static final String REVOKED_KEY = "auth:revoked";
+  private static final String CHANNEL = "auth:revocations";
+  private static final String USER_CUTOFFS_KEY = "auth:revoked-users";
+  private static final String USER_CHANNEL = "auth:user-revocations";
+
+  private final StringRedisTemplate redisTemplate;
+  private final long expectedInsertions;
+  private final double falsePositiveRate;
+  private final long tokenLifetimeMs;
+
+  private volatile BloomFilter filter;
+  // Filter đang dựng lại: thu hồi nhận được trong lúc dựng cũng được ghi vào đây
+  private volatile BloomFilter building;
+  // Chưa load xong từ Redis thì không tin filter, hỏi Redis trực tiếp
+  private volatile boolean ready;
+  // jti đã được Redis xác nhận bị thu hồi -> thời điểm hết hạn, tránh hỏi lại mỗi request
+  private final ConcurrentHashMap<String, Long> confirmed = new ConcurrentHashMap<>();
+  // userId -> token phát hành trước thời điểm này (epoch ms) bị từ chối
+  private volatile ConcurrentHashMap<Long, Long> userCutoffs = new ConcurrentHashMap<>();
+
+  public TokenRevocationService(StringRedisTemplate redisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      @Value("${app.auth.revocation.expected-insertions:100000}") long expectedInsertions,
+      @Value("${app.auth.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+      @Value("${app.jwt.expirationMs}") long tokenLifetimeMs) {
+    this.redisTemplate = redisTemplate;
+    this.expectedInsertions = expectedInsertions;
+    this.falsePositiveRate = falsePositiveRate;
+    this.tokenLifetimeMs = tokenLifetimeMs;
+    this.filter = BloomFilter.create(expectedInsertions, falsePositiveRate);
+
+    listenerContainer.addMessageListener(
+        (message, pattern) -> addLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(CHANNEL));
+    listenerContainer.addMessageListener(
+        (message, pattern) -> addUserCutoffLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(USER_CHANNEL));
+  }
+
+  /**
+   * Thu hồi token tới khi nó hết hạn
+   */
+  public void revoke(String jti, Instant expiresAt) {
+    if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+      return;
+    }
+    redisTemplate.opsForZSet().add(REVOKED_KEY, jti, expiresAt.toEpochMilli());
+    addLocal(jti);
+    confirmed.put(jti, expiresAt.toEpochMilli());
+    try {
+      redisTemplate.convertAndSend(CHANNEL, jti);
+    } catch (DataAccessException e) {
+      // Instance khác vẫn thấy jti sau lần dựng lại filter kế tiếp
+      logger.warn("Failed to publish token revocation {}: {}", jti, e.getMessage());
+    }
+  }
+
+  /**
+   * Thu hồi mọi token của user phát hành tới thời điểm này
+   */
+  public void revokeAllForUser(Long userId) {
+    long cutoff = System.currentTimeMillis();
+    redisTemplate.opsForZSet().add(USER_CUTOFFS_KEY, userId.toString(), cutoff);
+    putUserCutoff(userId, cutoff);
+    try {
+      redisTemplate.convertAndSend(USER_CHANNEL, userId + ":" + cutoff);
+    } catch (DataAccessException e) {
+      logger.warn("Failed to publish token revocation for user {}: {}", userId, e.getMessage());
+    }
+  }
+
+  /**
+   * Như revokeAllForUser nhưng chờ transaction hiện tại commit: rollback thì token vẫn dùng được
+   */
+  public void revokeAllForUserAfterCommit(Long userId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      revokeAllForUser(userId);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        revokeAllForUser(userId);
+      }
+    });
+  }
+
+  /**
+   * Token bị thu hồi theo jti, hoặc được phát hành trước mốc thu hồi của user
+   */
+  public boolean isRevoked(String jti, Long userId, Date issuedAt) {
+    return isRevoked(jti) || isIssuedBeforeUserCutoff(userId, issuedAt);
+  }
+
+  public boolean isRevoked(String jti) {
+    if (jti == null) {
+      return false;
+    }
+    if (ready && !filter.mightContain(jti)) {
+      return false;
+    }
+
+    Long expiresAt = confirmed.get(jti);
+    if (expiresAt != null) {
+      return true;
+    }
+
+    try {
+      Double score = redisTemplate.opsForZSet().score(REVOKED_KEY, jti);
+      if (score == null || score.longValue() <= System.currentTimeMillis()) {
+        return false;
+      }
+      confirmed.put(jti, score.longValue());
+      return true;
+    } catch (DataAccessException e) {
+      // Đã có filter thì chỉ jti possible-positive mới tới đây: thà từ chối nhầm còn hơn cho token
+      // đã thu hồi đi qua. Chưa load được filter (Redis lỗi từ lúc khởi động) thì không chặn mọi request.
+      logger.warn("Token revocation store unavailable for {}: {}", jti, e.getMessage());
+      return ready;
+    }
+  }
+
+  // iat chỉ có độ phân giải giây: token phát hành trong cùng giây với mốc cũng bị từ chối
+  private boolean isIssuedBeforeUserCutoff(Long userId, Date issuedAt) {
+    if (userId == null) {
+      return false;
+    }
+
+    Long cutoff = userCutoffs.get(userId);
+    if (cutoff == null && !ready) {
+      try {
+        Double score = redisTemplate.opsForZSet().score(USER_CUTOFFS_KEY, userId.toString());
+        cutoff = score != null ? score.longValue() : null;
+      } catch (DataAccessException e) {
+        logger.warn("Token revocation store unavailable for user {}: {}", userId, e.getMessage());
+      }
+    }
+    return cutoff != null && (issuedAt == null || issuedAt.getTime() < cutoff);
+  }
+
+  /**
+   * Dựng lại filter từ Redis và dọn các jti đã hết hạn (lần đầu ngay khi khởi động)
+   */
+  @Scheduled(initialDelay = 0, fixedDelayString = "${app.auth.revocation.rebuild-interval:600000}")
+  public void rebuild() {
+    long now = System.currentTimeMillis();
+    BloomFilter next = BloomFilter.create(expectedInsertions, falsePositiveRate);
+    building = next;
+    try {
+      redisTemplate.opsForZSet().removeRangeByScore(REVOKED_KEY, Double.NEGATIVE_INFINITY, now);
+      Set<String> revoked = redisTemplate.opsForZSet().rangeByScore(REVOKED_KEY, now, Double.POSITIVE_INFINITY);
+      int count = 0;
+      if (revoked != null) {
+        for (String jti : revoked) {
+          next.add(jti);
+          count++;
+        }
+      }
+
+      long oldestLiveCutoff = now - tokenLifetimeMs;
+      redisTemplate.opsForZSet().removeRangeByScore(USER_CUTOFFS_KEY, Double.NEGATIVE_INFINITY, oldestLiveCutoff);
+      Set<ZSetOperations.TypedTuple<String>> cutoffs = redisTemplate.opsForZSet()
+          .rangeByScoreWithScores(USER_CUTOFFS_KEY, oldestLiveCutoff, Double.POSITIVE_INFINITY);
+      ConcurrentHashMap<Long, Long> nextCutoffs = new ConcurrentHashMap<>();
+      if (cutoffs != null) {
+        for (ZSetOperations.TypedTuple<String> cutoff : cutoffs) {
+          if (cutoff.getValue() != null && cutoff.getScore() != null) {
+            nextCutoffs.put(Long.valueOf(cutoff.getValue()), cutoff.getScore().longValue());
+          }
+        }
+      }
+
+      synchronized (this) {
+        filter = next;
+        building = null;
+        // Giữ các mốc nhận qua pub/sub trong lúc đọc Redis
+        userCutoffs.forEach((userId, cutoff) -> {
+          if (cutoff > oldestLiveCutoff) {
+            nextCutoffs.merge(userId, cutoff, Math::max);
+          }
+        });
+        userCutoffs = nextCutoffs;
+      }
+      ready = true;
+      confirmed.values().removeIf(expiresAt -> expiresAt <= now);
+      logger.debug("Rebuilt token revocation filter with {} entries", count);
+    } catch (DataAccessException e) {
+      logger.error("Failed to rebuild token revocation filter: {}", e.getMessage());
+    } finally {
+      building = null;
+    }
+  }
+
+  // Payload "userId:cutoff"
+  private void addUserCutoffLocal(String payload) {
+    int separator = payload.indexOf(':');
+    if (separator < 0) {
+      return;
+    }
+    try {
+      putUserCutoff(Long.valueOf(payload.substring(0, separator)), Long.parseLong(payload.substring(separator + 1)));
+    } catch (NumberFormatException e) {
+      logger.warn("Ignoring malformed user revocation message: {}", payload);
+    }
+  }
+
+  // Đồng bộ với bước swap map khi dựng lại để không mất mốc vừa nhận
+  private synchronized void putUserCutoff(Long userId, long cutoff) {
+    userCutoffs.merge(userId, cutoff, Math::max);
+  }
+
+  // Đồng bộ với bước swap filter để không lọt jti nhận được đúng lúc dựng xong
+  private synchronized void addLocal(String jti) {
+    filter.add(jti);
+    BloomFilter next = building;
+    if (next != null) {
+      next.add(jti);
+    }
+  }
+}
@@ -0,0 +1,317 @@
+package com.noxtragram.service;
+
+import com.noxtragram.event.PostCreatedEvent;
+import com.noxtragram.model.dto.TrendingHashtagDTO;
+import com.noxtragram.model.entity.Hashtag;
+import com.noxtragram.repository.HashtagRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Xếp hạng hashtag trending theo lượt dùng gần đây, dùng chung cho mọi instance.
+ *
+ * Lượt dùng được đếm tạm trong bộ nhớ rồi mỗi lần rotate cộng dồn (ZINCRBY) vào bucket chung trên
+ * Redis. Bucket được khóa theo số thứ tự tính từ epoch nên mọi instance ghi vào cùng một bucket.
+ * Mỗi bucket đã đóng được từng instance đọc về đúng một lần: điểm của mọi hashtag nhân với hệ số
+ * decay, cộng số lượt của bucket đó và trừ phần đóng góp của bucket vừa rơi khỏi cửa sổ. Mọi instance
+ * áp dụng cùng các bucket nên /trending trả về như nhau dù request rơi vào instance nào, và khởi động
+ * lại chỉ cần đọc lại các bucket còn trong cửa sổ. Top-K được tính lại ngay lúc đó nên
+ * {@link #getTrending(int)} chỉ đọc một danh sách có sẵn.
+ *
+ * Tên hashtag được gộp theo {@link HashtagResolver#key(String)} để "#Java" và "#java" là một hashtag.
+ */
+@Service
+public class TrendingHashtagService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TrendingHashtagService.class);
+
+  private static final String BUCKET_KEY_PREFIX = "trending:hashtags:bucket:";
+
+  // Điểm nhỏ hơn ngưỡng này coi như bằng 0 (bỏ sai số cộng trừ số thực)
+  private static final double MIN_SCORE = 1e-3;
+
+  private final HashtagRepository hashtagRepository;
+  private final StringRedisTemplate redisTemplate;
+  private final long bucketWidthMs;
+  private final int windowBuckets;
+  private final int topK;
+  private final double decayPerBucket;
+  private final Duration bucketTtl;
+
+  // Lượt dùng chưa ghi lên Redis, ghi đồng thời từ các request
+  private final AtomicReference<ConcurrentHashMap<String, LongAdder>> pending =
+      new AtomicReference<>(new ConcurrentHashMap<>());
+
+  // Giữ khi đọc / đổi closedBuckets và scores. Không giữ khi gọi Redis hay query DB: ReentrantLock
+  // thay cho synchronized để không ghim carrier thread ở chế độ virtual thread
+  private final ReentrantLock stateLock = new ReentrantLock();
+
+  // Các bucket chung đã áp dụng (mới nhất ở đầu), điểm đã decay và số thứ tự bucket mới nhất đã áp dụng
+  private final Deque<Map<String, Long>> closedBuckets = new ArrayDeque<>();
+  private final Map<String, Double> scores = new HashMap<>();
+  private long lastAppliedBucket = -1;
+
+  private volatile List<TrendingHashtagDTO> topHashtags = List.of();
+
+  public TrendingHashtagService(HashtagRepository hashtagRepository,
+      StringRedisTemplate redisTemplate,
+      @Value("${app.trending.bucket-width:60000}") long bucketWidthMs,
+      @Value("${app.trending.window:86400000}") long windowMs,
+      @Value("${app.trending.half-life:21600000}") long halfLifeMs,
+      @Value("${app.trending.top-k:100}") int topK) {
+    this.hashtagRepository = hashtagRepository;
+    this.redisTemplate = redisTemplate;
+    this.bucketWidthMs = bucketWidthMs;
+    this.windowBuckets = (int) Math.max(1, windowMs / bucketWidthMs);
+    this.topK = topK;
+    this.decayPerBucket = Math.pow(0.5, (double) bucketWidthMs / halfLifeMs);
+    // Bucket tự hết hạn khi đã rơi khỏi cửa sổ của mọi instance
+    this.bucketTtl = Duration.ofMillis(windowMs + 2 * bucketWidthMs);
+  }
+
+  /**
+   * Top hashtag trending đã tính sẵn, rỗng nếu chưa có dữ liệu
+   */
+  public List<TrendingHashtagDTO> getTrending(int limit) {
+    List<TrendingHashtagDTO> snapshot = topHashtags;
+    return snapshot.subList(0, Math.max(0, Math.min(limit, snapshot.size())));
+  }
+
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+  public void onPostCreated(PostCreatedEvent event) {
+    ConcurrentHashMap<String, LongAdder> counts = pending.get();
+    for (String hashtag : event.getHashtags()) {
+      counts.computeIfAbsent(HashtagResolver.key(hashtag), name -> new LongAdder()).increment();
+    }
+  }
+
+  /**
+   * Ghi lượt dùng đang chờ vào bucket chung hiện tại, áp dụng các bucket chung đã đóng và tính lại top-K
+   */
+  @Scheduled(fixedRateString = "${app.trending.bucket-width:60000}")
+  public void rotate() {
+    rotate(System.currentTimeMillis());
+  }
+
+  /**
+   * Khởi động: đọc lại các bucket chung còn trong cửa sổ
+   */
+  @PostConstruct
+  public void restore() {
+    rotate();
+    int restored;
+    stateLock.lock();
+    try {
+      restored = closedBuckets.size();
+    } finally {
+      stateLock.unlock();
+    }
+    logger.info("Restored {} trending hashtag buckets from Redis", restored);
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flushPending(System.currentTimeMillis() / bucketWidthMs);
+  }
+
+  void rotate(long nowMs) {
+    long current = nowMs / bucketWidthMs;
+    // Lượt dùng cuối bucket trước có thể rơi vào bucket hiện tại: trễ tối đa một bucket, không mất.
+    // Nhờ vậy bucket k chỉ nhận ghi khi đồng hồ còn trong k, đọc từ k + 1 là đã đủ.
+    flushPending(current);
+
+    long from;
+    stateLock.lock();
+    try {
+      from = lastAppliedBucket < 0 ? current - windowBuckets
+          : Math.max(lastAppliedBucket + 1, current - windowBuckets);
+    } finally {
+      stateLock.unlock();
+    }
+    if (from >= current) {
+      return;
+    }
+
+    List<Map<String, Long>> buckets = readBuckets(from, current);
+    if (buckets == null) {
+      return;
+    }
+
+    List<Map.Entry<String, Double>> ranked;
+    stateLock.lock();
+    try {
+      // Instance dừng lâu hơn cửa sổ: mọi điểm cũ đã hết hạn
+      if (lastAppliedBucket >= 0 && from > lastAppliedBucket + 1) {
+        closedBuckets.clear();
+        scores.clear();
+      }
+      for (int i = 0; i < buckets.size(); i++) {
+        if (from + i > lastAppliedBucket) {
+          advance(buckets.get(i));
+        }
+      }
+      lastAppliedBucket = Math.max(lastAppliedBucket, current - 1);
+      ranked = rankTop();
+    } finally {
+      stateLock.unlock();
+    }
+    publishTop(ranked);
+  }
+
+  private void flushPending(long bucket) {
+    Map<String, Long> counts = pending.getAndSet(new ConcurrentHashMap<>()).entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    if (counts.isEmpty()) {
+      return;
+    }
+
+    String key = bucketKey(bucket);
+    try {
+      redisTemplate.executePipelined(new SessionCallback<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object execute(RedisOperations operations) {
+          counts.forEach((hashtag, count) -> operations.opsForZSet().incrementScore(key, hashtag, count));
+          operations.expire(key, bucketTtl);
+          return null;
+        }
+      });
+    } catch (DataAccessException e) {
+      // Giữ lại để lần rotate sau ghi tiếp
+      ConcurrentHashMap<String, LongAdder> retry = pending.get();
+      counts.forEach((hashtag, count) -> retry.computeIfAbsent(hashtag, name -> new LongAdder()).add(count));
+      logger.warn("Failed to flush trending hashtag counts: {}", e.getMessage());
+    }
+  }
+
+  // Các bucket chung [from, to), cũ nhất trước; null nếu Redis lỗi để lần rotate sau đọc lại
+  private List<Map<String, Long>> readBuckets(long from, long to) {
+    List<Object> results;
+    try {
+      results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object execute(RedisOperations operations) {
+          for (long bucket = from; bucket < to; bucket++) {
+            operations.opsForZSet().rangeWithScores(bucketKey(bucket), 0, -1);
+          }
+          return null;
+        }
+      });
+    } catch (DataAccessException e) {
+      logger.warn("Failed to read trending hashtag buckets: {}", e.getMessage());
+      return null;
+    }
+
+    List<Map<String, Long>> buckets = new ArrayList<>(results.size());
+    for (Object result : results) {
+      Map<String, Long> counts = new HashMap<>();
+      if (result instanceof Collection<?> tuples) {
+        for (Object tuple : tuples) {
+          if (tuple instanceof TypedTuple<?> typed && typed.getValue() != null && typed.getScore() != null) {
+            counts.put(typed.getValue().toString(), Math.round(typed.getScore()));
+          }
+        }
+      }
+      buckets.add(counts);
+    }
+    return buckets;
+  }
+
+  private static String bucketKey(long bucket) {
+    return BUCKET_KEY_PREFIX + bucket;
+  }
+
+  private void advance(Map<String, Long> closed) {
+    // Mọi bucket cũ thêm một bước tuổi
+    scores.replaceAll((hashtag, score) -> score * decayPerBucket);
+
+    closedBuckets.addFirst(closed);
+    closed.forEach((hashtag, count) -> scores.merge(hashtag, (double) count, Double::sum));
+
+    // Bucket rơi khỏi cửa sổ: trừ phần đóng góp đã decay của nó
+    if (closedBuckets.size() > windowBuckets) {
+      Map<String, Long> expired = closedBuckets.removeLast();
+      double expiredWeight = Math.pow(decayPerBucket, windowBuckets);
+      expired.forEach((hashtag, count) -> scores.computeIfPresent(hashtag,
+          (name, score) -> score - count * expiredWeight));
+    }
+
+    scores.values().removeIf(score -> score < MIN_SCORE);
+  }
+
+  // Gọi khi đang giữ stateLock
+  private List<Map.Entry<String, Double>> rankTop() {
+    // Heap kích thước K: O(n log K) thay vì sắp xếp toàn bộ
+    PriorityQueue<Map.Entry<String, Double>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+    for (Map.Entry<String, Double> entry : scores.entrySet()) {
+      if (heap.size() < topK) {
+        heap.offer(Map.entry(entry.getKey(), entry.getValue()));
+      } else if (entry.getValue() > heap.peek().getValue()) {
+        heap.poll();
+        heap.offer(Map.entry(entry.getKey(), entry.getValue()));
+      }
+    }
+
+    List<Map.Entry<String, Double>> ranked = new ArrayList<>(heap);
+    ranked.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+    return ranked;
+  }
+
+  // Gọi ngoài stateLock: query DB không chặn checkpoint trong lúc chờ connection
+  private void publishTop(List<Map.Entry<String, Double>> ranked) {
+    if (ranked.isEmpty()) {
+      topHashtags = List.of();
+      return;
+    }
+
+    // Khóa -> hashtag trong DB, để hiển thị đúng tên gốc kèm post_count
+    Map<String, Hashtag> hashtags = new HashMap<>();
+    try {
+      hashtags = hashtagRepository.findByNames(ranked.stream().map(Map.Entry::getKey).toList()).stream()
+          .collect(Collectors.toMap(hashtag -> HashtagResolver.key(hashtag.getName()), Function.identity(),
+              (a, b) -> a));
+    } catch (DataAccessException e) {
+      logger.warn("Failed to load post counts for trending hashtags: {}", e.getMessage());
+    }
+
+    Map<String, Hashtag> byKey = hashtags;
+    topHashtags = ranked.stream()
+        .map(entry -> {
+          Hashtag hashtag = byKey.get(entry.getKey());
+          return new TrendingHashtagDTO(hashtag != null ? hashtag.getName() : entry.getKey(),
+              hashtag != null ? hashtag.getPostCount() : 0,
+              (int) Math.round(entry.getValue()));
+        })
+        .collect(Collectors.toUnmodifiableList());
+  }
+}
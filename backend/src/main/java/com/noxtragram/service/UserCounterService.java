@@ -0,0 +1,227 @@
+package com.noxtragram.service;
+
+import com.noxtragram.model.dto.response.UserResponseDTO;
+import com.noxtragram.model.entity.User;
+import com.noxtragram.util.DeltaAccumulator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giữ post_count, follower_count, following_count của user trong cột của bảng users.
+ *
+ * Follow / unfollow / tạo / xóa post chỉ cộng delta vào bộ nhớ sau khi commit, định kỳ ghi theo lô
+ * như like_count (user nhiều follower không thành dòng bị khóa liên tục). Khi đọc, cộng thêm phần
+ * delta chưa flush nên UserResponseDTO có số đúng mà không cần query thêm. Job đối soát đếm lại
+ * từ bảng gốc để sửa sai lệch và điền số cho dữ liệu cũ.
+ */
+@Service
+public class UserCounterService {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserCounterService.class);
+
+  private enum Counter {
+    POSTS("post_count"),
+    FOLLOWERS("follower_count"),
+    FOLLOWING("following_count");
+
+    private final String flushSql;
+
+    Counter(String column) {
+      this.flushSql = "UPDATE users SET " + column + " = GREATEST(" + column + " + ?, 0) WHERE id = ?";
+    }
+  }
+
+  private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM users";
+
+  // Đếm lại cả ba cột cho các user trong khoảng id [?, ?)
+  private static final String RECONCILE_SQL = "UPDATE users u " +
+      "LEFT JOIN (SELECT p.user_id, COUNT(*) AS cnt FROM posts p " +
+      "WHERE p.is_deleted = false AND p.user_id >= ? AND p.user_id < ? GROUP BY p.user_id) pc ON pc.user_id = u.id " +
+      "LEFT JOIN (SELECT f.following_id, COUNT(*) AS cnt FROM follows f " +
+      "WHERE f.following_id >= ? AND f.following_id < ? GROUP BY f.following_id) fr ON fr.following_id = u.id " +
+      "LEFT JOIN (SELECT f.follower_id, COUNT(*) AS cnt FROM follows f " +
+      "WHERE f.follower_id >= ? AND f.follower_id < ? GROUP BY f.follower_id) fg ON fg.follower_id = u.id " +
+      "SET u.post_count = COALESCE(pc.cnt, 0), u.follower_count = COALESCE(fr.cnt, 0), " +
+      "u.following_count = COALESCE(fg.cnt, 0) " +
+      "WHERE u.id >= ? AND u.id < ?";
+
+  private static final String RECONCILE_EXCLUDE_SQL_PREFIX = " AND u.id NOT IN (";
+
+  // Lock thay cho synchronized: không ghim virtual thread trong lúc chờ JDBC
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final Map<Counter, DeltaAccumulator<Long>> pendingDeltas = Map.of(
+      Counter.POSTS, new DeltaAccumulator<>(),
+      Counter.FOLLOWERS, new DeltaAccumulator<>(),
+      Counter.FOLLOWING, new DeltaAccumulator<>());
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int reconcileChunkSize;
+
+  public UserCounterService(JdbcTemplate jdbcTemplate,
+      @Value("${app.users.counters.reconcile-chunk-size:1000}") int reconcileChunkSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.reconcileChunkSize = reconcileChunkSize;
+  }
+
+  public void recordPostCreated(Long userId) {
+    addAfterCommit(Counter.POSTS, userId, 1);
+  }
+
+  public void recordPostDeleted(Long userId) {
+    addAfterCommit(Counter.POSTS, userId, -1);
+  }
+
+  public void recordFollow(Long followerId, Long followingId) {
+    addAfterCommit(Counter.FOLLOWING, followerId, 1);
+    addAfterCommit(Counter.FOLLOWERS, followingId, 1);
+  }
+
+  public void recordUnfollow(Long followerId, Long followingId) {
+    addAfterCommit(Counter.FOLLOWING, followerId, -1);
+    addAfterCommit(Counter.FOLLOWERS, followingId, -1);
+  }
+
+  public int getPostCount(User user) {
+    return current(Counter.POSTS, user.getId(), user.getPostCount());
+  }
+
+  public int getFollowerCount(User user) {
+    return current(Counter.FOLLOWERS, user.getId(), user.getFollowerCount());
+  }
+
+  public int getFollowingCount(User user) {
+    return current(Counter.FOLLOWING, user.getId(), user.getFollowingCount());
+  }
+
+  /**
+   * Điền ba bộ đếm (giá trị trong cột + delta chưa flush) vào DTO
+   */
+  public void fill(User user, UserResponseDTO dto) {
+    dto.setPostCount(getPostCount(user));
+    dto.setFollowerCount(getFollowerCount(user));
+    dto.setFollowingCount(getFollowingCount(user));
+  }
+
+  /**
+   * Ghi toàn bộ delta đang chờ xuống DB, mỗi cột một batch
+   */
+  @Scheduled(fixedDelayString = "${app.users.counters.flush-interval:2000}")
+  public void flush() {
+    flushLock.lock();
+    try {
+      for (Counter counter : Counter.values()) {
+        DeltaAccumulator<Long> accumulator = pendingDeltas.get(counter);
+        Map<Long, Long> deltas = accumulator.drain();
+        if (deltas.isEmpty()) {
+          continue;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        deltas.forEach((userId, delta) -> batchArgs.add(new Object[] { delta, userId }));
+        try {
+          jdbcTemplate.batchUpdate(counter.flushSql, batchArgs);
+        } catch (DataAccessException e) {
+          // Trả delta lại để lần flush sau ghi tiếp
+          logger.error("Failed to flush {} counters for {} users: {}", counter, batchArgs.size(), e.getMessage());
+          deltas.forEach(accumulator::add);
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Đếm lại ba cột từ posts và bảng follow theo từng khoảng id. Lần chạy đầu sau khi thêm cột
+   * cũng là lần điền số cho user cũ.
+   *
+   * Mỗi khoảng chạy dưới flushLock ngay sau một lần flush và bỏ qua user còn delta trong bộ đệm:
+   * số đếm lại đã gồm follow / post vừa commit, ghi thêm delta của nó sẽ thành đếm hai lần. Delta
+   * chưa flush ở instance khác chỉ lệch tối đa một chu kỳ flush, lần đối soát sau sửa lại.
+   */
+  @Scheduled(initialDelayString = "${app.users.counters.reconcile-initial-delay:60000}",
+      fixedDelayString = "${app.users.counters.reconcile-interval:21600000}")
+  public void reconcile() {
+    Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+    if (maxId == null || maxId == 0) {
+      return;
+    }
+
+    int updated = 0;
+    for (long from = 1; from <= maxId; from += reconcileChunkSize) {
+      long to = from + reconcileChunkSize;
+      try {
+        updated += reconcileRange(from, to);
+      } catch (DataAccessException e) {
+        logger.error("Failed to reconcile user counters for ids [{}, {}): {}", from, to, e.getMessage());
+      }
+    }
+    logger.info("Reconciled counters of {} users", updated);
+  }
+
+  @PreDestroy
+  public void flushOnShutdown() {
+    flush();
+  }
+
+  private int reconcileRange(long from, long to) {
+    flushLock.lock();
+    try {
+      // Ghi hết delta trước để không cộng đè lên số vừa đếm lại
+      flush();
+
+      Set<Long> pending = new TreeSet<>();
+      for (DeltaAccumulator<Long> accumulator : pendingDeltas.values()) {
+        accumulator.keys().stream()
+            .filter(id -> id >= from && id < to)
+            .forEach(pending::add);
+      }
+      List<Object> args = new ArrayList<>(List.of(from, to, from, to, from, to, from, to));
+      String sql = RECONCILE_SQL;
+      if (!pending.isEmpty()) {
+        sql += RECONCILE_EXCLUDE_SQL_PREFIX + String.join(", ", Collections.nCopies(pending.size(), "?")) + ")";
+        args.addAll(pending);
+      }
+      return jdbcTemplate.update(sql, args.toArray());
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private int current(Counter counter, Long userId, Integer persisted) {
+    long value = (persisted != null ? persisted : 0) + pendingDeltas.get(counter).get(userId);
+    return (int) Math.max(0, value);
+  }
+
+  // Chỉ cộng delta khi transaction ghi follow / post đã commit
+  private void addAfterCommit(Counter counter, Long userId, long delta) {
+    DeltaAccumulator<Long> accumulator = pendingDeltas.get(counter);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      accumulator.add(userId, delta);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        accumulator.add(userId, delta);
+      }
+    });
+  }
+}
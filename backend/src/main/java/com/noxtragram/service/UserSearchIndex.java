@@ -0,0 +1,346 @@
+package com.noxtragram.service;
+
+import com.noxtragram.model.entity.User;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.CharTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index tìm kiếm user (username, fullName) bằng Lucene, nằm trong bộ nhớ của process.
+ *
+ * Tên được tách theo ký tự chữ/số, đưa về chữ thường, bỏ dấu (ASCII folding: "Nguyễn" khớp "nguyen")
+ * và index thêm mọi tiền tố (edge n-gram) nên gõ vài ký tự đầu là tìm được, không còn LIKE '%kw%'.
+ * Xếp hạng: trùng username hoàn toàn > tiền tố username > từ trong username > từ trong fullName.
+ *
+ * Index được dựng khi khởi động. Thay đổi của instance này được ghi ngay sau commit, thay đổi từ
+ * instance khác được đồng bộ định kỳ theo cột updated_at.
+ */
+@Service
+public class UserSearchIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+  public enum Scope {
+    ALL, USERNAME, FULL_NAME
+  }
+
+  private static final String ID = "id";
+  private static final String USERNAME_EXACT = "username_exact";
+  private static final String USERNAME_PREFIX = "username_prefix";
+  private static final String USERNAME_WORDS = "username_words";
+  private static final String FULL_NAME_WORDS = "full_name_words";
+
+  private static final int MAX_GRAM = 30;
+  private static final int LOAD_BATCH_SIZE = 5000;
+
+  private static final String LOAD_SQL = "SELECT id, username, full_name, is_active FROM users " +
+      "WHERE id > ? ORDER BY id LIMIT ?";
+  private static final String CHANGED_SQL = "SELECT id, username, full_name, is_active FROM users WHERE updated_at >= ?";
+  private static final String NOW_SQL = "SELECT NOW()";
+
+  // Sync giữ lock suốt lúc đọc DB và ghi index, synchronized sẽ ghim virtual thread
+  private final ReentrantLock syncLock = new ReentrantLock();
+  private final JdbcTemplate jdbcTemplate;
+  private final int maxResults;
+  private final long syncOverlapMs;
+
+  private final Analyzer indexAnalyzer;
+  private final Analyzer wordAnalyzer = words(false);
+  private final Analyzer keywordAnalyzer = keyword(false);
+  private final IndexWriter writer;
+  private final SearcherManager searcherManager;
+
+  private volatile boolean ready;
+  private Timestamp syncedAt;
+
+  public UserSearchIndex(JdbcTemplate jdbcTemplate,
+      @Value("${app.users.search.max-results:1000}") int maxResults,
+      @Value("${app.users.search.sync-overlap:60000}") long syncOverlapMs) throws IOException {
+    this.jdbcTemplate = jdbcTemplate;
+    this.maxResults = maxResults;
+    this.syncOverlapMs = syncOverlapMs;
+
+    this.indexAnalyzer = new PerFieldAnalyzerWrapper(words(true), Map.of(
+        USERNAME_EXACT, keyword(false),
+        USERNAME_PREFIX, keyword(true)));
+    this.writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(indexAnalyzer));
+    this.searcherManager = new SearcherManager(writer, null);
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Tìm ID user khớp từ khóa theo thứ tự liên quan, phân trang trong giới hạn max-results
+   */
+  public Page<Long> search(String keyword, Scope scope, Pageable pageable) {
+    Query query = buildQuery(keyword, scope);
+    int end = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), maxResults);
+    if (query == null || pageable.getOffset() >= end) {
+      return new PageImpl<>(List.of(), pageable, 0);
+    }
+
+    try {
+      IndexSearcher searcher = searcherManager.acquire();
+      try {
+        TopDocs topDocs = searcher.search(query, end);
+        List<Long> ids = new ArrayList<>();
+        ScoreDoc[] hits = topDocs.scoreDocs;
+        for (int i = (int) pageable.getOffset(); i < hits.length; i++) {
+          ids.add(searcher.storedFields().document(hits[i].doc).getField(ID).numericValue().longValue());
+        }
+        long total = Math.min(topDocs.totalHits.value, maxResults);
+        return new PageImpl<>(ids, pageable, total);
+      } finally {
+        searcherManager.release(searcher);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Cập nhật (hoặc xóa nếu user không còn active) sau khi transaction ghi user commit
+   */
+  public void indexAfterCommit(User user) {
+    Long id = user.getId();
+    String username = user.getUsername();
+    String fullName = user.getFullName();
+    boolean active = Boolean.TRUE.equals(user.getIsActive());
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      indexAndRefresh(id, username, fullName, active);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        indexAndRefresh(id, username, fullName, active);
+      }
+    });
+  }
+
+  /**
+   * Lần đầu dựng toàn bộ index, sau đó đồng bộ các user có updated_at mới
+   */
+  @Scheduled(initialDelay = 0, fixedDelayString = "${app.users.search.sync-interval:30000}")
+  public void sync() {
+    syncLock.lock();
+    try {
+      // Mốc thời gian lấy từ DB để không lệch đồng hồ với app server
+      Timestamp now = jdbcTemplate.queryForObject(NOW_SQL, Timestamp.class);
+      int indexed = syncedAt == null ? loadAll() : loadChangedSince(syncedAt);
+      if (indexed > 0) {
+        searcherManager.maybeRefresh();
+      }
+      syncedAt = new Timestamp(now.getTime() - syncOverlapMs);
+
+      if (!ready) {
+        ready = true;
+        logger.info("Built user search index with {} users", indexed);
+      }
+    } catch (DataAccessException | IOException | UncheckedIOException e) {
+      logger.error("Failed to sync user search index: {}", e.getMessage());
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    searcherManager.close();
+    writer.close();
+  }
+
+  private int loadAll() {
+    int indexed = 0;
+    long lastId = 0;
+    while (true) {
+      List<Long> ids = new ArrayList<>();
+      jdbcTemplate.query(LOAD_SQL, rs -> {
+        ids.add(rs.getLong("id"));
+        index(rs);
+      }, lastId, LOAD_BATCH_SIZE);
+      if (ids.isEmpty()) {
+        return indexed;
+      }
+      indexed += ids.size();
+      lastId = ids.get(ids.size() - 1);
+    }
+  }
+
+  private int loadChangedSince(Timestamp since) {
+    int[] indexed = { 0 };
+    jdbcTemplate.query(CHANGED_SQL, rs -> {
+      index(rs);
+      indexed[0]++;
+    }, since);
+    return indexed[0];
+  }
+
+  private void index(ResultSet rs) throws SQLException {
+    index(rs.getLong("id"), rs.getString("username"), rs.getString("full_name"), rs.getBoolean("is_active"));
+  }
+
+  private void indexAndRefresh(Long id, String username, String fullName, boolean active) {
+    try {
+      index(id, username, fullName, active);
+      searcherManager.maybeRefresh();
+    } catch (IOException | UncheckedIOException e) {
+      // Lần sync định kỳ sẽ ghi lại user này
+      logger.error("Failed to index user {}: {}", id, e.getMessage());
+    }
+  }
+
+  private void index(Long id, String username, String fullName, boolean active) {
+    Term idTerm = new Term(ID, String.valueOf(id));
+    try {
+      if (!active) {
+        writer.deleteDocuments(idTerm);
+        return;
+      }
+
+      Document document = new Document();
+      document.add(new StringField(ID, idTerm.text(), Field.Store.NO));
+      document.add(new StoredField(ID, id));
+      document.add(new TextField(USERNAME_EXACT, username, Field.Store.NO));
+      document.add(new TextField(USERNAME_PREFIX, username, Field.Store.NO));
+      document.add(new TextField(USERNAME_WORDS, username, Field.Store.NO));
+      if (fullName != null) {
+        document.add(new TextField(FULL_NAME_WORDS, fullName, Field.Store.NO));
+      }
+      writer.updateDocument(idTerm, document);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Query buildQuery(String keyword, Scope scope) {
+    if (keyword == null) {
+      return null;
+    }
+    List<String> words = analyze(wordAnalyzer, keyword);
+    if (words.isEmpty()) {
+      return null;
+    }
+
+    BooleanQuery.Builder query = new BooleanQuery.Builder();
+    if (scope != Scope.FULL_NAME) {
+      for (String whole : analyze(keywordAnalyzer, keyword.trim())) {
+        query.add(new BoostQuery(new TermQuery(new Term(USERNAME_EXACT, whole)), 8), BooleanClause.Occur.SHOULD);
+        query.add(new BoostQuery(new TermQuery(new Term(USERNAME_PREFIX, truncate(whole))), 4),
+            BooleanClause.Occur.SHOULD);
+      }
+    }
+
+    // Mỗi từ phải khớp tiền tố của một từ trong username hoặc fullName
+    for (String word : words) {
+      BooleanQuery.Builder wordQuery = new BooleanQuery.Builder();
+      if (scope != Scope.FULL_NAME) {
+        wordQuery.add(new BoostQuery(new TermQuery(new Term(USERNAME_WORDS, truncate(word))), 2),
+            BooleanClause.Occur.SHOULD);
+      }
+      if (scope != Scope.USERNAME) {
+        wordQuery.add(new TermQuery(new Term(FULL_NAME_WORDS, truncate(word))), BooleanClause.Occur.SHOULD);
+      }
+      query.add(wordQuery.build(), BooleanClause.Occur.MUST);
+    }
+    return query.build();
+  }
+
+  private static String truncate(String term) {
+    return term.length() > MAX_GRAM ? term.substring(0, MAX_GRAM) : term;
+  }
+
+  private static List<String> analyze(Analyzer analyzer, String text) {
+    List<String> terms = new ArrayList<>();
+    try (TokenStream stream = analyzer.tokenStream("", text)) {
+      CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+      stream.reset();
+      while (stream.incrementToken()) {
+        terms.add(term.toString());
+      }
+      stream.end();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return terms;
+  }
+
+  // Tách theo ký tự chữ/số ("john_doe" -> john, doe), chữ thường, bỏ dấu
+  private static Analyzer words(boolean prefixes) {
+    return new Analyzer() {
+      @Override
+      protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = CharTokenizer.fromTokenCharPredicate(Character::isLetterOrDigit);
+        return new TokenStreamComponents(tokenizer, normalizeTokens(tokenizer, prefixes));
+      }
+    };
+  }
+
+  // Cả chuỗi là một token
+  private static Analyzer keyword(boolean prefixes) {
+    return new Analyzer() {
+      @Override
+      protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new KeywordTokenizer();
+        return new TokenStreamComponents(tokenizer, normalizeTokens(tokenizer, prefixes));
+      }
+    };
+  }
+
+  private static TokenStream normalizeTokens(TokenStream stream, boolean prefixes) {
+    TokenStream result = new ASCIIFoldingFilter(new LowerCaseFilter(stream));
+    return prefixes ? new EdgeNGramTokenFilter(result, 1, MAX_GRAM, true) : result;
+  }
+}
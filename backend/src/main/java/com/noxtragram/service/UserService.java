@@ -5,6 +5,13 @@ import com.noxtragram.model.dto.response.UserResponseDTO;
 import com.noxtragram.model.dto.response.LoginResponseDTO;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
+import com.noxtragram.repository.projection.FollowUserView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface UserService {
@@ -12,6 +19,8 @@ public interface UserService {
   // Authentication
   LoginResponseDTO login(LoginRequestDTO loginRequestDTO);
 
+  void logout(String token);
+
   UserResponseDTO register(UserRequestDTO userRequestDTO);
 
   // User Operations
@@ -37,7 +46,7 @@ public interface UserService {
   void resetPassword(PasswordResetRequestDTO passwordResetDTO);
 
   // Profile Management
-  UserResponseDTO uploadProfilePicture(String username, MultipartFile file);
+  UserResponseDTO uploadProfilePicture(Long userId, MultipartFile file);
 
   UserResponseDTO removeProfilePicture(Long userId);
 
@@ -48,20 +57,26 @@ public interface UserService {
 
   boolean isFollowing(Long userId, Long targetUserId);
 
-  List<UserResponseDTO> getFollowers(Long userId);
+  Page<UserResponseDTO> getFollowers(Long userId, Pageable pageable);
+
+  Page<UserResponseDTO> getFollowing(Long userId, Pageable pageable);
+
+  CursorPageResponseDTO<FollowUserView> getFollowersByCursor(Long userId, String cursor, int size);
+
+  CursorPageResponseDTO<FollowUserView> getFollowingByCursor(Long userId, String cursor, int size);
 
-  List<UserResponseDTO> getFollowing(Long userId);
+  void exportFollowers(Long userId, OutputStream out) throws IOException;
 
   Integer getFollowerCount(Long userId);
 
   Integer getFollowingCount(Long userId);
 
   // Search
-  List<UserResponseDTO> searchUsers(String keyword);
+  List<UserResponseDTO> searchUsers(String keyword, int page, int size);
 
-  List<UserResponseDTO> searchByUsername(String username);
+  List<UserResponseDTO> searchByUsername(String username, int page, int size);
 
-  List<UserResponseDTO> searchByFullName(String fullName);
+  List<UserResponseDTO> searchByFullName(String fullName, int page, int size);
 
   // Suggestions
   List<UserResponseDTO> getSuggestedUsers(Long userId, int limit);
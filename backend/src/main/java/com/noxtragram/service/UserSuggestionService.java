@@ -0,0 +1,158 @@
+package com.noxtragram.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.noxtragram.repository.FollowRepository;
+import com.noxtragram.repository.UserRepository;
+import com.noxtragram.util.LongIntCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gợi ý user theo "bạn của bạn": đếm xem mỗi người được bao nhiêu người mình đang follow cùng follow.
+ *
+ * Chỉ mở rộng 2 bước và có giới hạn ở mỗi bước (số người mình follow được xét, số cạnh mới nhất
+ * của mỗi người đó) nên chi phí không tăng theo tổng số user. Việc đếm dùng bộ đếm long -> int
+ * trên mảng primitive. Danh sách ứng viên đã xếp hạng được cache theo user, follow / unfollow
+ * thì tính lại. Thiếu ứng viên (user mới) thì bù bằng những user nhiều follower nhất; danh sách
+ * này được tính lại định kỳ ở nền, không bao giờ chạy trong request.
+ */
+@Service
+public class UserSuggestionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserSuggestionService.class);
+
+  private static final String CACHE_NAME = "users.suggestions";
+
+  private final FollowRepository followRepository;
+  private final UserRepository userRepository;
+  private final int maxFirstHop;
+  private final int maxSecondHopPerUser;
+  private final int candidateListSize;
+
+  private final Cache<Long, long[]> candidates;
+  // Danh sách dùng chung cho mọi user, thay nguyên mảng mỗi lần tính lại
+  private volatile long[] popularUsers = new long[0];
+
+  public UserSuggestionService(FollowRepository followRepository,
+      UserRepository userRepository,
+      MeterRegistry meterRegistry,
+      @Value("${app.users.suggestions.max-first-hop:500}") int maxFirstHop,
+      @Value("${app.users.suggestions.max-second-hop-per-user:200}") int maxSecondHopPerUser,
+      @Value("${app.users.suggestions.candidate-list-size:100}") int candidateListSize,
+      @Value("${app.users.suggestions.cache-size:50000}") long cacheSize,
+      @Value("${app.users.suggestions.ttl:30m}") Duration ttl) {
+    this.followRepository = followRepository;
+    this.userRepository = userRepository;
+    this.maxFirstHop = maxFirstHop;
+    this.maxSecondHopPerUser = maxSecondHopPerUser;
+    this.candidateListSize = candidateListSize;
+    this.candidates = Caffeine.newBuilder()
+        .maximumSize(cacheSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, candidates, CACHE_NAME);
+  }
+
+  /**
+   * ID user được gợi ý cho userId theo thứ tự xếp hạng
+   */
+  public List<Long> getSuggestedUserIds(Long userId, int limit) {
+    long[] ranked = candidates.get(userId, this::computeCandidates);
+    List<Long> ids = new ArrayList<>(Math.min(limit, ranked.length));
+    for (int i = 0; i < ranked.length && ids.size() < limit; i++) {
+      ids.add(ranked[i]);
+    }
+    return ids;
+  }
+
+  /**
+   * Bỏ danh sách đã tính của user sau khi transaction follow / unfollow commit
+   */
+  public void evictAfterCommit(Long userId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      candidates.invalidate(userId);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        candidates.invalidate(userId);
+      }
+    });
+  }
+
+  /**
+   * Tính lại danh sách user nhiều follower nhất (chỉ user còn active)
+   */
+  @Scheduled(initialDelay = 0, fixedDelayString = "${app.users.suggestions.popular-refresh-interval:600000}")
+  public void refreshPopularUsers() {
+    try {
+      popularUsers = userRepository.findMostFollowedActiveUserIds(PageRequest.of(0, candidateListSize * 2))
+          .stream()
+          .mapToLong(Long::longValue)
+          .toArray();
+    } catch (DataAccessException e) {
+      // Giữ danh sách cũ tới lần chạy sau
+      logger.warn("Failed to refresh popular users: {}", e.getMessage());
+    }
+  }
+
+  private long[] computeCandidates(Long userId) {
+    List<Long> following = followRepository.findFollowingUserIds(userId);
+
+    // Loại trừ chính mình và những người đã follow
+    long[] excluded = new long[following.size() + 1];
+    for (int i = 0; i < following.size(); i++) {
+      excluded[i] = following.get(i);
+    }
+    excluded[following.size()] = userId;
+    Arrays.sort(excluded);
+
+    LongIntCounter mutualCounts = new LongIntCounter(Math.min(following.size(), maxFirstHop) * 16);
+    if (!following.isEmpty()) {
+      List<Long> firstHop = following.subList(0, Math.min(following.size(), maxFirstHop));
+      for (Object[] edge : followRepository.findRecentFollowingPairs(firstHop, maxSecondHopPerUser)) {
+        mutualCounts.increment(((Number) edge[1]).longValue());
+      }
+    }
+
+    long[] ranked = mutualCounts.topKeys(candidateListSize, excluded);
+    if (ranked.length >= candidateListSize) {
+      return ranked;
+    }
+    return fillWithPopular(ranked, excluded);
+  }
+
+  private long[] fillWithPopular(long[] ranked, long[] excluded) {
+    long[] popular = popularUsers;
+
+    long[] sortedRanked = ranked.clone();
+    Arrays.sort(sortedRanked);
+    long[] result = Arrays.copyOf(ranked, candidateListSize);
+    int size = ranked.length;
+    for (int i = 0; i < popular.length && size < candidateListSize; i++) {
+      long id = popular[i];
+      if (Arrays.binarySearch(excluded, id) < 0 && Arrays.binarySearch(sortedRanked, id) < 0) {
+        result[size++] = id;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+}
@@ -5,11 +5,15 @@ import com.noxtragram.model.dto.response.*;
 import com.noxtragram.model.dto.Summary.*;
 import com.noxtragram.model.dto.TrendingHashtagDTO;
 import com.noxtragram.model.entity.Hashtag;
-import com.noxtragram.model.entity.Post;
 import com.noxtragram.repository.HashtagRepository;
 import com.noxtragram.repository.PostRepository;
+import com.noxtragram.service.HashtagCountService;
+import com.noxtragram.service.HashtagPreviewService;
+import com.noxtragram.service.HashtagResolver;
 import com.noxtragram.service.HashtagService;
+import com.noxtragram.service.HashtagSuggestionIndex;
 import com.noxtragram.service.PostService;
+import com.noxtragram.service.TrendingHashtagService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -18,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,13 +32,28 @@ public class HashtagServiceImpl implements HashtagService {
   private final HashtagRepository hashtagRepository;
   private final PostRepository postRepository;
   private final PostService postService;
+  private final HashtagPreviewService hashtagPreviewService;
+  private final TrendingHashtagService trendingHashtagService;
+  private final HashtagResolver hashtagResolver;
+  private final HashtagCountService hashtagCountService;
+  private final HashtagSuggestionIndex hashtagSuggestionIndex;
 
   public HashtagServiceImpl(HashtagRepository hashtagRepository,
       PostRepository postRepository,
-      PostService postService) {
+      PostService postService,
+      HashtagPreviewService hashtagPreviewService,
+      TrendingHashtagService trendingHashtagService,
+      HashtagResolver hashtagResolver,
+      HashtagCountService hashtagCountService,
+      HashtagSuggestionIndex hashtagSuggestionIndex) {
     this.hashtagRepository = hashtagRepository;
     this.postRepository = postRepository;
     this.postService = postService;
+    this.hashtagPreviewService = hashtagPreviewService;
+    this.trendingHashtagService = trendingHashtagService;
+    this.hashtagResolver = hashtagResolver;
+    this.hashtagCountService = hashtagCountService;
+    this.hashtagSuggestionIndex = hashtagSuggestionIndex;
   }
 
   @Override
@@ -43,7 +63,7 @@ public class HashtagServiceImpl implements HashtagService {
     Hashtag hashtag = hashtagRepository.findByName(cleanName)
         .orElseThrow(() -> new EntityNotFoundException("Hashtag not found: " + cleanName));
 
-    return convertToDTO(hashtag, currentUserId);
+    return convertToDTO(hashtag, hashtagPreviewService.getPreview(hashtag.getId()), currentUserId);
   }
 
   @Override
@@ -56,8 +76,9 @@ public class HashtagServiceImpl implements HashtagService {
 
     Hashtag hashtag = new Hashtag(cleanName);
     Hashtag savedHashtag = hashtagRepository.save(hashtag);
+    hashtagSuggestionIndex.addAfterCommit(savedHashtag.getId(), savedHashtag.getName(), savedHashtag.getCreatedAt());
 
-    return convertToDTO(savedHashtag, null);
+    return convertToDTO(savedHashtag, List.of(), null);
   }
 
   @Override
@@ -65,26 +86,43 @@ public class HashtagServiceImpl implements HashtagService {
   public Page<HashtagResponseDTO> searchHashtags(String query, Pageable pageable) {
     String cleanQuery = cleanHashtagName(query);
     Page<Hashtag> hashtags = hashtagRepository.findByNameContainingIgnoreCase(cleanQuery, pageable);
-    return hashtags.map(hashtag -> convertToDTO(hashtag, null));
+    return convertPage(hashtags);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<HashtagResponseDTO> getHashtagSuggestions(String query, int limit) {
+    if (hashtagSuggestionIndex.isReady()) {
+      return hashtagSuggestionIndex.suggest(query, limit);
+    }
+
+    // Index chưa dựng xong (vừa khởi động): tìm trong DB
+    return searchHashtags(query, Pageable.ofSize(limit)).getContent();
   }
 
   @Override
   @Transactional(readOnly = true)
   public Page<HashtagResponseDTO> getPopularHashtags(Pageable pageable) {
     Page<Hashtag> hashtags = hashtagRepository.findByOrderByPostCountDesc(pageable);
-    return hashtags.map(hashtag -> convertToDTO(hashtag, null));
+    return convertPage(hashtags);
   }
 
   @Override
   @Transactional(readOnly = true)
   public Page<HashtagResponseDTO> getRecentHashtags(Pageable pageable) {
     Page<Hashtag> hashtags = hashtagRepository.findByOrderByCreatedAtDesc(pageable);
-    return hashtags.map(hashtag -> convertToDTO(hashtag, null));
+    return convertPage(hashtags);
   }
 
   @Override
   @Transactional(readOnly = true)
   public List<TrendingHashtagDTO> getTrendingHashtags(int limit) {
+    List<TrendingHashtagDTO> trending = trendingHashtagService.getTrending(limit);
+    if (!trending.isEmpty()) {
+      return trending;
+    }
+
+    // Chưa có lượt dùng nào trong cửa sổ trending: xếp theo tổng số post
     Pageable pageable = Pageable.ofSize(limit);
     Page<Hashtag> trendingHashtags = hashtagRepository.findTrendingHashtags(pageable);
 
@@ -110,16 +148,22 @@ public class HashtagServiceImpl implements HashtagService {
   }
 
   @Override
-  public void incrementPostCount(String hashtagName) {
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<PostResponseDTO> getPostsByHashtagByCursor(String hashtagName, Long currentUserId,
+      String cursor, int size) {
     String cleanName = cleanHashtagName(hashtagName);
-    Hashtag hashtag = hashtagRepository.findByName(cleanName)
-        .orElseGet(() -> {
-          Hashtag newHashtag = new Hashtag(cleanName);
-          return hashtagRepository.save(newHashtag);
-        });
 
-    hashtag.incrementPostCount();
-    hashtagRepository.save(hashtag);
+    if (!hashtagRepository.existsByName(cleanName)) {
+      throw new EntityNotFoundException("Hashtag not found: " + cleanName);
+    }
+
+    return postService.getPostsByHashtagByCursor(cleanName, currentUserId, cursor, size);
+  }
+
+  @Override
+  public void incrementPostCount(String hashtagName) {
+    // Tạo hashtag nếu chưa có, post_count được ghi theo lô
+    hashtagCountService.increment(hashtagResolver.resolveIds(List.of(hashtagName)).values());
   }
 
   @Override
@@ -128,8 +172,7 @@ public class HashtagServiceImpl implements HashtagService {
     Hashtag hashtag = hashtagRepository.findByName(cleanName)
         .orElseThrow(() -> new EntityNotFoundException("Hashtag not found: " + cleanName));
 
-    hashtag.decrementPostCount();
-    hashtagRepository.save(hashtag);
+    hashtagCountService.decrement(List.of(hashtag.getId()));
   }
 
   @Override
@@ -182,20 +225,23 @@ public class HashtagServiceImpl implements HashtagService {
     return baseScore;
   }
 
-  private HashtagResponseDTO convertToDTO(Hashtag hashtag, Long currentUserId) {
+  // Preview của cả trang hashtag được load chung một lần
+  private Page<HashtagResponseDTO> convertPage(Page<Hashtag> hashtags) {
+    Map<Long, List<PostSummaryDTO>> previews = hashtagPreviewService.getPreviews(
+        hashtags.getContent().stream().map(Hashtag::getId).toList());
+    return hashtags.map(hashtag -> convertToDTO(hashtag,
+        previews.getOrDefault(hashtag.getId(), List.of()), null));
+  }
+
+  private HashtagResponseDTO convertToDTO(Hashtag hashtag, List<PostSummaryDTO> recentPosts, Long currentUserId) {
     HashtagResponseDTO dto = new HashtagResponseDTO();
     dto.setId(hashtag.getId());
     dto.setName(hashtag.getName());
-    dto.setPostCount(hashtag.getPostCount());
+    // Cộng phần delta chưa flush xuống DB
+    dto.setPostCount((int) Math.max(0, hashtag.getPostCount() + hashtagCountService.getPendingDelta(hashtag.getId())));
     dto.setCreatedAt(hashtag.getCreatedAt());
 
-    // Set recent posts (limit to 9 posts for grid display)
-    List<PostSummaryDTO> recentPosts = hashtag.getPosts().stream()
-        .filter(post -> !post.getIsDeleted())
-        .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-        .limit(9)
-        .map(this::convertToPostSummaryDTO)
-        .collect(Collectors.toList());
+    // Recent posts (tối đa 9 post cho lưới preview)
     dto.setRecentPosts(recentPosts);
 
     // Set follow status if user is authenticated
@@ -206,27 +252,10 @@ public class HashtagServiceImpl implements HashtagService {
     return dto;
   }
 
-  private PostSummaryDTO convertToPostSummaryDTO(Post post) {
-    PostSummaryDTO dto = new PostSummaryDTO();
-    dto.setId(post.getId());
-    dto.setImageUrl(post.getImageUrl());
-    dto.setCaption(post.getCaption());
-    dto.setLikeCount(post.getLikeCount());
-    dto.setCommentCount(post.getCommentCount());
-    dto.setCreatedAt(post.getCreatedAt());
-    return dto;
-  }
-
   // Helper method để xử lý nhiều hashtags từ một post
   public List<Hashtag> processHashtags(List<String> hashtagNames) {
-    return hashtagNames.stream()
-        .map(this::cleanHashtagName)
-        .distinct()
-        .map(name -> hashtagRepository.findByName(name)
-            .orElseGet(() -> {
-              Hashtag newHashtag = new Hashtag(name);
-              return hashtagRepository.save(newHashtag);
-            }))
+    return hashtagResolver.resolveIds(hashtagNames).values().stream()
+        .map(hashtagRepository::getReferenceById)
         .collect(Collectors.toList());
   }
 }
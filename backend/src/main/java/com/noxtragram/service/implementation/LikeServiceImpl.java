@@ -7,7 +7,9 @@ import com.noxtragram.model.entity.User;
 import com.noxtragram.repository.LikeRepository;
 import com.noxtragram.repository.PostRepository;
 import com.noxtragram.repository.UserRepository;
+import com.noxtragram.service.LikeCounterService;
 import com.noxtragram.service.LikeService;
+import com.noxtragram.service.PostMembershipIndex;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -24,13 +26,19 @@ public class LikeServiceImpl implements LikeService {
   private final LikeRepository likeRepository;
   private final PostRepository postRepository;
   private final UserRepository userRepository;
+  private final LikeCounterService likeCounterService;
+  private final PostMembershipIndex postMembershipIndex;
 
   public LikeServiceImpl(LikeRepository likeRepository,
       PostRepository postRepository,
-      UserRepository userRepository) {
+      UserRepository userRepository,
+      LikeCounterService likeCounterService,
+      PostMembershipIndex postMembershipIndex) {
     this.likeRepository = likeRepository;
     this.postRepository = postRepository;
     this.userRepository = userRepository;
+    this.likeCounterService = likeCounterService;
+    this.postMembershipIndex = postMembershipIndex;
   }
 
   @Override
@@ -48,9 +56,9 @@ public class LikeServiceImpl implements LikeService {
     Like like = new Like(user, post);
     likeRepository.save(like);
 
-    // Cập nhật like count trong post
-    post.incrementLikeCount();
-    postRepository.save(post);
+    // Cập nhật like count trong post (ghi xuống DB theo lô)
+    likeCounterService.increment(postId);
+    postMembershipIndex.recordLike(userId, postId);
   }
 
   @Override
@@ -65,20 +73,18 @@ public class LikeServiceImpl implements LikeService {
 
     likeRepository.delete(like);
 
-    // Cập nhật like count trong post
-    post.decrementLikeCount();
-    postRepository.save(post);
+    // Cập nhật like count trong post (ghi xuống DB theo lô)
+    likeCounterService.decrement(postId);
   }
 
   @Override
   @Transactional(readOnly = true)
   public boolean isPostLikedByUser(Long postId, Long userId) {
-    Post post = postRepository.findByIdAndIsDeletedFalse(postId)
-        .orElseThrow(() -> new EntityNotFoundException("Post not found"));
-    User user = userRepository.findById(userId)
-        .orElseThrow(() -> new EntityNotFoundException("User not found"));
+    if (!postRepository.existsByIdAndIsDeletedFalse(postId)) {
+      throw new EntityNotFoundException("Post not found");
+    }
 
-    return likeRepository.existsByPostAndUser(post, user);
+    return postMembershipIndex.hasLiked(userId, postId);
   }
 
   @Override
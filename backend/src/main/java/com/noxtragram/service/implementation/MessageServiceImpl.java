@@ -1,16 +1,22 @@
 package com.noxtragram.service.implementation;
 
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.entity.Message;
 import com.noxtragram.model.entity.MessageType;
 import com.noxtragram.model.entity.User;
 import com.noxtragram.repository.MessageRepository;
 import com.noxtragram.repository.UserRepository;
+import com.noxtragram.repository.projection.ConversationView;
+import com.noxtragram.service.ConversationService;
+import com.noxtragram.service.MessageOutboxService;
 import com.noxtragram.service.MessageService;
+import com.noxtragram.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,7 +32,8 @@ public class MessageServiceImpl implements MessageService {
 
   private final MessageRepository messageRepository;
   private final UserRepository userRepository;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final MessageOutboxService messageOutboxService;
+  private final ConversationService conversationService;
 
   // ============ SEND MESSAGE METHODS ============
 
@@ -40,6 +47,8 @@ public class MessageServiceImpl implements MessageService {
     message.setMessageType(MessageType.TEXT);
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("Text message sent from {} to {}", senderId, receiverId);
@@ -58,6 +67,8 @@ public class MessageServiceImpl implements MessageService {
     message.setImageUrl(imageUrl);
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("Image message sent from {} to {}", senderId, receiverId);
@@ -76,6 +87,8 @@ public class MessageServiceImpl implements MessageService {
     message.setImageUrl(videoUrl);
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("Video message sent from {} to {}", senderId, receiverId);
@@ -95,6 +108,8 @@ public class MessageServiceImpl implements MessageService {
     message.setImageUrl(audioUrl);
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("Voice message sent from {} to {} (duration: {}s)", senderId, receiverId, duration);
@@ -115,6 +130,8 @@ public class MessageServiceImpl implements MessageService {
     message.setImageUrl(fileUrl);
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("File message sent from {} to {}: {}", senderId, receiverId, fileName);
@@ -134,6 +151,8 @@ public class MessageServiceImpl implements MessageService {
     message.setContent(locationData); // Lưu dữ liệu vị trí vào content
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("Location message sent from {} to {}: {},{}", senderId, receiverId, latitude, longitude);
@@ -151,6 +170,8 @@ public class MessageServiceImpl implements MessageService {
     message.setContent(stickerId); // Lưu sticker ID vào content
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     sendWebSocketNotification(savedMessage, receiverId);
 
     log.info("Sticker message sent from {} to {}: {}", senderId, receiverId, stickerId);
@@ -167,6 +188,8 @@ public class MessageServiceImpl implements MessageService {
     message.setMessageType(MessageType.SYSTEM);
 
     Message savedMessage = messageRepository.save(message);
+
+    conversationService.onMessageSent(savedMessage);
     // Không gửi WebSocket notification cho system message
 
     log.info("System message sent from {} to {}: {}", senderId, receiverId, content);
@@ -188,6 +211,8 @@ public class MessageServiceImpl implements MessageService {
 
     Message savedMessage = messageRepository.save(message);
 
+    conversationService.onMessageSent(savedMessage);
+
     if (!messageType.isSystem()) {
       sendWebSocketNotification(savedMessage, receiverId);
     }
@@ -216,6 +241,17 @@ public class MessageServiceImpl implements MessageService {
     return messageRepository.findMessagesBetweenUsersWithPagination(currentUser, otherUser, currentUser, pageable);
   }
 
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<Message> getMessageHistoryByCursor(Long currentUserId, Long otherUserId, String cursor, int size) {
+    User currentUser = getUserById(currentUserId);
+    User otherUser = getUserById(otherUserId);
+    PageCursor pageCursor = PageCursor.decode(cursor);
+
+    return messageRepository.findMessagesBetweenUsersBefore(currentUser, otherUser, currentUser,
+        pageCursor.getCreatedAt(), pageCursor.getId(), PageRequest.of(0, PageCursor.clampSize(size)));
+  }
+
   @Override
   @Transactional(readOnly = true)
   public Message getMessageById(Long messageId) {
@@ -240,6 +276,12 @@ public class MessageServiceImpl implements MessageService {
     return messageRepository.findUnreadMessages(user);
   }
 
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<ConversationView> getInbox(Long userId, String cursor, int size) {
+    return conversationService.getInbox(userId, cursor, size);
+  }
+
   // ============ MESSAGE STATUS METHODS ============
 
   @Override
@@ -249,6 +291,7 @@ public class MessageServiceImpl implements MessageService {
     User sender = getUserById(senderId);
 
     messageRepository.markAllMessagesAsRead(receiver, sender);
+    conversationService.onConversationRead(receiverId, senderId);
     log.info("All messages from {} marked as read by {}", senderId, receiverId);
   }
 
@@ -262,8 +305,10 @@ public class MessageServiceImpl implements MessageService {
       throw new RuntimeException("User is not the receiver of this message");
     }
 
-    message.setIsRead(true);
-    messageRepository.save(message);
+    // UPDATE có điều kiện khóa dòng: hai request đọc / xóa cùng tin chỉ một bên đổi được và trừ chưa đọc
+    if (messageRepository.markAsReadIfUnread(messageId, user) > 0) {
+      conversationService.onUnreadMessageCleared(message);
+    }
     log.info("Message {} marked as read by user {}", messageId, userId);
   }
 
@@ -294,7 +339,11 @@ public class MessageServiceImpl implements MessageService {
     if (message.getSender().equals(user)) {
       messageRepository.softDeleteForSender(messageId, user);
     } else if (message.getReceiver().equals(user)) {
-      messageRepository.softDeleteForReceiver(messageId, user);
+      if (messageRepository.softDeleteUnreadForReceiver(messageId, user) > 0) {
+        conversationService.onUnreadMessageCleared(message);
+      } else {
+        messageRepository.softDeleteForReceiver(messageId, user);
+      }
     } else {
       throw new RuntimeException("User not authorized to delete this message");
     }
@@ -316,8 +365,13 @@ public class MessageServiceImpl implements MessageService {
       throw new RuntimeException("Cannot recall message after 5 minutes");
     }
 
+    if (messageRepository.softDeleteUnreadForReceiver(messageId, message.getReceiver()) > 0) {
+      conversationService.onUnreadMessageCleared(message);
+    } else {
+      messageRepository.softDeleteForReceiver(messageId, message.getReceiver());
+    }
     messageRepository.softDeleteForSender(messageId, sender);
-    messageRepository.softDeleteForReceiver(messageId, message.getReceiver());
+    conversationService.onMessageRecalled(message);
 
     // Gửi notification về việc thu hồi tin nhắn
     sendRecallNotification(message, message.getReceiver().getId());
@@ -336,6 +390,7 @@ public class MessageServiceImpl implements MessageService {
       User receiver = getUserById(receiverId);
       Message forwardedMessage = createForwardedMessage(originalMessage, sender, receiver);
       Message savedMessage = messageRepository.save(forwardedMessage);
+      conversationService.onMessageSent(savedMessage);
 
       if (firstForwardedMessage == null) {
         firstForwardedMessage = savedMessage;
@@ -357,6 +412,7 @@ public class MessageServiceImpl implements MessageService {
 
     Message copiedMessage = createCopiedMessage(originalMessage, sender, receiver);
     Message savedMessage = messageRepository.save(copiedMessage);
+    conversationService.onMessageSent(savedMessage);
 
     sendWebSocketNotification(savedMessage, receiverId);
     log.info("Message {} copied by {} to {}", messageId, senderId, receiverId);
@@ -418,42 +474,24 @@ public class MessageServiceImpl implements MessageService {
   }
 
   /**
-   * Gửi notification qua WebSocket
+   * Ghi notification vào outbox cùng transaction, gửi qua WebSocket sau khi commit
    */
   private void sendWebSocketNotification(Message message, Long receiverId) {
-    try {
-      Map<String, Object> messageDTO = createMessageDTO(message);
-
-      // Gửi đến receiver
-      messagingTemplate.convertAndSendToUser(
-          receiverId.toString(),
-          "/queue/messages",
-          messageDTO);
-
-      log.debug("WebSocket notification sent to user {}", receiverId);
-    } catch (Exception e) {
-      log.error("Failed to send WebSocket notification: {}", e.getMessage());
-    }
+    messageOutboxService.enqueue(receiverId, "/queue/messages", createMessageDTO(message));
+    log.debug("WebSocket notification queued for user {}", receiverId);
   }
 
   /**
-   * Gửi notification thu hồi tin nhắn
+   * Ghi notification thu hồi tin nhắn vào outbox
    */
   private void sendRecallNotification(Message message, Long receiverId) {
-    try {
-      Map<String, Object> recallNotification = new HashMap<>();
-      recallNotification.put("type", "MESSAGE_RECALLED");
-      recallNotification.put("messageId", message.getId());
-      recallNotification.put("recalledAt", LocalDateTime.now());
-
-      messagingTemplate.convertAndSendToUser(
-          receiverId.toString(),
-          "/queue/messages",
-          recallNotification);
-      log.debug("Recall notification sent to user {}", receiverId);
-    } catch (Exception e) {
-      log.error("Failed to send recall notification: {}", e.getMessage());
-    }
+    Map<String, Object> recallNotification = new HashMap<>();
+    recallNotification.put("type", "MESSAGE_RECALLED");
+    recallNotification.put("messageId", message.getId());
+    recallNotification.put("recalledAt", LocalDateTime.now());
+
+    messageOutboxService.enqueue(receiverId, "/queue/messages", recallNotification);
+    log.debug("Recall notification queued for user {}", receiverId);
   }
 
   /**
@@ -10,6 +10,8 @@ import com.noxtragram.model.entity.User;
 import com.noxtragram.repository.PostRepository;
 import com.noxtragram.repository.PostSaveRepository;
 import com.noxtragram.repository.UserRepository;
+import com.noxtragram.service.PostHydrationService;
+import com.noxtragram.service.PostMembershipIndex;
 import com.noxtragram.service.PostSaveService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.data.domain.Page;
@@ -18,6 +20,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,16 +30,19 @@ public class PostSaveServiceImpl implements PostSaveService {
   private final PostSaveRepository postSaveRepository;
   private final PostRepository postRepository;
   private final UserRepository userRepository;
-  private final PostServiceImpl postService;
+  private final PostHydrationService postHydrationService;
+  private final PostMembershipIndex postMembershipIndex;
 
   public PostSaveServiceImpl(PostSaveRepository postSaveRepository,
       PostRepository postRepository,
       UserRepository userRepository,
-      PostServiceImpl postService) {
+      PostHydrationService postHydrationService,
+      PostMembershipIndex postMembershipIndex) {
     this.postSaveRepository = postSaveRepository;
     this.postRepository = postRepository;
     this.userRepository = userRepository;
-    this.postService = postService;
+    this.postHydrationService = postHydrationService;
+    this.postMembershipIndex = postMembershipIndex;
   }
 
   @Override
@@ -56,6 +62,8 @@ public class PostSaveServiceImpl implements PostSaveService {
 
     PostSave postSave = new PostSave(user, post, folderName);
     postSaveRepository.save(postSave);
+
+    postMembershipIndex.recordSave(userId, postId);
   }
 
   @Override
@@ -99,12 +107,11 @@ public class PostSaveServiceImpl implements PostSaveService {
   @Override
   @Transactional(readOnly = true)
   public boolean isPostSavedByUser(Long postId, Long userId) {
-    Post post = postRepository.findByIdAndIsDeletedFalse(postId)
-        .orElseThrow(() -> new EntityNotFoundException("Post not found"));
-    User user = userRepository.findById(userId)
-        .orElseThrow(() -> new EntityNotFoundException("User not found"));
+    if (!postRepository.existsByIdAndIsDeletedFalse(postId)) {
+      throw new EntityNotFoundException("Post not found");
+    }
 
-    return postSaveRepository.existsByPostAndUser(post, user);
+    return postMembershipIndex.hasSaved(userId, postId);
   }
 
   @Override
@@ -114,7 +121,7 @@ public class PostSaveServiceImpl implements PostSaveService {
         .orElseThrow(() -> new EntityNotFoundException("User not found"));
 
     Page<PostSave> postSaves = postSaveRepository.findByUserOrderBySavedAtDesc(user, pageable);
-    return postSaves.map(this::convertToDTO);
+    return toDTOs(postSaves, userId);
   }
 
   @Override
@@ -124,7 +131,7 @@ public class PostSaveServiceImpl implements PostSaveService {
         .orElseThrow(() -> new EntityNotFoundException("User not found"));
 
     Page<PostSave> postSaves = postSaveRepository.findByUserAndFolderNameOrderBySavedAtDesc(user, folderName, pageable);
-    return postSaves.map(this::convertToDTO);
+    return toDTOs(postSaves, userId);
   }
 
   @Override
@@ -158,7 +165,16 @@ public class PostSaveServiceImpl implements PostSaveService {
     return postSaveRepository.countByUserAndFolderName(user, folderName);
   }
 
-  private PostSaveResponseDTO convertToDTO(PostSave postSave) {
+  // Chi tiết bài viết của cả trang được hydrate một lần thay vì gọi getPostById cho từng dòng
+  private Page<PostSaveResponseDTO> toDTOs(Page<PostSave> postSaves, Long userId) {
+    List<Long> postIds = postSaves.getContent().stream()
+        .map(postSave -> postSave.getPost().getId())
+        .collect(Collectors.toList());
+    Map<Long, PostResponseDTO> postDetails = postHydrationService.hydrateByIds(postIds, userId);
+    return postSaves.map(postSave -> convertToDTO(postSave, postDetails));
+  }
+
+  private PostSaveResponseDTO convertToDTO(PostSave postSave, Map<Long, PostResponseDTO> postDetails) {
     PostSaveResponseDTO dto = new PostSaveResponseDTO();
     dto.setId(postSave.getId());
     dto.setUserId(postSave.getUser().getId());
@@ -167,13 +183,8 @@ public class PostSaveServiceImpl implements PostSaveService {
     dto.setFolderName(postSave.getFolderName());
     dto.setSavedAt(postSave.getSavedAt());
 
-    // Thêm thông tin chi tiết bài viết
-    try {
-      PostResponseDTO postDetails = postService.getPostById(postSave.getPost().getId(), postSave.getUser().getId());
-      dto.setPostDetails(postDetails);
-    } catch (Exception e) {
-      // Nếu bài viết đã bị xóa, bỏ qua
-    }
+    // Thêm thông tin chi tiết bài viết, nếu bài viết đã bị xóa thì bỏ qua
+    dto.setPostDetails(postDetails.get(postSave.getPost().getId()));
 
     return dto;
   }
@@ -1,43 +1,91 @@
 package com.noxtragram.service.implementation;
 
+import com.noxtragram.event.PostCreatedEvent;
 import com.noxtragram.model.dto.request.PostRequestDTO;
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.dto.response.PostResponseDTO;
-import com.noxtragram.model.dto.Summary.UserSummaryDTO;
 import com.noxtragram.model.entity.*;
 import com.noxtragram.repository.*;
+import com.noxtragram.service.FeedService;
 import com.noxtragram.service.FileStorageService;
+import com.noxtragram.service.HashtagCountService;
+import com.noxtragram.service.HashtagPreviewService;
+import com.noxtragram.service.HashtagResolver;
+import com.noxtragram.service.UserCounterService;
+import com.noxtragram.service.LikeCounterService;
+import com.noxtragram.service.PostCacheService;
+import com.noxtragram.service.PostHydrationService;
+import com.noxtragram.service.PostMembershipIndex;
 import com.noxtragram.service.PostService;
+import com.noxtragram.util.PageCursor;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class PostServiceImpl implements PostService {
 
+  private static final Logger logger = LoggerFactory.getLogger(PostServiceImpl.class);
+
   private final PostRepository postRepository;
   private final UserRepository userRepository;
   private final HashtagRepository hashtagRepository;
   private final LikeRepository likeRepository;
   private final PostSaveRepository postSaveRepository;
   private final FileStorageService fileStorageService;
+  private final FeedService feedService;
+  private final PostHydrationService postHydrationService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final LikeCounterService likeCounterService;
+  private final PostMembershipIndex postMembershipIndex;
+  private final PostCacheService postCacheService;
+  private final HashtagResolver hashtagResolver;
+  private final HashtagCountService hashtagCountService;
+  private final HashtagPreviewService hashtagPreviewService;
+  private final UserCounterService userCounterService;
 
   public PostServiceImpl(PostRepository postRepository, UserRepository userRepository,
       HashtagRepository hashtagRepository, LikeRepository likeRepository,
-      PostSaveRepository postSaveRepository, FileStorageService fileStorageService) {
+      PostSaveRepository postSaveRepository, FileStorageService fileStorageService,
+      FeedService feedService, PostHydrationService postHydrationService,
+      ApplicationEventPublisher eventPublisher, LikeCounterService likeCounterService,
+      PostMembershipIndex postMembershipIndex, PostCacheService postCacheService,
+      HashtagResolver hashtagResolver, HashtagCountService hashtagCountService,
+      HashtagPreviewService hashtagPreviewService, UserCounterService userCounterService) {
     this.postRepository = postRepository;
     this.userRepository = userRepository;
     this.hashtagRepository = hashtagRepository;
     this.likeRepository = likeRepository;
     this.postSaveRepository = postSaveRepository;
     this.fileStorageService = fileStorageService;
+    this.feedService = feedService;
+    this.postHydrationService = postHydrationService;
+    this.eventPublisher = eventPublisher;
+    this.likeCounterService = likeCounterService;
+    this.postMembershipIndex = postMembershipIndex;
+    this.postCacheService = postCacheService;
+    this.hashtagResolver = hashtagResolver;
+    this.hashtagCountService = hashtagCountService;
+    this.hashtagPreviewService = hashtagPreviewService;
+    this.userCounterService = userCounterService;
   }
 
   @Override
@@ -74,21 +122,28 @@ public class PostServiceImpl implements PostService {
     }
 
     // Xử lý hashtags
+    Map<String, Long> hashtagIds = Map.of();
     if (postRequest.getHashtags() != null && !postRequest.getHashtags().isEmpty()) {
-      List<Hashtag> hashtags = processHashtags(postRequest.getHashtags());
-      post.setHashtags(hashtags);
+      hashtagIds = hashtagResolver.resolveIds(postRequest.getHashtags());
+      post.setHashtags(toHashtagReferences(hashtagIds));
     }
 
     Post savedPost = postRepository.save(post);
-    return convertToDTO(savedPost, userId);
+    hashtagCountService.increment(hashtagIds.values());
+    hashtagPreviewService.evictAfterCommit(hashtagIds.values());
+    userCounterService.recordPostCreated(userId);
+
+    // Fan-out vào home timeline của followers, cập nhật trending sau khi commit
+    eventPublisher.publishEvent(new PostCreatedEvent(savedPost.getId(), userId, savedPost.getCreatedAt(),
+        new ArrayList<>(hashtagIds.keySet())));
+
+    return postHydrationService.hydrate(savedPost, userId);
   }
 
   @Override
   @Transactional(readOnly = true)
   public PostResponseDTO getPostById(Long postId, Long currentUserId) {
-    Post post = postRepository.findByIdAndIsDeletedFalse(postId)
-        .orElseThrow(() -> new EntityNotFoundException("Post not found"));
-    return convertToDTO(post, currentUserId);
+    return postHydrationService.getPost(postId, currentUserId);
   }
 
   @Override
@@ -98,16 +153,29 @@ public class PostServiceImpl implements PostService {
         .orElseThrow(() -> new EntityNotFoundException("User not found"));
 
     Page<Post> posts = postRepository.findByUserAndIsDeletedFalseOrderByCreatedAtDesc(user, pageable);
-    return posts.map(post -> convertToDTO(post, currentUserId));
+    return postHydrationService.hydrate(posts, currentUserId);
   }
 
   @Override
   @Transactional(readOnly = true)
   public Page<PostResponseDTO> getFeedPosts(Long currentUserId, Pageable pageable) {
-    // Simple feed implementation - show posts from all users
-    // Can be enhanced to show posts from followed users only
-    Page<Post> posts = postRepository.findByIsDeletedFalseOrderByCreatedAtDesc(pageable);
-    return posts.map(post -> convertToDTO(post, currentUserId));
+    if (currentUserId == null) {
+      return postHydrationService.hydrate(postRepository.findByIsDeletedFalseOrderByCreatedAtDesc(pageable), null);
+    }
+
+    Page<Long> postIds;
+    try {
+      postIds = feedService.getHomeTimeline(currentUserId, pageable);
+    } catch (DataAccessException e) {
+      // Redis không khả dụng: quay về timeline chung
+      logger.warn("Home timeline unavailable for user {}: {}", currentUserId, e.getMessage());
+      return postHydrationService.hydrate(postRepository.findByIsDeletedFalseOrderByCreatedAtDesc(pageable),
+          currentUserId);
+    }
+
+    Page<Post> posts = new PageImpl<>(findPostsInOrder(postIds.getContent()), pageable,
+        postIds.getTotalElements());
+    return postHydrationService.hydrate(posts, currentUserId);
   }
 
   @Override
@@ -115,21 +183,69 @@ public class PostServiceImpl implements PostService {
   public Page<PostResponseDTO> getPostsByHashtag(String hashtag, Long currentUserId, Pageable pageable) {
     String cleanedHashtag = hashtag.startsWith("#") ? hashtag.substring(1) : hashtag;
     Page<Post> posts = postRepository.findByHashtagName(cleanedHashtag, pageable);
-    return posts.map(post -> convertToDTO(post, currentUserId));
+    return postHydrationService.hydrate(posts, currentUserId);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<PostResponseDTO> getPostsByUserIdByCursor(Long userId, Long currentUserId,
+      String cursor, int size) {
+    if (!userRepository.existsById(userId)) {
+      throw new EntityNotFoundException("User not found");
+    }
+
+    PageCursor pageCursor = PageCursor.decode(cursor);
+    Slice<Post> posts = postRepository.findUserPostsBefore(userId, pageCursor.getCreatedAt(), pageCursor.getId(),
+        PageRequest.of(0, PageCursor.clampSize(size)));
+    return toCursorPage(posts.getContent(), posts.hasNext(), currentUserId);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<PostResponseDTO> getFeedPostsByCursor(Long currentUserId, String cursor,
+      int requestedSize) {
+    PageCursor pageCursor = PageCursor.decode(cursor);
+    int size = PageCursor.clampSize(requestedSize);
+    if (currentUserId == null) {
+      return findGlobalPostsByCursor(pageCursor, size, null);
+    }
+
+    FeedService.TimelinePage timeline;
+    try {
+      timeline = feedService.getHomeTimelineBefore(currentUserId, pageCursor, size);
+    } catch (DataAccessException e) {
+      // Redis không khả dụng: quay về timeline chung
+      logger.warn("Home timeline unavailable for user {}: {}", currentUserId, e.getMessage());
+      return findGlobalPostsByCursor(pageCursor, size, currentUserId);
+    }
+
+    // Post trong trang có thể đã bị xóa: cursor vẫn lấy theo entry cuối của timeline
+    return toCursorPage(findPostsInOrder(timeline.postIds()), timeline.nextCursor(), currentUserId);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<PostResponseDTO> getPostsByHashtagByCursor(String hashtag, Long currentUserId,
+      String cursor, int size) {
+    String cleanedHashtag = hashtag.startsWith("#") ? hashtag.substring(1) : hashtag;
+    PageCursor pageCursor = PageCursor.decode(cursor);
+    Slice<Post> posts = postRepository.findHashtagPostsBefore(cleanedHashtag, pageCursor.getCreatedAt(),
+        pageCursor.getId(), PageRequest.of(0, PageCursor.clampSize(size)));
+    return toCursorPage(posts.getContent(), posts.hasNext(), currentUserId);
   }
 
   @Override
   @Transactional(readOnly = true)
   public Page<PostResponseDTO> getSavedPosts(Long userId, Long currentUserId, Pageable pageable) {
     Page<Post> posts = postRepository.findSavedPostsByUserId(userId, pageable);
-    return posts.map(post -> convertToDTO(post, currentUserId));
+    return postHydrationService.hydrate(posts, currentUserId);
   }
 
   @Override
   @Transactional(readOnly = true)
   public Page<PostResponseDTO> getPopularPosts(Long currentUserId, Pageable pageable) {
     Page<Post> posts = postRepository.findPopularPosts(pageable);
-    return posts.map(post -> convertToDTO(post, currentUserId));
+    return postHydrationService.hydrate(posts, currentUserId);
   }
 
   @Override
@@ -149,12 +265,17 @@ public class PostServiceImpl implements PostService {
 
     // Cập nhật hashtags
     if (postRequest.getHashtags() != null) {
-      List<Hashtag> hashtags = processHashtags(postRequest.getHashtags());
-      post.setHashtags(hashtags);
+      List<Long> oldHashtagIds = postRepository.findHashtagIdsByPostId(postId);
+      Map<String, Long> hashtagIds = hashtagResolver.resolveIds(postRequest.getHashtags());
+      post.setHashtags(toHashtagReferences(hashtagIds));
+      hashtagCountService.recordChange(oldHashtagIds, hashtagIds.values());
+      hashtagPreviewService.evictAfterCommit(oldHashtagIds);
+      hashtagPreviewService.evictAfterCommit(hashtagIds.values());
     }
 
     Post updatedPost = postRepository.save(post);
-    return convertToDTO(updatedPost, userId);
+    postCacheService.evictAfterCommit(postId);
+    return postHydrationService.hydrate(updatedPost, userId);
   }
 
   @Override
@@ -168,6 +289,11 @@ public class PostServiceImpl implements PostService {
 
     post.setIsDeleted(true);
     postRepository.save(post);
+    List<Long> hashtagIds = postRepository.findHashtagIdsByPostId(postId);
+    hashtagCountService.decrement(hashtagIds);
+    hashtagPreviewService.evictAfterCommit(hashtagIds);
+    userCounterService.recordPostDeleted(userId);
+    postCacheService.evictAfterCommit(postId);
   }
 
   @Override
@@ -186,8 +312,8 @@ public class PostServiceImpl implements PostService {
     like.setUser(user);
     likeRepository.save(like);
 
-    post.setLikeCount(post.getLikeCount() + 1);
-    postRepository.save(post);
+    likeCounterService.increment(postId);
+    postMembershipIndex.recordLike(userId, postId);
   }
 
   @Override
@@ -202,8 +328,7 @@ public class PostServiceImpl implements PostService {
 
     likeRepository.delete(like);
 
-    post.setLikeCount(Math.max(0, post.getLikeCount() - 1));
-    postRepository.save(post);
+    likeCounterService.decrement(postId);
   }
 
   @Override
@@ -221,6 +346,8 @@ public class PostServiceImpl implements PostService {
     postSave.setPost(post);
     postSave.setUser(user);
     postSaveRepository.save(postSave);
+
+    postMembershipIndex.recordSave(userId, postId);
   }
 
   @Override
@@ -239,79 +366,56 @@ public class PostServiceImpl implements PostService {
   @Override
   @Transactional(readOnly = true)
   public boolean isPostLikedByUser(Long postId, Long userId) {
-    Post post = postRepository.findByIdAndIsDeletedFalse(postId)
-        .orElseThrow(() -> new EntityNotFoundException("Post not found"));
-    User user = userRepository.findById(userId)
-        .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
-    return likeRepository.existsByPostAndUser(post, user);
+    return postMembershipIndex.hasLiked(userId, postId);
   }
 
   @Override
   @Transactional(readOnly = true)
   public boolean isPostSavedByUser(Long postId, Long userId) {
-    Post post = postRepository.findByIdAndIsDeletedFalse(postId)
-        .orElseThrow(() -> new EntityNotFoundException("Post not found"));
-    User user = userRepository.findById(userId)
-        .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
-    return postSaveRepository.existsByPostAndUser(post, user);
+    return postMembershipIndex.hasSaved(userId, postId);
   }
 
-  private List<Hashtag> processHashtags(List<String> hashtagNames) {
-    return hashtagNames.stream()
-        .map(name -> {
-          String cleanedName = name.startsWith("#") ? name.substring(1) : name;
-          return hashtagRepository.findByName(cleanedName)
-              .orElseGet(() -> {
-                Hashtag newHashtag = new Hashtag();
-                newHashtag.setName(cleanedName);
-                return hashtagRepository.save(newHashtag);
-              });
-        })
-        .collect(Collectors.toList());
+  private CursorPageResponseDTO<PostResponseDTO> findGlobalPostsByCursor(PageCursor pageCursor, int size,
+      Long currentUserId) {
+    Slice<Post> posts = postRepository.findPostsBefore(pageCursor.getCreatedAt(), pageCursor.getId(),
+        PageRequest.of(0, size));
+    return toCursorPage(posts.getContent(), posts.hasNext(), currentUserId);
   }
 
-  private PostResponseDTO convertToDTO(Post post, Long currentUserId) {
-    UserSummaryDTO userSummary = new UserSummaryDTO(
-        post.getUser().getId(),
-        post.getUser().getUsername(),
-        post.getUser().getProfilePicture(),
-        post.getUser().getFullName());
+  // Cursor của trang tiếp theo là (createdAt, id) của post cuối cùng trong trang
+  private CursorPageResponseDTO<PostResponseDTO> toCursorPage(List<Post> posts, boolean hasNext, Long currentUserId) {
+    PageCursor nextCursor = null;
+    if (hasNext && !posts.isEmpty()) {
+      Post last = posts.get(posts.size() - 1);
+      nextCursor = PageCursor.of(last.getCreatedAt(), last.getId());
+    }
+    return toCursorPage(posts, nextCursor, currentUserId);
+  }
 
-    List<String> hashtagNames = post.getHashtags().stream()
-        .map(Hashtag::getName)
-        .collect(Collectors.toList());
+  private CursorPageResponseDTO<PostResponseDTO> toCursorPage(List<Post> posts, PageCursor nextCursor,
+      Long currentUserId) {
+    String encoded = nextCursor != null ? nextCursor.encode() : null;
+    return new CursorPageResponseDTO<>(postHydrationService.hydrate(posts, currentUserId), encoded,
+        encoded != null);
+  }
 
-    PostResponseDTO dto = new PostResponseDTO();
-    dto.setId(post.getId());
-    dto.setCaption(post.getCaption());
-    dto.setImageUrl(post.getImageUrl());
-    dto.setImageUrls(post.getImageUrls() != null ? post.getImageUrls() : new ArrayList<>());
-    dto.setVideoUrl(post.getVideoUrl());
-    dto.setLocation(post.getLocation());
-    dto.setLikeCount(post.getLikeCount());
-    dto.setCommentCount(post.getCommentCount());
-    dto.setShareCount(post.getShareCount());
-    dto.setCreatedAt(post.getCreatedAt());
-    dto.setUpdatedAt(post.getUpdatedAt());
-    dto.setUser(userSummary);
-    dto.setHashtags(hashtagNames);
-
-    // Set interaction flags
-    if (currentUserId != null) {
-      try {
-        dto.setIsLikedByCurrentUser(isPostLikedByUser(post.getId(), currentUserId));
-        dto.setIsSavedByCurrentUser(isPostSavedByUser(post.getId(), currentUserId));
-      } catch (Exception e) {
-        dto.setIsLikedByCurrentUser(false);
-        dto.setIsSavedByCurrentUser(false);
-      }
-    } else {
-      dto.setIsLikedByCurrentUser(false);
-      dto.setIsSavedByCurrentUser(false);
+  // Load post theo danh sách ID, giữ nguyên thứ tự và bỏ các post đã bị xóa
+  private List<Post> findPostsInOrder(List<Long> postIds) {
+    if (postIds.isEmpty()) {
+      return new ArrayList<>();
     }
+    Map<Long, Post> postsById = postRepository.findByIdInAndIsDeletedFalse(postIds).stream()
+        .collect(Collectors.toMap(Post::getId, Function.identity()));
+    return postIds.stream()
+        .map(postsById::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
 
-    return dto;
+  // Chỉ cần id để ghi bảng post_hashtags, không load entity Hashtag
+  private List<Hashtag> toHashtagReferences(Map<String, Long> hashtagIds) {
+    return hashtagIds.values().stream()
+        .map(hashtagRepository::getReferenceById)
+        .collect(Collectors.toList());
   }
 }
@@ -1,25 +1,50 @@
 package com.noxtragram.service.implementation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.noxtragram.exception.ResourceNotFoundException;
 import com.noxtragram.exception.DuplicateResourceException;
 import com.noxtragram.exception.OperationNotAllowedException;
 import com.noxtragram.mapper.UserMapper;
 import com.noxtragram.model.dto.request.*;
+import com.noxtragram.model.dto.response.CursorPageResponseDTO;
 import com.noxtragram.model.dto.response.LoginResponseDTO;
 import com.noxtragram.model.dto.response.UserResponseDTO;
+import com.noxtragram.model.entity.Follow;
 import com.noxtragram.model.entity.User;
+import com.noxtragram.repository.FollowRepository;
 import com.noxtragram.repository.UserRepository;
+import com.noxtragram.repository.projection.FollowUserView;
 import com.noxtragram.security.JwtUtils;
+import com.noxtragram.service.FeedService;
 import com.noxtragram.service.FileStorageService;
+import com.noxtragram.service.PasswordHashingService;
+import com.noxtragram.service.TokenRevocationService;
+import com.noxtragram.service.UserCounterService;
+import com.noxtragram.service.UserSearchIndex;
 import com.noxtragram.service.UserService;
+import com.noxtragram.service.UserSuggestionService;
+import com.noxtragram.util.PageCursor;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,22 +52,46 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements UserService {
 
   private final UserRepository userRepository;
-  private final PasswordEncoder passwordEncoder;
+  private final FollowRepository followRepository;
+  private final PasswordHashingService passwordHashingService;
   private final FileStorageService fileStorageService;
   private final UserMapper userMapper;
   private final JwtUtils jwtUtils;
+  private final FeedService feedService;
+  private final UserSearchIndex userSearchIndex;
+  private final UserSuggestionService userSuggestionService;
+  private final UserCounterService userCounterService;
+  private final TokenRevocationService tokenRevocationService;
+  private final ObjectMapper objectMapper;
+  private final int exportBatchSize;
 
   @Autowired
   public UserServiceImpl(UserRepository userRepository,
-      PasswordEncoder passwordEncoder,
+      FollowRepository followRepository,
+      PasswordHashingService passwordHashingService,
       FileStorageService fileStorageService,
       UserMapper userMapper,
-      JwtUtils jwtUtils) {
+      JwtUtils jwtUtils,
+      FeedService feedService,
+      UserSearchIndex userSearchIndex,
+      UserSuggestionService userSuggestionService,
+      UserCounterService userCounterService,
+      TokenRevocationService tokenRevocationService,
+      ObjectMapper objectMapper,
+      @Value("${app.users.followers-export.batch-size:1000}") int exportBatchSize) {
     this.userRepository = userRepository;
-    this.passwordEncoder = passwordEncoder;
+    this.followRepository = followRepository;
+    this.passwordHashingService = passwordHashingService;
     this.fileStorageService = fileStorageService;
     this.userMapper = userMapper;
     this.jwtUtils = jwtUtils;
+    this.feedService = feedService;
+    this.userSearchIndex = userSearchIndex;
+    this.userSuggestionService = userSuggestionService;
+    this.userCounterService = userCounterService;
+    this.tokenRevocationService = tokenRevocationService;
+    this.objectMapper = objectMapper;
+    this.exportBatchSize = exportBatchSize;
   }
 
   // ✅ THÊM METHOD MỚI - Lấy userId từ username
@@ -53,13 +102,18 @@ public class UserServiceImpl implements UserService {
     return user.getId();
   }
 
+  /**
+   * BCrypt chạy ngoài transaction: mỗi query là một transaction ngắn của repository, không giữ
+   * connection của pool trong lúc chờ PasswordHashingService.
+   */
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public LoginResponseDTO login(LoginRequestDTO loginRequestDTO) {
     User user = userRepository.findByEmail(loginRequestDTO.getEmail())
         .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + loginRequestDTO.getEmail()));
 
     // Kiểm tra mật khẩu có hợp lệ không
-    if (!passwordEncoder.matches(loginRequestDTO.getPassword(), user.getPassword())) {
+    if (!passwordHashingService.matches(loginRequestDTO.getPassword(), user.getPassword())) {
       throw new OperationNotAllowedException("Invalid password");
     }
 
@@ -68,18 +122,39 @@ public class UserServiceImpl implements UserService {
       throw new OperationNotAllowedException("Account is deactivated");
     }
 
-    // Update last login
-    user.setUpdatedAt(LocalDateTime.now());
-    userRepository.save(user);
+    // Update last login; hash cũ có cost thấp hơn cấu hình thì hash lại khi đang có mật khẩu gốc
+    LocalDateTime now = LocalDateTime.now();
+    if (passwordHashingService.needsRehash(user.getPassword())) {
+      String rehashed = passwordHashingService.encode(loginRequestDTO.getPassword());
+      if (userRepository.updatePassword(user.getId(), user.getPassword(), rehashed, now) > 0) {
+        user.setPassword(rehashed);
+      }
+    } else {
+      userRepository.touchUpdatedAt(user.getId(), now);
+    }
+    user.setUpdatedAt(now);
 
     // Sử dụng JwtUtils để generate token
-    String token = jwtUtils.generateJwtToken(user.getUsername());
+    String token = jwtUtils.generateJwtToken(user);
 
     UserResponseDTO userResponseDTO = userMapper.toResponseDTO(user);
     return new LoginResponseDTO(token, userResponseDTO);
   }
 
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void logout(String token) {
+    // Thu hồi theo jti tới khi token hết hạn, không cần chạm DB
+    Claims claims = jwtUtils.parseClaims(token);
+    if (claims == null) {
+      return;
+    }
+    tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+  }
+
+  // Hash ngoài transaction, chỉ lần save cuối mở transaction (của repository)
+  @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public UserResponseDTO register(UserRequestDTO userRequestDTO) {
     // kiểm tra Email có tồn tại trên hệ thống không
     if (userRepository.existsByEmail(userRequestDTO.getEmail())) {
@@ -92,12 +167,13 @@ public class UserServiceImpl implements UserService {
     }
 
     User user = userMapper.toEntity(userRequestDTO);
-    user.setPassword(passwordEncoder.encode(user.getPassword()));
+    user.setPassword(passwordHashingService.encode(user.getPassword()));
     user.setIsActive(true);
     user.setIsVerified(false);
     user.setIsPrivate(userRequestDTO.getIsPrivate() != null ? userRequestDTO.getIsPrivate() : false);
 
     User savedUser = userRepository.save(user);
+    userSearchIndex.indexAfterCommit(savedUser);
     return userMapper.toResponseDTO(savedUser);
   }
 
@@ -149,6 +225,7 @@ public class UserServiceImpl implements UserService {
     user.setUpdatedAt(LocalDateTime.now());
 
     User updatedUser = userRepository.save(user);
+    userSearchIndex.indexAfterCommit(updatedUser);
     return userMapper.toResponseDTO(updatedUser);
   }
 
@@ -160,35 +237,43 @@ public class UserServiceImpl implements UserService {
     user.setUsername("deleted_" + System.currentTimeMillis() + "_" + user.getUsername());
     user.setUpdatedAt(LocalDateTime.now());
     userRepository.save(user);
+    userSearchIndex.indexAfterCommit(user);
+    tokenRevocationService.revokeAllForUserAfterCommit(userId);
   }
 
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void changePassword(Long userId, PasswordChangeRequestDTO passwordChangeDTO) {
     User user = findEntityById(userId);
 
-    if (!passwordEncoder.matches(passwordChangeDTO.getCurrentPassword(), user.getPassword())) {
+    if (!passwordHashingService.matches(passwordChangeDTO.getCurrentPassword(), user.getPassword())) {
       throw new OperationNotAllowedException("Current password is incorrect");
     }
 
-    user.setPassword(passwordEncoder.encode(passwordChangeDTO.getNewPassword()));
-    user.setUpdatedAt(LocalDateTime.now());
-    userRepository.save(user);
+    String encoded = passwordHashingService.encode(passwordChangeDTO.getNewPassword());
+    // Mật khẩu đã bị đổi trong lúc hash: mật khẩu hiện tại vừa kiểm tra không còn đúng
+    if (userRepository.updatePassword(userId, user.getPassword(), encoded, LocalDateTime.now()) == 0) {
+      throw new OperationNotAllowedException("Current password is incorrect");
+    }
+    // Token phát hành với mật khẩu cũ (kể cả token của request này) không còn dùng được
+    tokenRevocationService.revokeAllForUser(userId);
   }
 
   @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void resetPassword(PasswordResetRequestDTO passwordResetDTO) {
     User user = userRepository.findByEmail(passwordResetDTO.getEmail())
         .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + passwordResetDTO.getEmail()));
 
-    user.setPassword(passwordEncoder.encode(passwordResetDTO.getNewPassword()));
-    user.setUpdatedAt(LocalDateTime.now());
-    userRepository.save(user);
+    String encoded = passwordHashingService.encode(passwordResetDTO.getNewPassword());
+    // Đặt lại vô điều kiện: lần đặt lại sau cùng thắng
+    userRepository.setPassword(user.getId(), encoded, LocalDateTime.now());
+    tokenRevocationService.revokeAllForUser(user.getId());
   }
 
   @Override
-  public UserResponseDTO uploadProfilePicture(String username, MultipartFile file) {
-    User user = userRepository.findByUsername(username)
-        .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+  public UserResponseDTO uploadProfilePicture(Long userId, MultipartFile file) {
+    User user = findEntityById(userId);
 
     String fileName = fileStorageService.storeFile(file, "profiles");
     String oldProfilePicture = user.getProfilePicture();
@@ -230,7 +315,7 @@ public class UserServiceImpl implements UserService {
     User follower = findEntityById(followerId);
     User following = findEntityById(followingId);
 
-    if (follower.getFollowing().contains(following)) {
+    if (followRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
       throw new OperationNotAllowedException("Already following this user");
     }
 
@@ -238,102 +323,122 @@ public class UserServiceImpl implements UserService {
       throw new OperationNotAllowedException("This account is private. Send follow request instead.");
     }
 
-    follower.getFollowing().add(following);
-    following.getFollowers().add(follower);
-    userRepository.save(follower);
-    userRepository.save(following);
+    try {
+      followRepository.save(new Follow(follower, following));
+    } catch (DataIntegrityViolationException e) {
+      // Hai request follow cùng lúc: unique (follower_id, following_id) chặn bản ghi thứ hai
+      throw new OperationNotAllowedException("Already following this user");
+    }
+    userCounterService.recordFollow(followerId, followingId);
+
+    // Home timeline sẽ được dựng lại với bài của người vừa follow
+    feedService.invalidateTimelineAfterCommit(followerId);
+    userSuggestionService.evictAfterCommit(followerId);
   }
 
   @Override
   public void unfollowUser(Long followerId, Long followingId) {
-    User follower = findEntityById(followerId);
-    User following = findEntityById(followingId);
-
-    if (!follower.getFollowing().contains(following)) {
+    if (followRepository.deleteByFollowerIdAndFollowingId(followerId, followingId) == 0) {
       throw new OperationNotAllowedException("Not following this user");
     }
+    userCounterService.recordUnfollow(followerId, followingId);
 
-    follower.getFollowing().remove(following);
-    following.getFollowers().remove(follower);
-    userRepository.save(follower);
-    userRepository.save(following);
+    feedService.invalidateTimelineAfterCommit(followerId);
+    userSuggestionService.evictAfterCommit(followerId);
   }
 
   @Override
+  @Transactional(readOnly = true)
   public boolean isFollowing(Long userId, Long targetUserId) {
-    User user = findEntityById(userId);
-    User targetUser = findEntityById(targetUserId);
-    return user.getFollowing().contains(targetUser);
+    return followRepository.existsByFollowerIdAndFollowingId(userId, targetUserId);
   }
 
   @Override
-  public List<UserResponseDTO> getFollowers(Long userId) {
-    User user = findEntityById(userId);
-    return user.getFollowers().stream()
-        .map(userMapper::toResponseDTO)
-        .collect(Collectors.toList());
+  @Transactional(readOnly = true)
+  public Page<UserResponseDTO> getFollowers(Long userId, Pageable pageable) {
+    return followRepository.findFollowersOf(userId, pageable).map(userMapper::toResponseDTO);
   }
 
   @Override
-  public List<UserResponseDTO> getFollowing(Long userId) {
-    User user = findEntityById(userId);
-    return user.getFollowing().stream()
-        .map(userMapper::toResponseDTO)
-        .collect(Collectors.toList());
+  @Transactional(readOnly = true)
+  public Page<UserResponseDTO> getFollowing(Long userId, Pageable pageable) {
+    return followRepository.findFollowingOf(userId, pageable).map(userMapper::toResponseDTO);
   }
 
   @Override
-  public Integer getFollowerCount(Long userId) {
-    User user = findEntityById(userId);
-    return user.getFollowers().size();
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<FollowUserView> getFollowersByCursor(Long userId, String cursor, int size) {
+    PageCursor pageCursor = PageCursor.decode(cursor);
+    return toCursorPage(followRepository.findFollowersBefore(userId, pageCursor.getId(),
+        PageRequest.of(0, PageCursor.clampSize(size))));
   }
 
   @Override
-  public Integer getFollowingCount(Long userId) {
-    User user = findEntityById(userId);
-    return user.getFollowing().size();
+  @Transactional(readOnly = true)
+  public CursorPageResponseDTO<FollowUserView> getFollowingByCursor(Long userId, String cursor, int size) {
+    PageCursor pageCursor = PageCursor.decode(cursor);
+    return toCursorPage(followRepository.findFollowingBefore(userId, pageCursor.getId(),
+        PageRequest.of(0, PageCursor.clampSize(size))));
   }
 
+  /**
+   * Ghi toàn bộ followers ra stream dạng NDJSON (mỗi dòng một JSON), đọc theo từng lô keyset.
+   * Không giữ transaction trong suốt quá trình ghi: mỗi lô là một query ngắn.
+   */
   @Override
-  public List<UserResponseDTO> searchUsers(String keyword) {
-    List<User> byUsername = userRepository.findByUsernameContainingIgnoreCase(keyword);
-    List<User> byFullName = userRepository.findByFullNameContainingIgnoreCase(keyword);
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void exportFollowers(Long userId, OutputStream out) throws IOException {
+    Long beforeId = PageCursor.start().getId();
+    Slice<FollowUserView> batch;
+    do {
+      batch = followRepository.findFollowersBefore(userId, beforeId, PageRequest.of(0, exportBatchSize));
+      for (FollowUserView follower : batch.getContent()) {
+        out.write(objectMapper.writeValueAsBytes(follower));
+        out.write('\n');
+        beforeId = follower.getFollowId();
+      }
+      out.flush();
+    } while (batch.hasNext());
+  }
 
-    byUsername.addAll(byFullName.stream()
-        .filter(user -> !byUsername.contains(user))
-        .collect(Collectors.toList()));
+  @Override
+  @Transactional(readOnly = true)
+  public Integer getFollowerCount(Long userId) {
+    return userCounterService.getFollowerCount(findEntityById(userId));
+  }
 
-    return byUsername.stream()
-        .map(userMapper::toResponseDTO)
-        .collect(Collectors.toList());
+  @Override
+  @Transactional(readOnly = true)
+  public Integer getFollowingCount(Long userId) {
+    return userCounterService.getFollowingCount(findEntityById(userId));
   }
 
   @Override
-  public List<UserResponseDTO> searchByUsername(String username) {
-    return userRepository.findByUsernameContainingIgnoreCase(username).stream()
-        .map(userMapper::toResponseDTO)
-        .collect(Collectors.toList());
+  @Transactional(readOnly = true)
+  public List<UserResponseDTO> searchUsers(String keyword, int page, int size) {
+    return search(keyword, UserSearchIndex.Scope.ALL, page, size);
   }
 
   @Override
-  public List<UserResponseDTO> searchByFullName(String fullName) {
-    return userRepository.findByFullNameContainingIgnoreCase(fullName).stream()
-        .map(userMapper::toResponseDTO)
-        .collect(Collectors.toList());
+  @Transactional(readOnly = true)
+  public List<UserResponseDTO> searchByUsername(String username, int page, int size) {
+    return search(username, UserSearchIndex.Scope.USERNAME, page, size);
   }
 
   @Override
+  @Transactional(readOnly = true)
+  public List<UserResponseDTO> searchByFullName(String fullName, int page, int size) {
+    return search(fullName, UserSearchIndex.Scope.FULL_NAME, page, size);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
   public List<UserResponseDTO> getSuggestedUsers(Long userId, int limit) {
-    User currentUser = findEntityById(userId);
+    findEntityById(userId);
 
-    return userRepository.findAllActiveUsers().stream()
-        .filter(user -> !user.equals(currentUser))
-        .filter(user -> !currentUser.getFollowing().contains(user))
-        .sorted((u1, u2) -> {
-          int u1Score = calculateUserScore(currentUser, u1);
-          int u2Score = calculateUserScore(currentUser, u2);
-          return Integer.compare(u2Score, u1Score);
-        })
+    // Danh sách gợi ý được cache, user có thể đã bị khóa sau đó: lấy dư rồi lọc
+    return loadInOrder(userSuggestionService.getSuggestedUserIds(userId, limit * 2)).stream()
+        .filter(user -> Boolean.TRUE.equals(user.getIsActive()))
         .limit(limit)
         .map(userMapper::toResponseDTO)
         .collect(Collectors.toList());
@@ -363,6 +468,8 @@ public class UserServiceImpl implements UserService {
     user.setIsActive(false);
     user.setUpdatedAt(LocalDateTime.now());
     User deactivatedUser = userRepository.save(user);
+    userSearchIndex.indexAfterCommit(deactivatedUser);
+    tokenRevocationService.revokeAllForUserAfterCommit(userId);
     return userMapper.toResponseDTO(deactivatedUser);
   }
 
@@ -372,6 +479,7 @@ public class UserServiceImpl implements UserService {
     user.setIsActive(true);
     user.setUpdatedAt(LocalDateTime.now());
     User reactivatedUser = userRepository.save(user);
+    userSearchIndex.indexAfterCommit(reactivatedUser);
     return userMapper.toResponseDTO(reactivatedUser);
   }
 
@@ -396,14 +504,51 @@ public class UserServiceImpl implements UserService {
         .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
   }
 
-  private int calculateUserScore(User currentUser, User suggestedUser) {
-    int score = 0;
+  private List<UserResponseDTO> search(String keyword, UserSearchIndex.Scope scope, int page, int size) {
+    if (!userSearchIndex.isReady()) {
+      return searchInDatabase(keyword, scope, page, size);
+    }
+
+    List<Long> ids = userSearchIndex.search(keyword, scope, PageRequest.of(page, size)).getContent();
+    return loadInOrder(ids).stream()
+        .map(userMapper::toResponseDTO)
+        .collect(Collectors.toList());
+  }
 
-    long mutualFollowers = currentUser.getFollowing().stream()
-        .filter(suggestedUser.getFollowers()::contains)
-        .count();
-    score += (int) mutualFollowers * 10;
+  private CursorPageResponseDTO<FollowUserView> toCursorPage(Slice<FollowUserView> slice) {
+    List<FollowUserView> content = slice.getContent();
+    String nextCursor = null;
+    if (slice.hasNext() && !content.isEmpty()) {
+      FollowUserView last = content.get(content.size() - 1);
+      nextCursor = PageCursor.of(last.getFollowedAt(), last.getFollowId()).encode();
+    }
+    return new CursorPageResponseDTO<>(content, nextCursor, slice.hasNext());
+  }
 
-    return score;
+  // Load user theo danh sách ID, giữ nguyên thứ tự xếp hạng
+  private List<User> loadInOrder(List<Long> ids) {
+    Map<Long, User> usersById = userRepository.findAllById(ids).stream()
+        .collect(Collectors.toMap(User::getId, Function.identity()));
+    return ids.stream()
+        .map(usersById::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  // Index chưa dựng xong (vừa khởi động): LIKE trên DB
+  private List<UserResponseDTO> searchInDatabase(String keyword, UserSearchIndex.Scope scope, int page, int size) {
+    Map<Long, User> users = new LinkedHashMap<>();
+    if (scope != UserSearchIndex.Scope.FULL_NAME) {
+      userRepository.findByUsernameContainingIgnoreCase(keyword).forEach(user -> users.putIfAbsent(user.getId(), user));
+    }
+    if (scope != UserSearchIndex.Scope.USERNAME) {
+      userRepository.findByFullNameContainingIgnoreCase(keyword).forEach(user -> users.putIfAbsent(user.getId(), user));
+    }
+
+    return users.values().stream()
+        .skip((long) page * size)
+        .limit(size)
+        .map(userMapper::toResponseDTO)
+        .collect(Collectors.toList());
   }
 }
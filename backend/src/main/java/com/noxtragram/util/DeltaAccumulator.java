@@ -0,0 +1,87 @@
+package com.noxtragram.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cộng dồn delta theo key trong bộ nhớ để ghi xuống DB theo lô.
+ *
+ * Mỗi key có một LongAdder riêng nên ghi đồng thời không tranh nhau một khóa. {@link #drain()}
+ * lấy và reset toàn bộ delta, bỏ adder của key không còn hoạt động mà không làm mất lượt cộng
+ * xảy ra cùng lúc.
+ */
+public class DeltaAccumulator<K> {
+
+  private final ConcurrentHashMap<K, LongAdder> deltas = new ConcurrentHashMap<>();
+
+  public void add(K key, long delta) {
+    LongAdder adder = deltas.computeIfAbsent(key, k -> new LongAdder());
+    adder.add(delta);
+
+    // Adder vừa bị drain() bỏ đi: chuyển phần còn lại sang adder mới
+    if (deltas.get(key) != adder) {
+      long orphaned = adder.sumThenReset();
+      if (orphaned != 0) {
+        add(key, orphaned);
+      }
+    }
+  }
+
+  public long get(K key) {
+    LongAdder adder = deltas.get(key);
+    return adder != null ? adder.sum() : 0;
+  }
+
+  /**
+   * Delta hiện tại của nhiều key (chỉ chứa key có delta khác 0)
+   */
+  public Map<K, Long> get(Collection<K> keys) {
+    Map<K, Long> result = new HashMap<>();
+    for (K key : keys) {
+      long delta = get(key);
+      if (delta != 0) {
+        result.put(key, delta);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Các key đang có delta khác 0 (chưa được drain)
+   */
+  public Set<K> keys() {
+    Set<K> keys = new HashSet<>();
+    deltas.forEach((key, adder) -> {
+      if (adder.sum() != 0) {
+        keys.add(key);
+      }
+    });
+    return keys;
+  }
+
+  /**
+   * Lấy và reset toàn bộ delta khác 0
+   */
+  public Map<K, Long> drain() {
+    Map<K, Long> drained = new HashMap<>();
+    for (Map.Entry<K, LongAdder> entry : deltas.entrySet()) {
+      K key = entry.getKey();
+      LongAdder adder = entry.getValue();
+      long delta = adder.sumThenReset();
+
+      if (delta == 0 && deltas.remove(key, adder)) {
+        // Key không còn hoạt động: bỏ adder, thu nốt phần vừa cộng vào trước khi bị bỏ
+        delta = adder.sumThenReset();
+      }
+      if (delta != 0) {
+        drained.put(key, delta);
+      }
+    }
+    return drained;
+  }
+}
@@ -0,0 +1,112 @@
+package com.noxtragram.util;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Bộ đếm long -> int dạng open addressing trên mảng primitive.
+ *
+ * Dùng khi đếm hàng chục nghìn key trong một request: không tạo object Long/Integer cho mỗi key
+ * như HashMap, bộ nhớ chỉ gồm hai mảng. Không thread-safe, key 0 được dành làm ô trống
+ * (ID trong DB luôn lớn hơn 0).
+ */
+public class LongIntCounter {
+
+  private static final long EMPTY = 0L;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private long[] keys;
+  private int[] counts;
+  private int size;
+
+  public LongIntCounter(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    this.keys = new long[capacity];
+    this.counts = new int[capacity];
+  }
+
+  public void increment(long key) {
+    add(key, 1);
+  }
+
+  public void add(long key, int delta) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Key 0 is reserved");
+    }
+    int slot = slotOf(keys, key);
+    if (keys[slot] == EMPTY) {
+      keys[slot] = key;
+      size++;
+    }
+    counts[slot] += delta;
+
+    if (size > keys.length * LOAD_FACTOR) {
+      grow();
+    }
+  }
+
+  public int get(long key) {
+    int slot = slotOf(keys, key);
+    return keys[slot] == key ? counts[slot] : 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Tối đa k key có count lớn nhất (cùng count thì key lớn hơn trước), bỏ các key bị loại trừ.
+   * excludedSorted phải được sắp xếp tăng dần.
+   */
+  public long[] topKeys(int k, long[] excludedSorted) {
+    // Min-heap theo (count, key), giữ k phần tử lớn nhất
+    PriorityQueue<long[]> heap = new PriorityQueue<>(k + 1, (a, b) -> a[1] != b[1]
+        ? Long.compare(a[1], b[1])
+        : Long.compare(a[0], b[0]));
+    for (int i = 0; i < keys.length; i++) {
+      long key = keys[i];
+      if (key == EMPTY || Arrays.binarySearch(excludedSorted, key) >= 0) {
+        continue;
+      }
+      heap.offer(new long[] { key, counts[i] });
+      if (heap.size() > k) {
+        heap.poll();
+      }
+    }
+
+    long[] top = new long[heap.size()];
+    for (int i = top.length - 1; i >= 0; i--) {
+      top[i] = heap.poll()[0];
+    }
+    return top;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    keys = new long[oldKeys.length << 1];
+    counts = new int[oldKeys.length << 1];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slotOf(keys, oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  // Linear probing, trả về ô chứa key hoặc ô trống đầu tiên
+  private static int slotOf(long[] table, long key) {
+    int mask = table.length - 1;
+    int slot = (int) mix(key) & mask;
+    while (table[slot] != EMPTY && table[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static long mix(long x) {
+    x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+    return x ^ (x >>> 33);
+  }
+}
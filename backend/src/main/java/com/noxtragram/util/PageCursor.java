@@ -0,0 +1,83 @@
+package com.noxtragram.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset pagination theo (createdAt, id) giảm dần.
+ * Client chỉ nhận chuỗi đã mã hóa và gửi lại nguyên vẹn cho trang tiếp theo.
+ */
+public class PageCursor {
+
+  private static final String SEPARATOR = "|";
+
+  // Giới hạn số bản ghi mỗi trang, client gửi size lớn hơn sẽ bị cắt về mức này
+  public static final int MAX_PAGE_SIZE = 100;
+
+  // Cursor của trang đầu tiên: lớn hơn mọi bản ghi
+  private static final PageCursor START = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+  private final LocalDateTime createdAt;
+  private final Long id;
+
+  private PageCursor(LocalDateTime createdAt, Long id) {
+    this.createdAt = createdAt;
+    this.id = id;
+  }
+
+  public static PageCursor of(LocalDateTime createdAt, Long id) {
+    return new PageCursor(createdAt, id);
+  }
+
+  public static PageCursor start() {
+    return START;
+  }
+
+  /**
+   * Giải mã cursor từ client, null hoặc rỗng nghĩa là trang đầu tiên
+   */
+  public static PageCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return START;
+    }
+
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separatorIndex = raw.lastIndexOf(SEPARATOR);
+      if (separatorIndex < 0) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+      LocalDateTime createdAt = LocalDateTime.parse(raw.substring(0, separatorIndex));
+      Long id = Long.valueOf(raw.substring(separatorIndex + 1));
+      return new PageCursor(createdAt, id);
+    } catch (DateTimeParseException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+  }
+
+  /**
+   * Đưa size từ client về khoảng [1, MAX_PAGE_SIZE]
+   */
+  public static int clampSize(int size) {
+    return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+  }
+
+  public String encode() {
+    String raw = createdAt + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public boolean isStart() {
+    return this == START;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public Long getId() {
+    return id;
+  }
+}
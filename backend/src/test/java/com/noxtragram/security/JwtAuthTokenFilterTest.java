@@ -0,0 +1,74 @@
+package com.noxtragram.security;
+
+import com.noxtragram.service.TokenRevocationService;
+import com.noxtragram.service.implementation.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JwtUtils thật ký token; TokenRevocationService là mock để test bật / tắt thu hồi theo user.
+ */
+class JwtAuthTokenFilterTest {
+
+  private static final String SECRET = "mySuperSecretKeyThatIsVeryLongAndSecureForJWTTokenGeneration12345";
+
+  private final JwtUtils jwtUtils = new JwtUtils(SECRET, 60_000);
+  private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+  private JwtAuthTokenFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    filter = new JwtAuthTokenFilter(jwtUtils, mock(UserDetailsServiceImpl.class), tokenRevocationService,
+        new SimpleMeterRegistry(), true, 100, Duration.ofSeconds(30));
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void cachedPrincipalIsRejectedOnceTheUsersTokensAreRevoked() throws Exception {
+    String token = jwtUtils.generateJwtToken(7L, "alice", List.of("ROLE_USER"));
+
+    assertThat(authenticate(token)).isNotNull();
+
+    // Đổi mật khẩu / khóa tài khoản sau khi principal đã vào cache
+    when(tokenRevocationService.isRevoked(anyString(), eq(7L), any())).thenReturn(true);
+
+    assertThat(authenticate(token)).isNull();
+  }
+
+  @Test
+  void tokenOfARevokedUserIsRejectedOnFirstUse() throws Exception {
+    when(tokenRevocationService.isRevoked(anyString(), eq(7L), any())).thenReturn(true);
+    String token = jwtUtils.generateJwtToken(7L, "alice", List.of("ROLE_USER"));
+
+    assertThat(authenticate(token)).isNull();
+  }
+
+  private Authentication authenticate(String token) throws Exception {
+    SecurityContextHolder.clearContext();
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer " + token);
+    filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    return SecurityContextHolder.getContext().getAuthentication();
+  }
+}
@@ -0,0 +1,141 @@
+package com.noxtragram.service;
+
+import com.noxtragram.repository.FollowRepository;
+import com.noxtragram.repository.PostRepository;
+import com.noxtragram.util.PageCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeedServiceTest {
+
+  private static final Long USER_ID = 1L;
+  private static final String TIMELINE_KEY = "feed:timeline:1";
+
+  private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+  private final FollowRepository followRepository = mock(FollowRepository.class);
+  private final PostRepository postRepository = mock(PostRepository.class);
+  @SuppressWarnings("unchecked")
+  private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+  @SuppressWarnings("unchecked")
+  private final SetOperations<String, String> setOperations = mock(SetOperations.class);
+
+  private FeedService feedService;
+
+  private static double score(LocalDateTime createdAt) {
+    return createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  @BeforeEach
+  void setUp() {
+    when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    when(redisTemplate.opsForSet()).thenReturn(setOperations);
+    when(redisTemplate.hasKey(TIMELINE_KEY)).thenReturn(true);
+    when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(true);
+
+    // Timeline đã dựng: placeholder + 2 post
+    when(zSetOperations.zCard(TIMELINE_KEY)).thenReturn(3L);
+    when(zSetOperations.reverseRange(eq(TIMELINE_KEY), anyLong(), anyLong()))
+        .thenReturn(new LinkedHashSet<>(List.of("12", "11")));
+    when(setOperations.members("feed:celebrities")).thenReturn(Set.of("99"));
+    when(followRepository.findFollowingIdsAmong(eq(USER_ID), any())).thenReturn(List.of());
+
+    feedService = new FeedService(redisTemplate, followRepository, postRepository,
+        800, 10000, 500, Duration.ofDays(7), Duration.ofMinutes(1), 1000);
+  }
+
+  @Test
+  void totalDoesNotCountPlaceholder() {
+    Page<Long> page = feedService.getHomeTimeline(USER_ID, PageRequest.of(0, 10));
+
+    assertThat(page.getContent()).containsExactly(12L, 11L);
+    assertThat(page.getTotalElements()).isEqualTo(2);
+  }
+
+  @Test
+  void followedCelebritiesAreLookedUpOncePerCacheWindow() {
+    feedService.getHomeTimeline(USER_ID, PageRequest.of(0, 10));
+    feedService.getHomeTimeline(USER_ID, PageRequest.of(0, 10));
+
+    verify(setOperations, times(1)).members("feed:celebrities");
+    verify(followRepository, times(1)).findFollowingIdsAmong(eq(USER_ID), any());
+  }
+
+  @Test
+  void invalidatingTimelineReloadsFollowedCelebrities() {
+    feedService.getHomeTimeline(USER_ID, PageRequest.of(0, 10));
+    feedService.invalidateTimelineAfterCommit(USER_ID);
+    feedService.getHomeTimeline(USER_ID, PageRequest.of(0, 10));
+
+    verify(followRepository, times(2)).findFollowingIdsAmong(eq(USER_ID), any());
+  }
+
+  @Test
+  void nextCursorComesFromTheLastTimelineEntry() {
+    LocalDateTime older = LocalDateTime.of(2026, 1, 1, 12, 0);
+    when(zSetOperations.reverseRangeByScoreWithScores(eq(TIMELINE_KEY), anyDouble(), anyDouble(), anyLong(),
+        anyLong())).thenReturn(new LinkedHashSet<>(List.of(
+            new DefaultTypedTuple<>("12", score(older.plusMinutes(2))),
+            new DefaultTypedTuple<>("11", score(older.plusMinutes(1))),
+            new DefaultTypedTuple<>("10", score(older)))));
+
+    FeedService.TimelinePage page = feedService.getHomeTimelineBefore(USER_ID, PageCursor.start(), 2);
+
+    // Cursor không phụ thuộc post 11 còn tồn tại: trang sau bắt đầu ngay sau entry đó
+    assertThat(page.postIds()).containsExactly(12L, 11L);
+    assertThat(page.nextCursor().getCreatedAt()).isEqualTo(older.plusMinutes(1));
+    assertThat(page.nextCursor().getId()).isEqualTo(11L);
+  }
+
+  @Test
+  void lastTimelinePageHasNoCursor() {
+    when(zSetOperations.reverseRangeByScoreWithScores(eq(TIMELINE_KEY), anyDouble(), anyDouble(), anyLong(),
+        anyLong())).thenReturn(new LinkedHashSet<>(List.of(
+            new DefaultTypedTuple<>("12", score(LocalDateTime.of(2026, 1, 1, 12, 0))))));
+
+    FeedService.TimelinePage page = feedService.getHomeTimelineBefore(USER_ID, PageCursor.start(), 2);
+
+    assertThat(page.postIds()).containsExactly(12L);
+    assertThat(page.nextCursor()).isNull();
+  }
+
+  @Test
+  void timelineIsInvalidatedOnlyAfterTheFollowCommits() {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      feedService.invalidateTimelineAfterCommit(USER_ID);
+      verify(redisTemplate, never()).delete(TIMELINE_KEY);
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      verify(redisTemplate).delete(TIMELINE_KEY);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+}
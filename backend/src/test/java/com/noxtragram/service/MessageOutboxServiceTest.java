@@ -0,0 +1,155 @@
+package com.noxtragram.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noxtragram.repository.MessageOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bảng message_outbox là hàng đợi các lô trong test: mỗi lần claim lấy lô kế tiếp (rỗng khi hết).
+ */
+class MessageOutboxServiceTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final RealtimePublisher realtimePublisher = mock(RealtimePublisher.class);
+  private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  private final Deque<List<Object[]>> batches = new ArrayDeque<>();
+  private final AtomicInteger claims = new AtomicInteger();
+  private final AtomicInteger concurrentClaims = new AtomicInteger();
+  private final AtomicInteger maxConcurrentClaims = new AtomicInteger();
+
+  private MessageOutboxService service;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(jdbcTemplate.query(startsWith("SELECT"), any(RowMapper.class), any(Object[].class)))
+        .thenAnswer(invocation -> {
+          claims.incrementAndGet();
+          maxConcurrentClaims.accumulateAndGet(concurrentClaims.incrementAndGet(), Math::max);
+          try {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object[]> rows = batches.isEmpty() ? List.of() : batches.poll();
+            List<Object> mapped = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+              mapped.add(mapper.mapRow(row(rows.get(i)), i));
+            }
+            return mapped;
+          } finally {
+            concurrentClaims.decrementAndGet();
+          }
+        });
+
+    service = new MessageOutboxService(mock(MessageOutboxRepository.class), realtimePublisher, jdbcTemplate,
+        new ObjectMapper(), mock(ThreadPoolTaskExecutor.class), transactionManager, 2, Duration.ofSeconds(30));
+  }
+
+  @Test
+  void publishesAfterClaimCommitsAndDeletesAfterPublishing() {
+    batches.add(batch(event(1L, 10L), event(2L, 20L)));
+    batches.add(batch(event(3L, 10L)));
+
+    service.dispatchPending();
+
+    InOrder order = inOrder(jdbcTemplate, transactionManager, realtimePublisher);
+    // Lô đầy: claim, đánh dấu claimed_until, commit, gửi, xóa
+    order.verify(jdbcTemplate).update(startsWith("UPDATE message_outbox SET claimed_until"), eq(30L), eq(1L), eq(2L));
+    order.verify(transactionManager).commit(any());
+    order.verify(realtimePublisher).sendToUser(eq(10L), eq("/queue/messages"), any());
+    order.verify(realtimePublisher).sendToUser(eq(20L), eq("/queue/messages"), any());
+    order.verify(jdbcTemplate).update(startsWith("DELETE FROM message_outbox"), eq(1L), eq(2L));
+    // Lô thiếu: dừng sau lô này
+    order.verify(transactionManager).commit(any());
+    order.verify(realtimePublisher).sendToUser(eq(10L), eq("/queue/messages"), any());
+    order.verify(jdbcTemplate).update(startsWith("DELETE FROM message_outbox"), eq(3L));
+    assertThat(claims).hasValue(2);
+  }
+
+  @Test
+  void failedPublishDoesNotBlockTheBatch() {
+    batches.add(batch(event(1L, 10L)));
+    doAnswer(invocation -> {
+      throw new IllegalStateException("broker down");
+    }).when(realtimePublisher).sendToUser(eq(10L), anyString(), any());
+
+    service.dispatchPending();
+
+    verify(jdbcTemplate).update(startsWith("DELETE FROM message_outbox"), eq(1L));
+  }
+
+  @Test
+  void overlappingDispatchesRunOneAtATimeAndRescanAfterwards() throws Exception {
+    CountDownLatch publishing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      publishing.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(realtimePublisher).sendToUser(anyLong(), anyString(), any());
+    batches.add(batch(event(1L, 10L)));
+
+    CompletableFuture<Void> scheduled = CompletableFuture.runAsync(service::dispatchPending);
+    assertThat(publishing.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // Lượt sau commit đến khi job định kỳ đang gửi: không claim song song, trả về ngay
+    batches.add(batch(event(2L, 10L)));
+    service.dispatchPending();
+    assertThat(claims).hasValue(1);
+
+    release.countDown();
+    scheduled.get(5, TimeUnit.SECONDS);
+
+    // Lượt đang chạy quét lại và gửi nốt sự kiện đến sau, theo thứ tự
+    InOrder order = inOrder(jdbcTemplate);
+    order.verify(jdbcTemplate).update(startsWith("DELETE FROM message_outbox"), eq(1L));
+    order.verify(jdbcTemplate).update(startsWith("DELETE FROM message_outbox"), eq(2L));
+    verify(realtimePublisher, times(2)).sendToUser(eq(10L), eq("/queue/messages"), any());
+    assertThat(maxConcurrentClaims).hasValue(1);
+  }
+
+  private static List<Object[]> batch(Object[]... events) {
+    return List.of(events);
+  }
+
+  private static Object[] event(Long id, Long recipientId) {
+    return new Object[] { id, recipientId, "/queue/messages", "{\"id\":" + id + "}" };
+  }
+
+  private static ResultSet row(Object[] event) throws Exception {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong("id")).thenReturn((Long) event[0]);
+    when(rs.getLong("recipient_id")).thenReturn((Long) event[1]);
+    when(rs.getString("destination")).thenReturn((String) event[2]);
+    when(rs.getString("payload")).thenReturn((String) event[3]);
+    return rs;
+  }
+}
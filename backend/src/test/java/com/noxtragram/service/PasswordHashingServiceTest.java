@@ -0,0 +1,93 @@
+package com.noxtragram.service;
+
+import com.noxtragram.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Executor thật với một thread; encoder giả chặn tới khi test thả latch để giữ thread đó bận.
+ */
+class PasswordHashingServiceTest {
+
+  private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private ThreadPoolTaskExecutor executor;
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  void encodesOnTheExecutor() {
+    PasswordHashingService service = service(10, Duration.ofSeconds(5));
+    when(passwordEncoder.encode("secret")).thenAnswer(invocation -> Thread.currentThread().getName());
+
+    assertThat(service.encode("secret")).startsWith("test-hash-");
+  }
+
+  @Test
+  void rejectsWith429WhenQueueIsFull() throws Exception {
+    PasswordHashingService service = service(0, Duration.ofSeconds(5));
+    blockEncoder();
+
+    CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> service.encode("first"));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThatThrownBy(() -> service.encode("second"))
+        .isInstanceOfSatisfying(TooManyRequestsException.class,
+            e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(2));
+    assertThat(meterRegistry.counter("password.hashing.rejected").count()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+  }
+
+  @Test
+  void rejectsWith429WhenHashingTimesOut() {
+    PasswordHashingService service = service(10, Duration.ofMillis(50));
+    blockEncoder();
+
+    assertThatThrownBy(() -> service.encode("slow"))
+        .isInstanceOf(TooManyRequestsException.class);
+    assertThat(meterRegistry.counter("password.hashing.rejected").count()).isEqualTo(1);
+  }
+
+  private PasswordHashingService service(int queueCapacity, Duration timeout) {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("test-hash-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.initialize();
+    return new PasswordHashingService(passwordEncoder, executor, meterRegistry, timeout, Duration.ofSeconds(2), true);
+  }
+
+  private void blockEncoder() {
+    when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return "hash";
+    });
+  }
+}
@@ -0,0 +1,138 @@
+package com.noxtragram.service;
+
+import com.noxtragram.repository.LikeRepository;
+import com.noxtragram.repository.PostSaveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chạy với InMemoryMembershipBitStore thay cho Redis, DB là tập like giữ trong test.
+ * Việc dựng filter ở nền được xếp vào hàng đợi và chỉ chạy khi test gọi runRebuilds().
+ */
+class PostMembershipIndexTest {
+
+  private static final Long USER_ID = 7L;
+
+  private final InMemoryMembershipBitStore bitStore = new InMemoryMembershipBitStore();
+  private final LikeRepository likeRepository = mock(LikeRepository.class);
+  private final TreeSet<Long> likedPostIds = new TreeSet<>();
+  private final List<Runnable> rebuilds = new ArrayList<>();
+  private final AtomicInteger verifiedCandidates = new AtomicInteger();
+  private final AtomicInteger verifierCalls = new AtomicInteger();
+
+  private PostMembershipIndex index;
+
+  @BeforeEach
+  void setUp() {
+    when(likeRepository.countByUserId(USER_ID)).thenAnswer(invocation -> (long) likedPostIds.size());
+    when(likeRepository.findPostIdsByUserIdAfter(eq(USER_ID), anyLong(), any(Pageable.class)))
+        .thenAnswer(invocation -> {
+          Long afterPostId = invocation.getArgument(1);
+          Pageable page = invocation.getArgument(2);
+          return likedPostIds.tailSet(afterPostId, false).stream()
+              .limit(page.getPageSize())
+              .collect(Collectors.toList());
+        });
+    when(likeRepository.findLikedPostIds(eq(USER_ID), any())).thenAnswer(invocation -> {
+      Collection<Long> candidates = invocation.getArgument(1);
+      verifierCalls.incrementAndGet();
+      verifiedCandidates.addAndGet(candidates.size());
+      return candidates.stream().filter(likedPostIds::contains).collect(Collectors.toList());
+    });
+
+    TaskExecutor executor = rebuilds::add;
+    index = new PostMembershipIndex(bitStore, likeRepository, mock(PostSaveRepository.class), executor,
+        mock(PlatformTransactionManager.class), 16384, 1L << 27, 0.01, 5, 1000, Duration.ofDays(1));
+  }
+
+  @Test
+  void missAnswersFromDatabaseAndBuildsFilterInBackground() {
+    likedPostIds.addAll(List.of(10L, 20L));
+
+    assertThat(index.findLikedPostIds(USER_ID, List.of(10L, 11L))).containsExactly(10L);
+    assertThat(index.findLikedPostIds(USER_ID, List.of(20L))).containsExactly(20L);
+    // Hai lần miss liên tiếp chỉ xếp một lần dựng
+    assertThat(rebuilds).hasSize(1);
+
+    runRebuilds();
+    verifierCalls.set(0);
+
+    // Post chưa like: filter trả lời, không hỏi DB
+    assertThat(index.findLikedPostIds(USER_ID, List.of(11L, 12L, 13L))).isEmpty();
+    assertThat(verifierCalls).hasValue(0);
+    assertThat(index.hasLiked(USER_ID, 20L)).isTrue();
+    assertThat(verifierCalls).hasValue(1);
+  }
+
+  @Test
+  void likeCommittedAfterBuildIsVisible() {
+    likedPostIds.add(1L);
+    index.findLikedPostIds(USER_ID, List.of(1L));
+    runRebuilds();
+
+    likedPostIds.add(42L);
+    index.recordLike(USER_ID, 42L);
+
+    assertThat(index.hasLiked(USER_ID, 42L)).isTrue();
+  }
+
+  @Test
+  void filterIsSizedFromMemberCountForHeavyUsers() {
+    // 50k like (số chẵn), hỏi 2000 post chưa like (số lẻ)
+    LongStream.rangeClosed(1, 50_000).forEach(i -> likedPostIds.add(i * 2));
+    index.findLikedPostIds(USER_ID, List.of(2L));
+    runRebuilds();
+    verifiedCandidates.set(0);
+
+    for (long from = 1; from < 4000; from += 200) {
+      List<Long> page = LongStream.range(from, from + 200).filter(i -> i % 2 == 1).boxed()
+          .collect(Collectors.toList());
+      assertThat(index.findLikedPostIds(USER_ID, page)).isEmpty();
+    }
+
+    // Filter 16384 bit cố định sẽ bão hòa và đẩy gần như mọi post xuống DB
+    assertThat(verifiedCandidates.get()).isLessThan(100);
+  }
+
+  @Test
+  void sizeHeaderIsSharedBetweenInstances() {
+    LongStream.rangeClosed(1, 20_000).forEach(likedPostIds::add);
+    index.findLikedPostIds(USER_ID, List.of(1L));
+    runRebuilds();
+
+    // Instance khác chưa từng đọc filter này vẫn tính đúng offset từ header
+    PostMembershipIndex otherInstance = new PostMembershipIndex(bitStore, likeRepository,
+        mock(PostSaveRepository.class), rebuilds::add, mock(PlatformTransactionManager.class),
+        16384, 1L << 27, 0.01, 5, 1000, Duration.ofDays(1));
+    Set<Long> found = otherInstance.findLikedPostIds(USER_ID, List.of(5L, 15_000L, 30_000L));
+
+    assertThat(found).containsExactlyInAnyOrder(5L, 15_000L);
+    assertThat(rebuilds).isEmpty();
+  }
+
+  private void runRebuilds() {
+    List<Runnable> pending = new ArrayList<>(rebuilds);
+    rebuilds.clear();
+    pending.forEach(Runnable::run);
+  }
+}
@@ -0,0 +1,104 @@
+package com.noxtragram.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mô phỏng hai instance, mỗi instance có broker channel trong process riêng, nối với nhau bằng
+ * một "Redis" giả chuyển message pub/sub tới mọi instance.
+ */
+class RedisRealtimePublisherTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+
+  private Node nodeA;
+  private Node nodeB;
+
+  @BeforeEach
+  void setUp() {
+    nodeA = new Node();
+    nodeB = new Node();
+
+    doAnswer(invocation -> {
+      String json = invocation.getArgument(1);
+      nodeA.publisher.deliver(json);
+      nodeB.publisher.deliver(json);
+      return 2L;
+    }).when(redisTemplate).convertAndSend(eq(RedisRealtimePublisher.CHANNEL), anyString());
+  }
+
+  @Test
+  void deliversOnlyOnInstanceHoldingTheUserSession() {
+    nodeB.connect("42");
+
+    nodeA.publisher.sendToUser(42L, "/queue/messages", Map.of("content", "hello"));
+
+    assertThat(nodeA.delivered).isEmpty();
+    assertThat(nodeB.delivered).hasSize(1);
+    Message<?> message = nodeB.delivered.get(0);
+    assertThat(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))
+        .isEqualTo("/user/42/queue/messages");
+    assertThat(((JsonNode) message.getPayload()).path("content").asText()).isEqualTo("hello");
+  }
+
+  @Test
+  void dropsMessageWhenUserIsNotConnectedAnywhere() {
+    nodeA.publisher.sendToUser(7L, "/queue/typing", Map.of("isTyping", true));
+
+    assertThat(nodeA.delivered).isEmpty();
+    assertThat(nodeB.delivered).isEmpty();
+  }
+
+  @Test
+  void fallsBackToLocalBrokerWhenRedisIsDown() {
+    doThrow(new RedisConnectionFailureException("down"))
+        .when(redisTemplate).convertAndSend(eq(RedisRealtimePublisher.CHANNEL), anyString());
+
+    nodeA.publisher.sendToUser(42L, "/queue/read-receipt", Map.of("readerId", 1));
+
+    assertThat(nodeA.delivered).hasSize(1);
+    assertThat(nodeB.delivered).isEmpty();
+  }
+
+  private class Node {
+    final List<Message<?>> delivered = new ArrayList<>();
+    final SimpUserRegistry userRegistry = mock(SimpUserRegistry.class);
+    final RedisRealtimePublisher publisher;
+
+    Node() {
+      // Channel đồng bộ (không executor) đóng vai broker cục bộ của instance
+      ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+      brokerChannel.subscribe(delivered::add);
+      publisher = new RedisRealtimePublisher(redisTemplate, mock(RedisMessageListenerContainer.class),
+          new SimpMessagingTemplate(brokerChannel), userRegistry, objectMapper);
+    }
+
+    void connect(String user) {
+      when(userRegistry.getUser(user)).thenReturn(mock(SimpUser.class));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.noxtragram.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis là mock: sorted set thu hồi theo user trả về những gì test đặt sẵn, listener pub/sub
+ * được lấy ra từ container để giả lập thông điệp từ instance khác.
+ */
+class TokenRevocationServiceTest {
+
+  private static final long TOKEN_LIFETIME_MS = 86_400_000;
+
+  private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+  @SuppressWarnings("unchecked")
+  private final ZSetOperations<String, String> zSetOps = mock(ZSetOperations.class);
+  private final RedisMessageListenerContainer listenerContainer = mock(RedisMessageListenerContainer.class);
+
+  private TokenRevocationService service;
+
+  @BeforeEach
+  void setUp() {
+    when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+    when(zSetOps.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(Set.of());
+    service = new TokenRevocationService(redisTemplate, listenerContainer, 1000, 0.001, TOKEN_LIFETIME_MS);
+  }
+
+  @Test
+  void revokeAllForUserRejectsTokensIssuedBeforeTheCutoffOnly() {
+    Date before = new Date(System.currentTimeMillis() - 5_000);
+
+    service.revokeAllForUser(7L);
+    Date after = new Date(System.currentTimeMillis() + 5_000);
+
+    assertThat(service.isRevoked("jti-1", 7L, before)).isTrue();
+    assertThat(service.isRevoked("jti-2", 7L, after)).isFalse();
+    assertThat(service.isRevoked("jti-3", 8L, before)).isFalse();
+    verify(zSetOps).add(eq("auth:revoked-users"), eq("7"), anyDouble());
+    verify(redisTemplate).convertAndSend(eq("auth:user-revocations"), anyString());
+  }
+
+  @Test
+  void appliesCutoffsPublishedByOtherInstances() {
+    long cutoff = System.currentTimeMillis();
+
+    userListener().onMessage(new DefaultMessage("auth:user-revocations".getBytes(StandardCharsets.UTF_8),
+        ("9:" + cutoff).getBytes(StandardCharsets.UTF_8)), null);
+
+    assertThat(service.isRevoked("jti", 9L, new Date(cutoff - 1_000))).isTrue();
+    assertThat(service.isRevoked("jti", 9L, new Date(cutoff + 1_000))).isFalse();
+  }
+
+  @Test
+  void rebuildLoadsCutoffsFromRedisAndKeepsOnesReceivedMeanwhile() {
+    long now = System.currentTimeMillis();
+    when(zSetOps.rangeByScoreWithScores(eq("auth:revoked-users"), anyDouble(), anyDouble()))
+        .thenReturn(Set.of(new DefaultTypedTuple<>("5", (double) now)));
+    service.revokeAllForUser(6L);
+
+    service.rebuild();
+
+    Date earlier = new Date(now - 1_000);
+    assertThat(service.isRevoked("jti", 5L, earlier)).isTrue();
+    assertThat(service.isRevoked("jti", 6L, earlier)).isTrue();
+    // Mốc quá một vòng đời token bị dọn khỏi Redis
+    verify(zSetOps).removeRangeByScore(eq("auth:revoked-users"), eq(Double.NEGATIVE_INFINITY), anyDouble());
+  }
+
+  private MessageListener userListener() {
+    ArgumentCaptor<MessageListener> listeners = ArgumentCaptor.forClass(MessageListener.class);
+    ArgumentCaptor<Topic> topics = ArgumentCaptor.forClass(Topic.class);
+    verify(listenerContainer, times(2)).addMessageListener(listeners.capture(), topics.capture());
+    List<Topic> captured = topics.getAllValues();
+    for (int i = 0; i < captured.size(); i++) {
+      if (captured.get(i).getTopic().equals("auth:user-revocations")) {
+        return listeners.getAllValues().get(i);
+      }
+    }
+    throw new AssertionError("No listener for auth:user-revocations");
+  }
+}
@@ -0,0 +1,119 @@
+package com.noxtragram.service;
+
+import com.noxtragram.event.PostCreatedEvent;
+import com.noxtragram.model.dto.TrendingHashtagDTO;
+import com.noxtragram.repository.HashtagRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis giả là một map key -> sorted set dùng chung cho hai instance; pipeline chạy callback trên
+ * mock RedisOperations ghi thẳng vào map và gom kết quả theo thứ tự lệnh.
+ */
+class TrendingHashtagServiceTest {
+
+  private static final long BUCKET_MS = 60_000;
+  private static final long T0 = 1_000 * BUCKET_MS;
+
+  private final Map<String, Map<String, Double>> redis = new HashMap<>();
+
+  @Test
+  void everyInstanceRanksPostsCreatedOnAllInstances() {
+    TrendingHashtagService nodeA = service();
+    TrendingHashtagService nodeB = service();
+    nodeA.rotate(T0);
+    nodeB.rotate(T0);
+
+    post(nodeA, "Java", "spring");
+    post(nodeA, "java");
+    post(nodeB, "JAVA", "kotlin");
+    post(nodeB, "kotlin");
+    nodeA.rotate(T0 + 10);
+    nodeB.rotate(T0 + 20);
+
+    // Bucket vừa ghi chưa đóng thì chưa tính
+    assertThat(nodeA.getTrending(10)).isEmpty();
+
+    nodeA.rotate(T0 + BUCKET_MS);
+    nodeB.rotate(T0 + BUCKET_MS + 30);
+
+    assertThat(names(nodeA)).containsExactly("java", "kotlin", "spring");
+    assertThat(names(nodeB)).containsExactly("java", "kotlin", "spring");
+    assertThat(nodeB.getTrending(1).get(0).getTrendScore()).isEqualTo(3);
+  }
+
+  @Test
+  void restartedInstanceRestoresTheWindowFromSharedBuckets() {
+    TrendingHashtagService running = service();
+    running.rotate(T0);
+    post(running, "java");
+    running.rotate(T0 + 5);
+
+    TrendingHashtagService restarted = service();
+    restarted.rotate(T0 + 3 * BUCKET_MS);
+
+    assertThat(names(restarted)).containsExactly("java");
+  }
+
+  private TrendingHashtagService service() {
+    return new TrendingHashtagService(mock(HashtagRepository.class), fakeRedis(),
+        BUCKET_MS, 60 * BUCKET_MS, 30 * BUCKET_MS, 10);
+  }
+
+  private static void post(TrendingHashtagService service, String... hashtags) {
+    service.onPostCreated(new PostCreatedEvent(1L, 1L, LocalDateTime.now(), List.of(hashtags)));
+  }
+
+  private static List<String> names(TrendingHashtagService service) {
+    return service.getTrending(10).stream().map(TrendingHashtagDTO::getName).toList();
+  }
+
+  @SuppressWarnings("unchecked")
+  private StringRedisTemplate fakeRedis() {
+    StringRedisTemplate template = mock(StringRedisTemplate.class);
+    when(template.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+      List<Object> results = new ArrayList<>();
+      RedisOperations<String, String> operations = mock(RedisOperations.class);
+      ZSetOperations<String, String> zSet = mock(ZSetOperations.class);
+      when(operations.opsForZSet()).thenReturn(zSet);
+      when(zSet.incrementScore(anyString(), anyString(), anyDouble())).thenAnswer(call -> {
+        String key = call.getArgument(0);
+        results.add(redis.computeIfAbsent(key, k -> new HashMap<>())
+            .merge(call.getArgument(1), call.<Double>getArgument(2), Double::sum));
+        return null;
+      });
+      when(zSet.rangeWithScores(anyString(), anyLong(), anyLong())).thenAnswer(call -> {
+        Set<TypedTuple<String>> tuples = new LinkedHashSet<>();
+        redis.getOrDefault(call.<String>getArgument(0), Map.of())
+            .forEach((member, score) -> tuples.add(new DefaultTypedTuple<>(member, score)));
+        results.add(tuples);
+        return null;
+      });
+      SessionCallback<Object> callback = invocation.getArgument(0);
+      callback.execute(operations);
+      return results;
+    });
+    return template;
+  }
+}
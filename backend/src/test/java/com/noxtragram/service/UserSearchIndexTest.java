@@ -0,0 +1,138 @@
+package com.noxtragram.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bảng users là map giữ trong test: lần sync đầu đọc theo keyset id, các lần sau chỉ trả về
+ * những dòng test đánh dấu là đã đổi (giả lập WHERE updated_at >= ?).
+ */
+class UserSearchIndexTest {
+
+  private static final long SYNC_OVERLAP_MS = 60_000;
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final TreeMap<Long, Object[]> users = new TreeMap<>();
+  private final List<Long> changedIds = new ArrayList<>();
+  private final List<Timestamp> changedSince = new ArrayList<>();
+  private Timestamp now = Timestamp.valueOf("2026-01-01 12:00:00");
+
+  private UserSearchIndex index;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class))).thenAnswer(invocation -> now);
+    doAnswer(invocation -> {
+      String sql = invocation.getArgument(0);
+      RowCallbackHandler handler = invocation.getArgument(1);
+      if (sql.contains("updated_at")) {
+        changedSince.add(invocation.getArgument(2));
+        for (Long id : changedIds) {
+          handler.processRow(row(users.get(id)));
+        }
+      } else {
+        long afterId = invocation.getArgument(2);
+        int limit = invocation.getArgument(3);
+        for (Object[] user : users.tailMap(afterId, false).values().stream().limit(limit).toList()) {
+          handler.processRow(row(user));
+        }
+      }
+      return null;
+    }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+    index = new UserSearchIndex(jdbcTemplate, 1000, SYNC_OVERLAP_MS);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    index.close();
+  }
+
+  @Test
+  void matchesPrefixesOfUsernameAndFullNameWords() {
+    user(1L, "johndoe", "John Doe", true);
+    user(2L, "jane_smith", "Nguyễn Thị Lan", true);
+    user(3L, "bob", "Bob Builder", true);
+
+    index.sync();
+
+    assertThat(index.isReady()).isTrue();
+    assertThat(search("jo", UserSearchIndex.Scope.ALL)).containsExactly(1L);
+    // Từ trong username tách theo '_'
+    assertThat(search("smi", UserSearchIndex.Scope.ALL)).containsExactly(2L);
+    // Không dấu vẫn khớp tên có dấu
+    assertThat(search("nguyen la", UserSearchIndex.Scope.ALL)).containsExactly(2L);
+    assertThat(search("build", UserSearchIndex.Scope.USERNAME)).isEmpty();
+    assertThat(search("build", UserSearchIndex.Scope.FULL_NAME)).containsExactly(3L);
+    assertThat(search("xyz", UserSearchIndex.Scope.ALL)).isEmpty();
+  }
+
+  @Test
+  void exactUsernameRanksAbovePrefixMatches() {
+    user(1L, "annabelle", null, true);
+    user(2L, "ann", null, true);
+    user(3L, "anna", null, true);
+
+    index.sync();
+
+    assertThat(search("ann", UserSearchIndex.Scope.ALL)).first().isEqualTo(2L);
+    assertThat(search("ann", UserSearchIndex.Scope.ALL)).containsExactlyInAnyOrder(1L, 2L, 3L);
+  }
+
+  @Test
+  void laterSyncsOnlyReadUsersChangedSinceLastSyncMinusOverlap() {
+    user(1L, "johndoe", "John Doe", true);
+    user(2L, "bob", "Bob Builder", true);
+    index.sync();
+    Timestamp firstSync = now;
+
+    now = new Timestamp(firstSync.getTime() + 30_000);
+    user(1L, "zed", "Zed Shaw", true);
+    user(2L, "bob", "Bob Builder", false);
+    changedIds.addAll(List.of(1L, 2L));
+    index.sync();
+
+    assertThat(changedSince).containsExactly(new Timestamp(firstSync.getTime() - SYNC_OVERLAP_MS));
+    assertThat(search("zed", UserSearchIndex.Scope.ALL)).containsExactly(1L);
+    assertThat(search("john", UserSearchIndex.Scope.ALL)).isEmpty();
+    // User không còn active bị xóa khỏi index
+    assertThat(search("bob", UserSearchIndex.Scope.ALL)).isEmpty();
+  }
+
+  private List<Long> search(String keyword, UserSearchIndex.Scope scope) {
+    return index.search(keyword, scope, PageRequest.of(0, 20)).getContent();
+  }
+
+  private void user(Long id, String username, String fullName, boolean active) {
+    users.put(id, new Object[] { id, username, fullName, active });
+  }
+
+  private static ResultSet row(Object[] user) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getLong("id")).thenReturn((Long) user[0]);
+    when(rs.getString("username")).thenReturn((String) user[1]);
+    when(rs.getString("full_name")).thenReturn((String) user[2]);
+    when(rs.getBoolean("is_active")).thenReturn((Boolean) user[3]);
+    return rs;
+  }
+}
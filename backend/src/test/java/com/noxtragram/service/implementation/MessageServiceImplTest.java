@@ -0,0 +1,115 @@
+package com.noxtragram.service.implementation;
+
+import com.noxtragram.model.entity.Message;
+import com.noxtragram.model.entity.User;
+import com.noxtragram.repository.MessageRepository;
+import com.noxtragram.repository.UserRepository;
+import com.noxtragram.service.ConversationService;
+import com.noxtragram.service.MessageOutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Số chưa đọc của cuộc trò chuyện chỉ bị trừ khi UPDATE có điều kiện trên tin nhắn đổi được dòng;
+ * kết quả 0 giả lập request khác đã đọc / xóa tin đó trước.
+ */
+class MessageServiceImplTest {
+
+  private static final Long MESSAGE_ID = 100L;
+
+  private final MessageRepository messageRepository = mock(MessageRepository.class);
+  private final UserRepository userRepository = mock(UserRepository.class);
+  private final ConversationService conversationService = mock(ConversationService.class);
+  private final User sender = user(1L);
+  private final User receiver = user(2L);
+  private Message message;
+
+  private MessageServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    message = new Message("hi", sender, receiver);
+    message.setId(MESSAGE_ID);
+    message.setCreatedAt(LocalDateTime.now());
+    when(messageRepository.findById(MESSAGE_ID)).thenReturn(Optional.of(message));
+    when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+    when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+
+    service = new MessageServiceImpl(messageRepository, userRepository, mock(MessageOutboxService.class),
+        conversationService);
+  }
+
+  @Test
+  void markAsReadDecrementsWhenTheGuardedUpdateWins() {
+    when(messageRepository.markAsReadIfUnread(MESSAGE_ID, receiver)).thenReturn(1);
+
+    service.markMessageAsRead(MESSAGE_ID, 2L);
+
+    verify(conversationService).onUnreadMessageCleared(message);
+  }
+
+  @Test
+  void markAsReadDoesNotDecrementWhenAnotherRequestClearedItFirst() {
+    when(messageRepository.markAsReadIfUnread(MESSAGE_ID, receiver)).thenReturn(0);
+
+    service.markMessageAsRead(MESSAGE_ID, 2L);
+
+    verify(conversationService, never()).onUnreadMessageCleared(any());
+  }
+
+  @Test
+  void deleteForReceiverDecrementsOnlyForAnUnreadMessage() {
+    when(messageRepository.softDeleteUnreadForReceiver(MESSAGE_ID, receiver)).thenReturn(1);
+
+    service.deleteMessageForUser(MESSAGE_ID, 2L);
+
+    verify(conversationService).onUnreadMessageCleared(message);
+    verify(messageRepository, never()).softDeleteForReceiver(any(), any());
+  }
+
+  @Test
+  void deleteForReceiverOfAReadMessageOnlySoftDeletes() {
+    when(messageRepository.softDeleteUnreadForReceiver(MESSAGE_ID, receiver)).thenReturn(0);
+
+    service.deleteMessageForUser(MESSAGE_ID, 2L);
+
+    verify(messageRepository).softDeleteForReceiver(MESSAGE_ID, receiver);
+    verify(conversationService, never()).onUnreadMessageCleared(any());
+  }
+
+  @Test
+  void deleteForSenderNeverTouchesTheReceiverCount() {
+    service.deleteMessageForUser(MESSAGE_ID, 1L);
+
+    verify(messageRepository).softDeleteForSender(MESSAGE_ID, sender);
+    verify(messageRepository, never()).softDeleteUnreadForReceiver(any(), any());
+    verify(conversationService, never()).onUnreadMessageCleared(any());
+  }
+
+  @Test
+  void recallOfAMessageAlreadyClearedByTheReceiverDoesNotDecrementAgain() {
+    when(messageRepository.softDeleteUnreadForReceiver(MESSAGE_ID, receiver)).thenReturn(0);
+
+    service.recallMessage(MESSAGE_ID, 1L);
+
+    verify(conversationService, never()).onUnreadMessageCleared(any());
+    verify(messageRepository).softDeleteForReceiver(MESSAGE_ID, receiver);
+    verify(messageRepository).softDeleteForSender(MESSAGE_ID, sender);
+    verify(conversationService).onMessageRecalled(message);
+  }
+
+  private static User user(Long id) {
+    User user = new User();
+    user.setId(id);
+    return user;
+  }
+}
@@ -0,0 +1,117 @@
+package com.noxtragram.service.implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.noxtragram.exception.OperationNotAllowedException;
+import com.noxtragram.mapper.UserMapper;
+import com.noxtragram.model.dto.request.PasswordChangeRequestDTO;
+import com.noxtragram.model.dto.request.PasswordResetRequestDTO;
+import com.noxtragram.model.entity.User;
+import com.noxtragram.repository.FollowRepository;
+import com.noxtragram.repository.UserRepository;
+import com.noxtragram.security.JwtUtils;
+import com.noxtragram.service.FeedService;
+import com.noxtragram.service.FileStorageService;
+import com.noxtragram.service.PasswordHashingService;
+import com.noxtragram.service.TokenRevocationService;
+import com.noxtragram.service.UserCounterService;
+import com.noxtragram.service.UserSearchIndex;
+import com.noxtragram.service.UserSuggestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Các thao tác làm token cũ mất hiệu lực phải thu hồi mọi token của user; repository và
+ * TokenRevocationService là mock.
+ */
+class UserServiceImplTest {
+
+  private static final Long USER_ID = 7L;
+
+  private final UserRepository userRepository = mock(UserRepository.class);
+  private final PasswordHashingService passwordHashingService = mock(PasswordHashingService.class);
+  private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+  private User user;
+
+  private UserServiceImpl service;
+
+  @BeforeEach
+  void setUp() {
+    user = new User("alice", "alice@example.com", "old-hash");
+    user.setId(USER_ID);
+    user.setIsActive(true);
+    when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+    when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(user));
+    when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(passwordHashingService.encode(anyString())).thenReturn("new-hash");
+
+    service = new UserServiceImpl(userRepository, mock(FollowRepository.class), passwordHashingService,
+        mock(FileStorageService.class), mock(UserMapper.class), mock(JwtUtils.class), mock(FeedService.class),
+        mock(UserSearchIndex.class), mock(UserSuggestionService.class), mock(UserCounterService.class),
+        tokenRevocationService, new ObjectMapper(), 1000);
+  }
+
+  @Test
+  void deleteUserRevokesAllTokens() {
+    service.deleteUser(USER_ID);
+
+    verify(tokenRevocationService).revokeAllForUserAfterCommit(USER_ID);
+  }
+
+  @Test
+  void deactivateUserRevokesAllTokens() {
+    service.deactivateUser(USER_ID);
+
+    verify(tokenRevocationService).revokeAllForUserAfterCommit(USER_ID);
+  }
+
+  @Test
+  void changePasswordRevokesAllTokens() {
+    when(passwordHashingService.matches("old", "old-hash")).thenReturn(true);
+    when(userRepository.updatePassword(eq(USER_ID), eq("old-hash"), eq("new-hash"), any())).thenReturn(1);
+
+    service.changePassword(USER_ID, passwordChange("old", "new"));
+
+    verify(tokenRevocationService).revokeAllForUser(USER_ID);
+  }
+
+  @Test
+  void rejectedPasswordChangeKeepsTokens() {
+    when(passwordHashingService.matches("wrong", "old-hash")).thenReturn(false);
+
+    assertThatThrownBy(() -> service.changePassword(USER_ID, passwordChange("wrong", "new")))
+        .isInstanceOf(OperationNotAllowedException.class);
+
+    verify(tokenRevocationService, never()).revokeAllForUser(anyLong());
+  }
+
+  @Test
+  void resetPasswordRevokesAllTokens() {
+    PasswordResetRequestDTO request = new PasswordResetRequestDTO();
+    request.setEmail("alice@example.com");
+    request.setNewPassword("new");
+
+    service.resetPassword(request);
+
+    verify(userRepository).setPassword(eq(USER_ID), eq("new-hash"), any());
+    verify(tokenRevocationService).revokeAllForUser(USER_ID);
+  }
+
+  private static PasswordChangeRequestDTO passwordChange(String current, String next) {
+    PasswordChangeRequestDTO request = new PasswordChangeRequestDTO();
+    request.setCurrentPassword(current);
+    request.setNewPassword(next);
+    return request;
+  }
+}